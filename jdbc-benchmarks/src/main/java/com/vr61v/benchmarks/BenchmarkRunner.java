@@ -0,0 +1,33 @@
+package com.vr61v.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: runs JMH with the given command line and, unless the
+ * command line chooses a result format itself ({@code -rf}), writes the results as JSON to
+ * {@code results/jmh-<date>-<time>.json}. Two result files are compared with {@link CompareResults}.
+ */
+public final class BenchmarkRunner {
+
+    private static final String RESULTS_DIRECTORY = "results";
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            new File(RESULTS_DIRECTORY).mkdirs();
+            String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            arguments.addAll(0, List.of("-rf", "json", "-rff", RESULTS_DIRECTORY + "/jmh-" + time + ".json"));
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.vr61v.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compares two JMH JSON result files, e.g. of the same benchmarks before and after a change:
+ * <pre>
+ *   java -cp target/benchmarks.jar com.vr61v.benchmarks.CompareResults results/before.json results/after.json
+ * </pre>
+ * Prints the score of every benchmark and parameter set found in both files, the change in percent
+ * and whether it's larger than the sum of both score errors (99.9% confidence intervals), and the
+ * change of {@code gc.alloc.rate.norm} if the runs were made with {@code -prof gc}. Lower is better
+ * for the time modes, higher for {@code thrpt}.
+ */
+public final class CompareResults {
+
+    private static final String ALLOCATION = "·gc.alloc.rate.norm";
+
+    private CompareResults() {}
+
+    private record Score(double score, double error, String unit, Double allocated) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <before.json> <after.json>");
+            System.exit(2);
+        }
+
+        Map<String, Score> before = read(new File(args[0]));
+        Map<String, Score> after = read(new File(args[1]));
+
+        int width = after.keySet().stream().mapToInt(String::length).max().orElse(0);
+        String row = "%-" + width + "s %14.3f %14.3f %+8.1f%%%s %s%n";
+        String allocationRow = "%-" + width + "s %14.1f %14.1f %+8.1f%%  B/op%n";
+        System.out.printf("%-" + width + "s %14s %14s %9s  %s%n", "Benchmark", "Before", "After", "Change", "Unit");
+        for (Map.Entry<String, Score> entry : after.entrySet()) {
+            Score old = before.get(entry.getKey());
+            if (old == null) {
+                continue;
+            }
+
+            Score now = entry.getValue();
+            double change = (now.score() - old.score()) / old.score() * 100;
+            boolean significant = Math.abs(now.score() - old.score()) > old.error() + now.error();
+            System.out.printf(row, entry.getKey(), old.score(), now.score(),
+                    change, significant ? "*" : " ", now.unit());
+            if (old.allocated() != null && now.allocated() != null && old.allocated() > 0) {
+                System.out.printf(allocationRow, "  " + ALLOCATION, old.allocated(),
+                        now.allocated(), (now.allocated() - old.allocated()) / old.allocated() * 100);
+            }
+        }
+        System.out.println("* - the change is larger than the score errors");
+    }
+
+    /**
+     * @return scores by benchmark name, mode, thread count and parameters, in file order
+     */
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText())
+                    .append(" ").append(run.path("mode").asText())
+                    .append(" t=").append(run.path("threads").asInt());
+            List<String> params = new ArrayList<>();
+            run.path("params").fields().forEachRemaining(param -> params.add(param.getKey() + "=" + param.getValue().asText()));
+            Collections.sort(params);
+            params.forEach(param -> key.append(" ").append(param));
+
+            JsonNode metric = run.path("primaryMetric");
+            JsonNode allocated = run.path("secondaryMetrics").path(ALLOCATION).path("score");
+            scores.put(key.toString(), new Score(
+                    metric.path("score").asDouble(),
+                    metric.path("scoreError").asDouble(0),
+                    metric.path("scoreUnit").asText(),
+                    allocated.isNumber() ? allocated.asDouble() : null
+            ));
+        }
+        return scores;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.vr61v.benchmarks;
+
+import com.vr61v.benchmarks.support.BenchmarkDatabase;
+import com.vr61v.entities.Ticket;
+import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.utils.RepositoryConnectionManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link TicketsRepository#findAllById(List)} for lists of random existing ticket numbers
+ * of different sizes, to see how the cost of one {@code = ANY(?)} query grows with the list.
+ * The table gets {@code tableSize} benchmark tickets before the run. Needs a database, see
+ * {@link BenchmarkDatabase}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindAllByIdBenchmark {
+
+    @Param({"100000"})
+    public int tableSize;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int ids;
+
+    private RepositoryConnectionManager manager;
+    private TicketsRepository repository;
+    private List<String> ticketNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkDatabase.connect();
+        BenchmarkDatabase.clean(manager);
+        List<Ticket> tickets = BenchmarkDatabase.tickets(BenchmarkDatabase.bookRef(manager), 0, tableSize);
+        BenchmarkDatabase.load(manager, tickets);
+        repository = new TicketsRepository(manager);
+
+        List<String> numbers = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            numbers.add(ticket.getTicketNo());
+        }
+        Collections.shuffle(numbers, new Random(42));
+        ticketNumbers = List.copyOf(numbers.subList(0, ids));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.clean(manager);
+        manager.close();
+    }
+
+    @Benchmark
+    public List<Ticket> findAllById() {
+        return repository.findAllById(ticketNumbers);
+    }
+
+}
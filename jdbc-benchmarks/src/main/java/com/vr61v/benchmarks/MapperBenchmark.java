@@ -0,0 +1,76 @@
+package com.vr61v.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vr61v.benchmarks.support.StubResultSet;
+import com.vr61v.entities.Ticket;
+import com.vr61v.mappers.RowMapper;
+import com.vr61v.mappers.TicketMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding the rows of a large findAll scan into tickets.
+ * <ul>
+ *   <li>{@code mapToEntity} - {@link TicketMapper#mapToEntity(ResultSet)}: columns by name for every
+ *       row, contact_data through {@code ObjectMapper.readValue}</li>
+ *   <li>{@code rowDecoder} - {@link TicketMapper#rowDecoder()}: column indexes resolved once,
+ *       contact_data through a streaming parser</li>
+ * </ul>
+ * Rows come from a {@link StubResultSet}, so only the mapping is measured. Run with
+ * {@code -prof gc} to compare {@code gc.alloc.rate.norm}, the bytes allocated per scan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final List<String> COLUMNS = List.of("ticket_no", "book_ref", "passenger_id", "passenger_name", "contact_data");
+
+    @Param({"10000"})
+    public int rows;
+
+    private final TicketMapper mapper = new TicketMapper();
+
+    private ResultSet result;
+
+    @Setup
+    public void setUp() {
+        String[][] data = new String[rows][];
+        for (int i = 0; i < rows; ++i) {
+            data[i] = new String[] {
+                    String.format("%013d", i),
+                    String.format("%06X", i % 0xFFFFFF),
+                    String.format("%04d %06d", i % 10000, i),
+                    "PASSENGER " + i,
+                    "{\"email\": \"passenger" + i + "@mail.com\", \"phone\": \"+7" + String.format("%010d", i) + "\"}"
+            };
+        }
+        result = StubResultSet.of(COLUMNS, data);
+    }
+
+    @Benchmark
+    public void mapToEntity(Blackhole blackhole) throws SQLException, JsonProcessingException {
+        result.beforeFirst();
+        while (result.next()) {
+            blackhole.consume(mapper.mapToEntity(result));
+        }
+    }
+
+    @Benchmark
+    public void rowDecoder(Blackhole blackhole) throws SQLException, JsonProcessingException {
+        result.beforeFirst();
+        RowMapper<Ticket> decoder = mapper.rowDecoder();
+        while (result.next()) {
+            blackhole.consume(decoder.mapRow(result));
+        }
+    }
+
+}
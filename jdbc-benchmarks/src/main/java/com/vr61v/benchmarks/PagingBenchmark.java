@@ -0,0 +1,93 @@
+package com.vr61v.benchmarks;
+
+import com.vr61v.benchmarks.support.BenchmarkDatabase;
+import com.vr61v.entities.Ticket;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.repositories.Page;
+import com.vr61v.repositories.PageToken;
+import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.utils.RepositoryConnectionManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read one page of tickets deep into the table.
+ * <ul>
+ *   <li>{@code offset} - {@link TicketsRepository#findPage(int, int)}, the server reads and skips
+ *       all rows of the previous pages</li>
+ *   <li>{@code keyset} - {@link TicketsRepository#findPageAfter(String, int)} with the token of the
+ *       previous page, the server seeks the primary key index</li>
+ * </ul>
+ * The table gets {@code tableSize} benchmark tickets before the run. Needs a database, see
+ * {@link BenchmarkDatabase}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"100000"})
+    public int tableSize;
+
+    @Param({"0", "100", "900"})
+    public int page;
+
+    private RepositoryConnectionManager manager;
+    private TicketsRepository repository;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkDatabase.connect();
+        BenchmarkDatabase.clean(manager);
+        BenchmarkDatabase.load(manager, BenchmarkDatabase.tickets(BenchmarkDatabase.bookRef(manager), 0, tableSize));
+        repository = new TicketsRepository(manager);
+        token = page == 0 ? null : PageToken.encode(keyAt((long) page * PAGE_SIZE - 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.clean(manager);
+        manager.close();
+    }
+
+    /**
+     * @return the ticket number at the position in the key order of the whole table
+     */
+    private String keyAt(long position) {
+        try (Connection connection = manager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT ticket_no FROM bookings.tickets ORDER BY ticket_no OFFSET ? LIMIT 1;")
+        ) {
+            statement.setLong(1, position);
+            try (ResultSet result = statement.executeQuery()) {
+                result.next();
+                return result.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    @Benchmark
+    public List<Ticket> offset() {
+        return repository.findPage(page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Ticket> keyset() {
+        return repository.findPageAfter(token, PAGE_SIZE);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.vr61v.benchmarks;
+
+import com.vr61v.benchmarks.support.LegacyConnectionManager;
+import com.vr61v.benchmarks.support.StubConnection;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.RepositoryConnectionManager;
+import com.vr61v.utils.pool.ConnectionPool;
+import com.vr61v.utils.pool.PoolConfig;
+import com.vr61v.utils.pool.PoolMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of borrowing a connection, making one call on it and returning it to the pool.
+ * <p>
+ * Connections are {@link StubConnection}s, so only the pool overhead is measured:
+ * <ul>
+ *   <li>{@code LEGACY} - the original queue of {@link java.lang.reflect.Proxy} connections</li>
+ *   <li>{@code QUEUE} - {@link ConnectionPool} in {@link PoolMode#QUEUE} mode</li>
+ *   <li>{@code STRIPED} - {@link ConnectionPool} in {@link PoolMode#STRIPED} mode</li>
+ * </ul>
+ * Pool size is smaller than the largest thread count on purpose, to show the behaviour under
+ * contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolBenchmark {
+
+    private static final int POOL_SIZE = 8;
+
+    @Param({"LEGACY", "QUEUE", "STRIPED"})
+    public String implementation;
+
+    private ConnectionManager manager;
+
+    @Setup
+    public void setUp() {
+        if (implementation.equals("LEGACY")) {
+            manager = new LegacyConnectionManager(POOL_SIZE, StubConnection::new);
+            return;
+        }
+
+        PoolConfig config = PoolConfig.builder()
+                .name("benchmark")
+                .size(POOL_SIZE)
+                .mode(PoolMode.valueOf(implementation))
+                .acquireTimeout(60_000)
+                .build();
+        manager = new RepositoryConnectionManager(config, StubConnection::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    private boolean borrowAndReturn() throws SQLException {
+        try (Connection connection = manager.getConnection()) {
+            return connection.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean borrow_1_thread() throws SQLException {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean borrow_2_threads() throws SQLException {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean borrow_4_threads() throws SQLException {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean borrow_8_threads() throws SQLException {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean borrow_16_threads() throws SQLException {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean borrow_32_threads() throws SQLException {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean borrow_64_threads() throws SQLException {
+        return borrowAndReturn();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.vr61v.benchmarks;
+
+import com.vr61v.benchmarks.support.BenchmarkDatabase;
+import com.vr61v.entities.Ticket;
+import com.vr61v.repositories.BulkLoadResult;
+import com.vr61v.repositories.TicketsBulkLoader;
+import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.utils.RepositoryConnectionManager;
+import com.vr61v.utils.jdbc.CopyFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to insert a number of tickets into Postgres.
+ * <ul>
+ *   <li>{@code add} - {@link TicketsRepository#add(Ticket)} per ticket, a round trip and a commit each</li>
+ *   <li>{@code addAll} - {@link TicketsRepository#addAll(List)}, one {@code INSERT ... unnest} per
+ *       chunk of 1000 tickets in one transaction</li>
+ *   <li>{@code copy} - {@link TicketsBulkLoader} with one binary {@code COPY} stream</li>
+ * </ul>
+ * The inserted tickets are deleted after every invocation. Needs a database, see {@link BenchmarkDatabase}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int tickets;
+
+    private RepositoryConnectionManager manager;
+    private TicketsRepository repository;
+    private TicketsBulkLoader loader;
+    private List<Ticket> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkDatabase.connect();
+        BenchmarkDatabase.clean(manager);
+        repository = new TicketsRepository(manager);
+        loader = new TicketsBulkLoader(manager, 1, CopyFormat.BINARY);
+        batch = BenchmarkDatabase.tickets(BenchmarkDatabase.bookRef(manager), 0, tickets);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteInserted() {
+        BenchmarkDatabase.clean(manager);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public int add() {
+        int added = 0;
+        for (Ticket ticket : batch) {
+            added += repository.add(ticket) ? 1 : 0;
+        }
+        return added;
+    }
+
+    @Benchmark
+    public boolean addAll() {
+        return repository.addAll(batch);
+    }
+
+    @Benchmark
+    public BulkLoadResult copy() {
+        return loader.load(batch);
+    }
+
+}
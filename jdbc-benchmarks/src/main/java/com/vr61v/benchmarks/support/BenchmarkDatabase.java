@@ -0,0 +1,96 @@
+package com.vr61v.benchmarks.support;
+
+import com.vr61v.entities.ContactData;
+import com.vr61v.entities.Ticket;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.filters.Criteria;
+import com.vr61v.filters.TicketColumns;
+import com.vr61v.repositories.TicketsBulkLoader;
+import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.utils.RepositoryConnectionManager;
+import com.vr61v.utils.jdbc.CopyFormat;
+import com.vr61v.utils.pool.PoolConfig;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access to the Postgres database of the benchmarks that need one.
+ * <p>
+ * The connection is configured by the keys of {@code application.properties} of the jdbc module
+ * with the prefix of the system property {@code benchmark.database}, {@code database.tests}
+ * (the {@code demo_test} database) by default. Pass {@code -jvmArgsAppend -Dbenchmark.database=database}
+ * to run against the full demo database.
+ * <p>
+ * Benchmarks add their own tickets, numbered {@code BM00000000000} and up, to the first booking
+ * of the database and delete them afterwards, other tickets are not touched.
+ */
+public final class BenchmarkDatabase {
+
+    public static final String TICKET_PREFIX = "BM";
+
+    private BenchmarkDatabase() {}
+
+    /**
+     * @return pooled connection manager of the benchmark database
+     */
+    public static RepositoryConnectionManager connect() {
+        return new RepositoryConnectionManager(PoolConfig.fromProperties(System.getProperty("benchmark.database", "database.tests")));
+    }
+
+    /**
+     * @return the booking reference the benchmark tickets belong to
+     * @throws IllegalStateException if the database has no bookings
+     */
+    public static String bookRef(RepositoryConnectionManager manager) {
+        try (Connection connection = manager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT book_ref FROM bookings.bookings ORDER BY book_ref LIMIT 1;")
+        ) {
+            if (!result.next()) {
+                throw new IllegalStateException("Benchmark database has no bookings");
+            }
+            return result.getString(1);
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * @param from  the number of the first ticket
+     * @param count the number of tickets
+     * @return benchmark tickets with consecutive numbers
+     */
+    public static List<Ticket> tickets(String bookRef, long from, int count) {
+        List<Ticket> tickets = new ArrayList<>(count);
+        for (long i = from; i < from + count; ++i) {
+            tickets.add(new Ticket(
+                    TICKET_PREFIX + String.format("%011d", i),
+                    bookRef,
+                    String.format("%04d %06d", i % 10_000, i % 1_000_000),
+                    "BENCHMARK PASSENGER " + i,
+                    new ContactData(String.format("+7%010d", i), "passenger" + i + "@mail.com")
+            ));
+        }
+        return tickets;
+    }
+
+    /**
+     * Loads the tickets with a single COPY stream.
+     */
+    public static void load(RepositoryConnectionManager manager, List<Ticket> tickets) {
+        new TicketsBulkLoader(manager, 1, CopyFormat.BINARY).load(tickets);
+    }
+
+    /**
+     * Deletes all benchmark tickets.
+     */
+    public static void clean(RepositoryConnectionManager manager) {
+        new TicketsRepository(manager).deleteAll(Criteria.where().startsWith(TicketColumns.TICKET_NO, TICKET_PREFIX));
+    }
+
+}
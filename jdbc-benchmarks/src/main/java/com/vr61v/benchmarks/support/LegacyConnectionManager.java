@@ -0,0 +1,54 @@
+package com.vr61v.benchmarks.support;
+
+import com.vr61v.exceptions.ConnectionException;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.pool.ConnectionFactory;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Copy of the original {@code RepositoryConnectionManager}: a fixed queue of connections
+ * behind {@link Proxy}. Kept only as the baseline for pool benchmarks.
+ */
+public class LegacyConnectionManager implements ConnectionManager {
+
+    private final BlockingQueue<Connection> connections;
+
+    public LegacyConnectionManager(int size, ConnectionFactory factory) {
+        connections = new LinkedBlockingQueue<>(size);
+        for (int i = 0; i < size; ++i) {
+            connections.add(open(factory));
+        }
+    }
+
+    private Connection open(ConnectionFactory factory) {
+        try {
+            Connection connection = factory.open();
+            return (Connection) Proxy.newProxyInstance(
+                    LegacyConnectionManager.class.getClassLoader(),
+                    new Class[] {Connection.class},
+                    ((proxy, method, args) ->
+                            method.getName().equals("close") ?
+                                    connections.add((Connection) proxy) :
+                                    method.invoke(connection, args)
+                    )
+            );
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Connection getConnection() {
+        try {
+            return connections.take();
+        } catch (InterruptedException e) {
+            throw new ConnectionException(e.getMessage());
+        }
+    }
+
+}
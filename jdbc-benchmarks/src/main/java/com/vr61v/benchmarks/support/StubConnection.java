@@ -0,0 +1,65 @@
+package com.vr61v.benchmarks.support;
+
+import com.vr61v.utils.jdbc.DelegatingConnection;
+
+import java.sql.Connection;
+
+/**
+ * Connection without a database behind it, answers only the calls the pool makes.
+ * <p>
+ * Used to measure the borrow/return overhead of the pool itself, without network round trips.
+ */
+public class StubConnection extends DelegatingConnection {
+
+    private boolean autoCommit = true;
+    private boolean closed;
+
+    public StubConnection() {
+        super(null);
+    }
+
+    @Override
+    public boolean getAutoCommit() {
+        return autoCommit;
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public void commit() {}
+
+    @Override
+    public void rollback() {}
+
+    @Override
+    public boolean isValid(int timeout) {
+        return !closed;
+    }
+
+    @Override
+    public int getTransactionIsolation() {
+        return Connection.TRANSACTION_READ_COMMITTED;
+    }
+
+    @Override
+    public String getSchema() {
+        return "public";
+    }
+
+    @Override
+    public void clearWarnings() {}
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.vr61v.benchmarks.support;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result set without a database behind it, returns the given rows of text columns.
+ * <p>
+ * Answers only {@code next}, {@code findColumn}, {@code getString} by index or label and
+ * {@code beforeFirst}, which is enough for row mappers. Calls go through a {@link Proxy},
+ * so every call has the same constant overhead whatever mapper makes it.
+ */
+public final class StubResultSet {
+
+    private StubResultSet() {}
+
+    /**
+     * @param columns column labels, in column order
+     * @param rows    rows of column values
+     * @return result set positioned before the first row
+     */
+    public static ResultSet of(List<String> columns, String[][] rows) {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < columns.size(); ++i) {
+            indexes.put(columns.get(i), i + 1);
+        }
+
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(
+                StubResultSet.class.getClassLoader(),
+                new Class[] {ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++cursor[0] < rows.length;
+                    case "beforeFirst" -> {
+                        cursor[0] = -1;
+                        yield null;
+                    }
+                    case "findColumn" -> indexes.get((String) args[0]);
+                    case "getString" -> rows[cursor[0]][(args[0] instanceof String label ? indexes.get(label) : (int) args[0]) - 1];
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.vr61v.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the column name or the SQL type of a field of a {@link Table} entity.
+ * <p>
+ * By default the column name is the field name in snake case and the type follows the Java type:
+ * <ul>
+ *   <li>{@code String} - text</li>
+ *   <li>{@code Short}, {@code Integer}, {@code Long} - int2, int4, int8</li>
+ *   <li>{@code BigDecimal}, {@code Double}, {@code Boolean} - numeric, float8, bool</li>
+ *   <li>{@code LocalDate}, {@code LocalDateTime}, {@code OffsetDateTime} - date, timestamp, timestamptz</li>
+ *   <li>any other class - jsonb, converted with Jackson</li>
+ * </ul>
+ * A string field can have any type the server can read from text, e.g. {@code bpchar} or {@code point}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    /**
+     * @return the column name, the field name in snake case if empty
+     */
+    String name() default "";
+
+    /**
+     * @return the SQL type of the column, derived from the Java type if empty
+     */
+    String type() default "";
+
+}
@@ -0,0 +1,30 @@
+package com.vr61v.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity class mapped to a table, for which a mapper and a repository are generated
+ * at compile time.
+ * <p>
+ * The entity must have a constructor taking all fields in declaration order and a getter for
+ * every field (e.g. Lombok {@code @Data @AllArgsConstructor}). Every field is a column, at least
+ * one of them must be marked with {@link Id}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Table {
+
+    /**
+     * @return the schema of the table
+     */
+    String schema() default "bookings";
+
+    /**
+     * @return the name of the table
+     */
+    String name();
+
+}
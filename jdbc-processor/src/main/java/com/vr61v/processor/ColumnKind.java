@@ -0,0 +1,88 @@
+package com.vr61v.processor;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Java types supported as columns and how the generated code reads and binds them.
+ */
+enum ColumnKind {
+
+    STRING("java.lang.String", "text", null),
+    SHORT("java.lang.Short", "int2", "SMALLINT"),
+    INTEGER("java.lang.Integer", "int4", "INTEGER"),
+    LONG("java.lang.Long", "int8", "BIGINT"),
+    BIG_DECIMAL("java.math.BigDecimal", "numeric", "NUMERIC"),
+    DOUBLE("java.lang.Double", "float8", "DOUBLE"),
+    BOOLEAN("java.lang.Boolean", "bool", "BOOLEAN"),
+    LOCAL_DATE("java.time.LocalDate", "date", "DATE"),
+    LOCAL_DATE_TIME("java.time.LocalDateTime", "timestamp", "TIMESTAMP"),
+    OFFSET_DATE_TIME("java.time.OffsetDateTime", "timestamptz", "TIMESTAMP_WITH_TIMEZONE"),
+    JSON(null, "jsonb", null);
+
+    /**
+     * SQL types a string is bound to with {@code setString}, other types get {@code Types.OTHER}
+     * so that the server converts the text itself.
+     */
+    private static final Set<String> STRING_TYPES = Set.of("text", "varchar", "bpchar", "char", "character", "character varying");
+
+    private final String javaType;
+    private final String defaultSqlType;
+    private final String jdbcType;
+
+    ColumnKind(String javaType, String defaultSqlType, String jdbcType) {
+        this.javaType = javaType;
+        this.defaultSqlType = defaultSqlType;
+        this.jdbcType = jdbcType;
+    }
+
+    /**
+     * @return the kind of the Java type, {@link #JSON} for any other class
+     */
+    static ColumnKind of(String javaType) {
+        return Arrays.stream(values())
+                .filter(kind -> javaType.equals(kind.javaType))
+                .findFirst()
+                .orElse(JSON);
+    }
+
+    String getDefaultSqlType() {
+        return defaultSqlType;
+    }
+
+    /**
+     * @return expression reading the column at the index of the result set {@code rs}
+     */
+    String read(ColumnModel column, int index) {
+        return switch (this) {
+            case STRING -> "rs.getString(" + index + ")";
+            case JSON -> "JsonColumns.read(rs.getString(" + index + "), " + column.getJavaType() + ".class)";
+            default -> "rs.getObject(" + index + ", " + javaType + ".class)";
+        };
+    }
+
+    /**
+     * @return statement binding the value expression to parameter {@code index++} of {@code statement}
+     */
+    String bind(ColumnModel column, String value) {
+        return switch (this) {
+            case STRING -> STRING_TYPES.contains(column.getSqlType())
+                    ? "statement.setString(index++, " + value + ");"
+                    : "statement.setObject(index++, " + value + ", Types.OTHER);";
+            case JSON -> "statement.setObject(index++, JsonColumns.jsonb(" + value + "));";
+            default -> "statement.setObject(index++, " + value + ", Types." + jdbcType + ");";
+        };
+    }
+
+    /**
+     * @return expression converting the value expression to the text of an array element
+     */
+    String text(String value) {
+        return switch (this) {
+            case STRING -> value;
+            case JSON -> "JsonColumns.write(" + value + ")";
+            default -> "Objects.toString(" + value + ", null)";
+        };
+    }
+
+}
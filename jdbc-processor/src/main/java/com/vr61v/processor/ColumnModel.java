@@ -0,0 +1,62 @@
+package com.vr61v.processor;
+
+/**
+ * Column of a {@code @Table} entity: a field with its column name and SQL type.
+ */
+final class ColumnModel {
+
+    private final String field;
+    private final String name;
+    private final String sqlType;
+    private final String javaType;
+    private final ColumnKind kind;
+    private final boolean id;
+
+    ColumnModel(String field, String name, String sqlType, String javaType, ColumnKind kind, boolean id) {
+        this.field = field;
+        this.name = name;
+        this.sqlType = sqlType;
+        this.javaType = javaType;
+        this.kind = kind;
+        this.id = id;
+    }
+
+    String getField() {
+        return field;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSqlType() {
+        return sqlType;
+    }
+
+    String getJavaType() {
+        return javaType;
+    }
+
+    ColumnKind getKind() {
+        return kind;
+    }
+
+    boolean isId() {
+        return id;
+    }
+
+    /**
+     * @return name of the Lombok-style getter of the field
+     */
+    String getter() {
+        return "get" + Character.toUpperCase(field.charAt(0)) + field.substring(1);
+    }
+
+    /**
+     * @return the parameter cast to the column type, e.g. {@code CAST(? AS bpchar)}
+     */
+    String castParameter() {
+        return "CAST(? AS " + sqlType + ")";
+    }
+
+}
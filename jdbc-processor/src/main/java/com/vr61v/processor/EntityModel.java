@@ -0,0 +1,134 @@
+package com.vr61v.processor;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Table of a {@code @Table} entity read from its source: the columns in field declaration order.
+ */
+final class EntityModel {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final TypeElement element;
+    private final String packageName;
+    private final String simpleName;
+    private final String table;
+    private final List<ColumnModel> columns;
+
+    private EntityModel(TypeElement element, String packageName, String table, List<ColumnModel> columns) {
+        this.element = element;
+        this.packageName = packageName;
+        this.simpleName = element.getSimpleName().toString();
+        this.table = table;
+        this.columns = columns;
+    }
+
+    /**
+     * @throws ProcessingException if the entity can't be mapped
+     */
+    static EntityModel of(TypeElement element) {
+        Table annotation = element.getAnnotation(Table.class);
+        checkIdentifier(annotation.schema(), element);
+        checkIdentifier(annotation.name(), element);
+
+        List<ColumnModel> columns = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            if (field.asType().getKind() != TypeKind.DECLARED) {
+                throw new ProcessingException("Column fields must have a class type, use the boxed type", field);
+            }
+
+            String fieldName = field.getSimpleName().toString();
+            String javaType = field.asType().toString();
+            ColumnKind kind = ColumnKind.of(javaType);
+            Column column = field.getAnnotation(Column.class);
+            String name = column == null || column.name().isEmpty() ? snakeCase(fieldName) : column.name();
+            String sqlType = column == null || column.type().isEmpty() ? kind.getDefaultSqlType() : column.type();
+            checkIdentifier(name, field);
+            if (!sqlType.matches("[a-z][a-z0-9_ ]*(\\([0-9, ]+\\))?")) {
+                throw new ProcessingException("Invalid SQL type '" + sqlType + "'", field);
+            }
+            columns.add(new ColumnModel(fieldName, name, sqlType, javaType, kind, field.getAnnotation(Id.class) != null));
+        }
+
+        if (columns.stream().noneMatch(ColumnModel::isId)) {
+            throw new ProcessingException("Entity must have at least one @Id field", element);
+        }
+
+        PackageElement pkg = (PackageElement) element.getEnclosingElement();
+        return new EntityModel(element, pkg.getQualifiedName().toString(), annotation.schema() + "." + annotation.name(), columns);
+    }
+
+    private static void checkIdentifier(String identifier, Element element) {
+        if (!IDENTIFIER.matcher(identifier).matches()) {
+            throw new ProcessingException("Invalid SQL identifier '" + identifier + "'", element);
+        }
+    }
+
+    static String snakeCase(String name) {
+        StringBuilder result = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                result.append('_').append(Character.toLowerCase(c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    TypeElement getElement() {
+        return element;
+    }
+
+    String getPackageName() {
+        return packageName;
+    }
+
+    String getSimpleName() {
+        return simpleName;
+    }
+
+    String getQualifiedName() {
+        return packageName + "." + simpleName;
+    }
+
+    /**
+     * @return schema-qualified table name
+     */
+    String getTable() {
+        return table;
+    }
+
+    List<ColumnModel> getColumns() {
+        return columns;
+    }
+
+    List<ColumnModel> getIdColumns() {
+        return columns.stream().filter(ColumnModel::isId).toList();
+    }
+
+    List<ColumnModel> getValueColumns() {
+        return columns.stream().filter(column -> !column.isId()).toList();
+    }
+
+    boolean hasCompositeKey() {
+        return getIdColumns().size() > 1;
+    }
+
+}
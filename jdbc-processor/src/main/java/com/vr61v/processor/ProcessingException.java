@@ -0,0 +1,21 @@
+package com.vr61v.processor;
+
+import javax.lang.model.element.Element;
+
+/**
+ * Error in an annotated entity, reported by the processor at the element.
+ */
+final class ProcessingException extends RuntimeException {
+
+    private final transient Element element;
+
+    ProcessingException(String message, Element element) {
+        super(message);
+        this.element = element;
+    }
+
+    Element getElement() {
+        return element;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.vr61v.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Generates a mapper and a repository for every class annotated with {@link com.vr61v.annotations.Table}.
+ * <p>
+ * For an entity {@code Flight} it writes {@code com.vr61v.mappers.FlightMapper}, which reads rows
+ * by column index and binds typed parameters, and {@code com.vr61v.repositories.FlightRepository}
+ * with the SQL of the table. The generated code uses no reflection. Errors in the entities are
+ * reported as compilation errors at the offending element.
+ */
+@SupportedAnnotationTypes("com.vr61v.annotations.Table")
+public class RepositoryProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(java.util.Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWithAny(annotations.toArray(new TypeElement[0]))) {
+            try {
+                if (element.getKind() != ElementKind.CLASS) {
+                    throw new ProcessingException("@Table can only be placed on a class", element);
+                }
+
+                EntityModel entity = EntityModel.of((TypeElement) element);
+                SourceGenerator generator = new SourceGenerator(entity);
+                write(SourceGenerator.MAPPERS_PACKAGE + "." + generator.mapperName(), generator.mapper(), element);
+                write(SourceGenerator.REPOSITORIES_PACKAGE + "." + generator.repositoryName(), generator.repository(), element);
+            } catch (ProcessingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.getElement());
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write generated source: " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void write(String name, String source, Element origin) throws IOException {
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(name, origin);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source);
+        }
+    }
+
+}
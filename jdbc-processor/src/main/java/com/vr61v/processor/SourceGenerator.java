@@ -0,0 +1,220 @@
+package com.vr61v.processor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the sources of the mapper and the repository of an entity.
+ * <p>
+ * The generated classes rely on the runtime of the jdbc module: {@code RowMapper}, {@code Binder}
+ * and {@code JsonColumns} in {@code com.vr61v.mappers}, {@code JdbcRepository} and
+ * {@code TableStatements} in {@code com.vr61v.repositories}.
+ */
+final class SourceGenerator {
+
+    static final String MAPPERS_PACKAGE = "com.vr61v.mappers";
+    static final String REPOSITORIES_PACKAGE = "com.vr61v.repositories";
+
+    private static final String GENERATED = "@Generated(\"" + RepositoryProcessor.class.getName() + "\")";
+
+    private final EntityModel entity;
+
+    SourceGenerator(EntityModel entity) {
+        this.entity = entity;
+    }
+
+    String mapperName() {
+        return entity.getSimpleName() + "Mapper";
+    }
+
+    String repositoryName() {
+        return entity.getSimpleName() + "Repository";
+    }
+
+    /**
+     * @return source of {@code <Entity>Mapper}: reads a row by column index, binds an entity
+     *         as typed parameters or as one text array per column
+     */
+    String mapper() {
+        String type = entity.getSimpleName();
+        List<ColumnModel> columns = entity.getColumns();
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(MAPPERS_PACKAGE).append(";\n\n")
+                .append("import com.fasterxml.jackson.core.JsonProcessingException;\n")
+                .append("import ").append(entity.getQualifiedName()).append(";\n\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import java.sql.Connection;\n")
+                .append("import java.sql.PreparedStatement;\n")
+                .append("import java.sql.ResultSet;\n")
+                .append("import java.sql.SQLException;\n")
+                .append("import java.sql.Types;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Objects;\n\n")
+                .append("/**\n")
+                .append(" * Mapper of {@code ").append(entity.getTable()).append("} rows to {@link ").append(type).append("},\n")
+                .append(" * generated from the entity. Rows are read by index, the columns must be selected in\n")
+                .append(" * {@link #COLUMNS} order.\n")
+                .append(" */\n")
+                .append(GENERATED).append("\n")
+                .append("public class ").append(mapperName())
+                .append(" implements RowMapper<").append(type).append(">, Binder<").append(type).append("> {\n\n")
+                .append("    public static final String COLUMNS = \"").append(columnList(columns)).append("\";\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(type).append(" mapRow(ResultSet rs) throws SQLException, JsonProcessingException {\n")
+                .append("        return new ").append(type).append("(\n");
+        for (int i = 0; i < columns.size(); ++i) {
+            ColumnModel column = columns.get(i);
+            source.append("                ").append(column.getKind().read(column, i + 1))
+                    .append(i + 1 < columns.size() ? ",\n" : "\n");
+        }
+        source.append("        );\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public int bind(PreparedStatement statement, int index, ").append(type).append(" entity) throws SQLException {\n");
+        for (ColumnModel column : columns) {
+            source.append("        ").append(column.getKind().bind(column, "entity." + column.getter() + "()")).append("\n");
+        }
+        source.append("        return index;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public int bindArrays(Connection connection, PreparedStatement statement, int index, List<")
+                .append(type).append("> entities) throws SQLException {\n")
+                .append("        String[][] columns = new String[").append(columns.size()).append("][entities.size()];\n")
+                .append("        for (int row = 0; row < entities.size(); ++row) {\n")
+                .append("            ").append(type).append(" entity = entities.get(row);\n");
+        for (int i = 0; i < columns.size(); ++i) {
+            ColumnModel column = columns.get(i);
+            source.append("            columns[").append(i).append("][row] = ")
+                    .append(column.getKind().text("entity." + column.getter() + "()")).append(";\n");
+        }
+        source.append("        }\n\n")
+                .append("        for (String[] column : columns) {\n")
+                .append("            statement.setArray(index++, connection.createArrayOf(\"text\", column));\n")
+                .append("        }\n")
+                .append("        return index;\n")
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * @return source of {@code <Entity>Repository}: the SQL of the table and the binding of its key
+     */
+    String repository() {
+        String type = entity.getSimpleName();
+        List<ColumnModel> ids = entity.getIdColumns();
+        String keyType = entity.hasCompositeKey() ? repositoryName() + ".Key" : simpleJavaType(ids.get(0));
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(REPOSITORIES_PACKAGE).append(";\n\n")
+                .append("import ").append(entity.getQualifiedName()).append(";\n")
+                .append("import ").append(MAPPERS_PACKAGE).append(".").append(mapperName()).append(";\n")
+                .append("import com.vr61v.utils.ConnectionManager;\n\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import java.sql.PreparedStatement;\n")
+                .append("import java.sql.SQLException;\n")
+                .append("import java.sql.Types;\n\n")
+                .append("/**\n")
+                .append(" * Repository of {@code ").append(entity.getTable()).append("}, generated from {@link ").append(type).append("}.\n")
+                .append(" */\n")
+                .append(GENERATED).append("\n")
+                .append("public class ").append(repositoryName())
+                .append(" extends JdbcRepository<").append(type).append(", ").append(keyType).append("> {\n\n");
+
+        if (entity.hasCompositeKey()) {
+            source.append("    /**\n")
+                    .append("     * Composite key of {@link ").append(type).append("}.\n")
+                    .append("     */\n")
+                    .append("    public record Key(")
+                    .append(ids.stream().map(id -> simpleJavaType(id) + " " + id.getField()).collect(Collectors.joining(", ")))
+                    .append(") {}\n\n");
+        }
+
+        source.append("    private static final ").append(mapperName()).append(" mapper = new ").append(mapperName()).append("();\n\n")
+                .append("    private static final TableStatements statements = TableStatements.builder()\n");
+        statement(source, "insert", insert());
+        statement(source, "insertAll", insertAll());
+        statement(source, "findAll", "SELECT " + columnList(entity.getColumns()) + " FROM " + entity.getTable() + ";");
+        statement(source, "findById", "SELECT " + columnList(entity.getColumns()) + " FROM " + entity.getTable() + keyCondition() + ";");
+        statement(source, "update", update());
+        statement(source, "delete", "DELETE FROM " + entity.getTable() + keyCondition() + ";");
+        statement(source, "count", "SELECT count(*) FROM " + entity.getTable() + ";");
+        statement(source, "exists", "SELECT EXISTS (SELECT 1 FROM " + entity.getTable() + keyCondition() + ");");
+        source.append("            .build();\n\n");
+
+        source.append("    public ").append(repositoryName()).append("(ConnectionManager connectionManager) {\n")
+                .append("        super(connectionManager, statements, mapper, mapper);\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    protected ").append(keyType).append(" keyOf(").append(type).append(" entity) {\n");
+        if (entity.hasCompositeKey()) {
+            source.append("        return new Key(")
+                    .append(ids.stream().map(id -> "entity." + id.getter() + "()").collect(Collectors.joining(", ")))
+                    .append(");\n");
+        } else {
+            source.append("        return entity.").append(ids.get(0).getter()).append("();\n");
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    protected int bindKey(PreparedStatement statement, int index, ").append(keyType).append(" key) throws SQLException {\n");
+        for (ColumnModel id : ids) {
+            String value = entity.hasCompositeKey() ? "key." + id.getField() + "()" : "key";
+            source.append("        ").append(id.getKind().bind(id, value).replace("JsonColumns.", "com.vr61v.mappers.JsonColumns.")).append("\n");
+        }
+        source.append("        return index;\n")
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private String insert() {
+        List<ColumnModel> columns = entity.getColumns();
+        return "INSERT INTO " + entity.getTable() + " (" + columnList(columns) + ") VALUES ("
+                + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ");";
+    }
+
+    private String insertAll() {
+        List<ColumnModel> columns = entity.getColumns();
+        return "INSERT INTO " + entity.getTable() + " (" + columnList(columns) + ") SELECT * FROM unnest("
+                + columns.stream().map(column -> "CAST(? AS " + column.getSqlType() + "[])").collect(Collectors.joining(", ")) + ");";
+    }
+
+    /**
+     * Binds the entity in column order as a VALUES row, so the same binder serves insert and update.
+     */
+    private String update() {
+        List<ColumnModel> columns = entity.getColumns();
+        List<ColumnModel> assigned = entity.getValueColumns().isEmpty() ? entity.getIdColumns() : entity.getValueColumns();
+        return "UPDATE " + entity.getTable() + " AS t SET "
+                + assigned.stream().map(column -> column.getName() + " = u." + column.getName()).collect(Collectors.joining(", "))
+                + " FROM (VALUES (" + columns.stream().map(ColumnModel::castParameter).collect(Collectors.joining(", ")) + "))"
+                + " AS u (" + columnList(columns) + ") WHERE "
+                + entity.getIdColumns().stream().map(id -> "t." + id.getName() + " = u." + id.getName()).collect(Collectors.joining(" AND "))
+                + ";";
+    }
+
+    private String keyCondition() {
+        return " WHERE " + entity.getIdColumns().stream()
+                .map(id -> id.getName() + " = " + id.castParameter())
+                .collect(Collectors.joining(" AND "));
+    }
+
+    private static void statement(StringBuilder source, String name, String sql) {
+        source.append("            .").append(name).append("(\"").append(sql.replace("\"", "\\\"")).append("\")\n");
+    }
+
+    private static String columnList(List<ColumnModel> columns) {
+        return columns.stream().map(ColumnModel::getName).collect(Collectors.joining(", "));
+    }
+
+    private static String simpleJavaType(ColumnModel column) {
+        String type = column.getJavaType();
+        return type.startsWith("java.lang.") ? type.substring("java.lang.".length()) : type;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.vr61v.changes;
+
+import java.util.Map;
+
+/**
+ * Column assignments of a set-based update, the counterpart of {@link com.vr61v.filters.Filter}.
+ */
+public interface Changes {
+
+    /**
+     * @return SQL assignments with one placeholder each (e.g. {@code book_ref = ?}) mapped to their values,
+     *         in a fixed order so that equal sets of assignments produce the same SQL
+     */
+    Map<String, Object> toSetParameters();
+
+}
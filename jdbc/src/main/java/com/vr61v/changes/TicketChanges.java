@@ -0,0 +1,51 @@
+package com.vr61v.changes;
+
+import com.vr61v.entities.ContactData;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.mappers.JsonColumns;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * New values of ticket columns, null fields are left unchanged.
+ * <p>
+ * Assignments are always listed in column order, so the same set of changed columns yields the
+ * same SQL text and reuses the same prepared statement.
+ */
+@Data
+@AllArgsConstructor
+public class TicketChanges implements Changes {
+
+    private final String bookRef;
+    private final String passengerId;
+    private final String passengerName;
+    private final ContactData contactData;
+
+    @Override
+    public Map<String, Object> toSetParameters() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+
+        if (bookRef != null) {
+            parameters.put("book_ref = ?", bookRef);
+        }
+        if (passengerId != null) {
+            parameters.put("passenger_id = ?", passengerId);
+        }
+        if (passengerName != null) {
+            parameters.put("passenger_name = ?", passengerName);
+        }
+        if (contactData != null) {
+            try {
+                parameters.put("contact_data = ?", JsonColumns.jsonb(contactData));
+            } catch (SQLException e) {
+                throw new RepositoryException(e.getMessage());
+            }
+        }
+
+        return parameters;
+    }
+}
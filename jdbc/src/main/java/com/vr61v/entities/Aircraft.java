@@ -0,0 +1,18 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Table(name = "aircrafts_data")
+public class Aircraft {
+    @Id
+    @Column(type = "bpchar")
+    private String aircraftCode;
+    private LocalizedString model;
+    private Integer range;
+}
@@ -0,0 +1,21 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Table(name = "airports_data")
+public class Airport {
+    @Id
+    @Column(type = "bpchar")
+    private String airportCode;
+    private LocalizedString airportName;
+    private LocalizedString city;
+    @Column(type = "point")
+    private String coordinates;
+    private String timezone;
+}
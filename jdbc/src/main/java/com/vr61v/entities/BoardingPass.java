@@ -0,0 +1,21 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Table(name = "boarding_passes")
+public class BoardingPass {
+    @Id
+    @Column(type = "bpchar")
+    private String ticketNo;
+    @Id
+    private Integer flightId;
+    private Integer boardingNo;
+    @Column(type = "varchar")
+    private String seatNo;
+}
@@ -0,0 +1,21 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Data
+@AllArgsConstructor
+@Table(name = "bookings")
+public class Booking {
+    @Id
+    @Column(type = "bpchar")
+    private String bookRef;
+    private OffsetDateTime bookDate;
+    private BigDecimal totalAmount;
+}
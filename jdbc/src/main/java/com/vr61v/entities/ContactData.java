@@ -1,5 +1,6 @@
 package com.vr61v.entities;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,6 +9,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ContactData {
+
+    /** Name of the phone field in the contact_data JSON. */
+    public static final String PHONE = "phone";
+
+    /** Name of the email field in the contact_data JSON. */
+    public static final String EMAIL = "email";
+
+    @JsonProperty(PHONE)
     private String phone;
+    @JsonProperty(EMAIL)
     private String email;
 }
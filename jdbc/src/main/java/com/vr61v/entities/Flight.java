@@ -0,0 +1,31 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+@Data
+@AllArgsConstructor
+@Table(name = "flights")
+public class Flight {
+    @Id
+    private Integer flightId;
+    @Column(type = "bpchar")
+    private String flightNo;
+    private OffsetDateTime scheduledDeparture;
+    private OffsetDateTime scheduledArrival;
+    @Column(type = "bpchar")
+    private String departureAirport;
+    @Column(type = "bpchar")
+    private String arrivalAirport;
+    @Column(type = "varchar")
+    private String status;
+    @Column(type = "bpchar")
+    private String aircraftCode;
+    private OffsetDateTime actualDeparture;
+    private OffsetDateTime actualArrival;
+}
@@ -0,0 +1,13 @@
+package com.vr61v.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocalizedString {
+    private String en;
+    private String ru;
+}
@@ -0,0 +1,21 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Table(name = "seats")
+public class Seat {
+    @Id
+    @Column(type = "bpchar")
+    private String aircraftCode;
+    @Id
+    @Column(type = "varchar")
+    private String seatNo;
+    @Column(type = "varchar")
+    private String fareConditions;
+}
@@ -0,0 +1,23 @@
+package com.vr61v.entities;
+
+import com.vr61v.annotations.Column;
+import com.vr61v.annotations.Id;
+import com.vr61v.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@Table(name = "ticket_flights")
+public class TicketFlight {
+    @Id
+    @Column(type = "bpchar")
+    private String ticketNo;
+    @Id
+    private Integer flightId;
+    @Column(type = "varchar")
+    private String fareConditions;
+    private BigDecimal amount;
+}
@@ -4,4 +4,8 @@ public class ConnectionException extends RuntimeException {
     public ConnectionException(String message) {
         super(message);
     }
+
+    public ConnectionException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
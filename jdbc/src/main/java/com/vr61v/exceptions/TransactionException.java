@@ -0,0 +1,11 @@
+package com.vr61v.exceptions;
+
+public class TransactionException extends RuntimeException {
+    public TransactionException(String message) {
+        super(message);
+    }
+
+    public TransactionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
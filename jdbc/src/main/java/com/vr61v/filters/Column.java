@@ -0,0 +1,89 @@
+package com.vr61v.filters;
+
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Column of a table that {@link Criteria} can filter and order by.
+ * <p>
+ * The SQL type is used to cast the parameters, so a comparison with a {@code char(n)} column
+ * is done in {@code bpchar} and can use the index of the column, instead of converting every
+ * row to {@code text}. Values of the column are converted to their bind values by the binder,
+ * e.g. objects of a {@code jsonb} column to their JSON text, and read back by the decoder.
+ *
+ * @param <V> Java type of the column values
+ * @see TicketColumns
+ */
+public final class Column<V> {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final String name;
+    private final String sqlType;
+    private final Function<V, String> binder;
+    private final Function<String, V> decoder;
+
+    private Column(String name, String sqlType, Function<V, String> binder, Function<String, V> decoder) {
+        this.name = name;
+        this.sqlType = sqlType;
+        this.binder = binder;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Creates a column of text values bound as they are.
+     *
+     * @param name    the column name, a lowercase SQL identifier
+     * @param sqlType the type parameters are cast to, a lowercase SQL identifier
+     * @throws IllegalArgumentException if name or sqlType is not a lowercase SQL identifier
+     */
+    public static Column<String> of(String name, String sqlType) {
+        return of(name, sqlType, Function.identity(), Function.identity());
+    }
+
+    /**
+     * Creates a column whose values are converted to text with the binder and back with the decoder.
+     *
+     * @param name    the column name, a lowercase SQL identifier
+     * @param sqlType the type parameters are cast to, a lowercase SQL identifier
+     * @param binder  converts a value to the text bound as parameter
+     * @param decoder converts the text of the column read from a result set to a value
+     * @throws IllegalArgumentException if name or sqlType is not a lowercase SQL identifier
+     */
+    public static <V> Column<V> of(String name, String sqlType, Function<V, String> binder, Function<String, V> decoder) {
+        // Names end up in the SQL text, so only plain identifiers are accepted
+        if (name == null || !IDENTIFIER.matcher(name).matches() || sqlType == null || !IDENTIFIER.matcher(sqlType).matches()) {
+            throw new IllegalArgumentException("Column name and type must be lowercase SQL identifiers");
+        }
+        return new Column<>(name, sqlType, binder, decoder);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * @return text bound as parameter for the value
+     */
+    public String bind(V value) {
+        return binder.apply(value);
+    }
+
+    /**
+     * @param text text of the column read from a result set, may be null
+     * @return value of the text, null for SQL NULL
+     */
+    public V decode(String text) {
+        return text == null ? null : decoder.apply(text);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
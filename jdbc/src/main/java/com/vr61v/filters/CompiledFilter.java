@@ -0,0 +1,36 @@
+package com.vr61v.filters;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * {@link Filter} translated to SQL by {@link FilterCompiler}.
+ * <p>
+ * Filters of the same shape share the condition list and the clauses
+ * (same String instances), only the values differ.
+ */
+@Getter
+@AllArgsConstructor
+public class CompiledFilter {
+
+    /** Conditions in canonical (alphabetical) order, unmodifiable. */
+    private final List<String> conditions;
+
+    /**
+     * Conditions joined into {@code " WHERE a AND b;"}, to be appended to a SELECT, UPDATE or DELETE.
+     * Just {@code ";"} for a filter without conditions.
+     */
+    private final String whereClause;
+
+    /** Values of the placeholders in the order of {@link #getConditions()}. */
+    private final List<Object> values;
+
+    /** WHERE clause with the order and the limit of the filter, to be appended to a SELECT. */
+    private final String queryClause;
+
+    /** Values of the placeholders of {@link #getQueryClause()}. */
+    private final List<Object> queryValues;
+
+}
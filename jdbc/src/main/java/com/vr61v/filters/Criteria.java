@@ -0,0 +1,195 @@
+package com.vr61v.filters;
+
+import java.util.*;
+
+/**
+ * Typed search criteria: conditions on {@link Column}s, order and limit.
+ * <p>
+ * Conditions are combined with AND and written so that the server can use the index of
+ * the column: parameters are cast to the column type, IN lists are bound as one array
+ * ({@code = ANY}), so the SQL text doesn't depend on the list length, and prefix searches
+ * are prefix LIKE patterns, see {@link #startsWith(Column, String)}.
+ * <pre>{@code
+ * Criteria criteria = Criteria.where()
+ *         .eq(TicketColumns.BOOK_REF, "000000")
+ *         .startsWith(TicketColumns.PASSENGER_NAME, "IVAN")
+ *         .orderByDesc(TicketColumns.TICKET_NO)
+ *         .limit(100);
+ * }</pre>
+ * Criteria are a {@link Filter}, so they are accepted wherever a filter is. Order and limit are
+ * applied by {@code findAll(Filter)} and {@code streamAll(Filter)}; updates and deletes use only
+ * the conditions, keyset pages are always ordered by the identifier.
+ * <p>
+ * A column can have one condition per operator, e.g. one {@code eq} and one {@code in}. Criteria
+ * are mutable and not thread-safe.
+ */
+public class Criteria implements Filter {
+
+    private final Map<String, Object> conditions = new LinkedHashMap<>();
+    private final List<String> orderBy = new ArrayList<>();
+    private Integer limit;
+
+    /**
+     * @return empty criteria to add conditions to
+     */
+    public static Criteria where() {
+        return new Criteria();
+    }
+
+    /** Column equals the value. */
+    public <V> Criteria eq(Column<V> column, V value) {
+        return compare(column, "=", value);
+    }
+
+    /** Column is one of the values, bound as a single array parameter. */
+    public <V> Criteria in(Column<V> column, Collection<V> values) {
+        if (values == null || values.isEmpty() || values.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Values cannot be null, contain null or be empty");
+        }
+        String[] array = values.stream().map(column::bind).toArray(String[]::new);
+        return add(column.getName() + " = ANY (CAST(? AS " + column.getSqlType() + "[]))", array);
+    }
+
+    /** Column is greater than the value. */
+    public <V> Criteria greaterThan(Column<V> column, V value) {
+        return compare(column, ">", value);
+    }
+
+    /** Column is greater than or equal to the value. */
+    public <V> Criteria greaterOrEqual(Column<V> column, V value) {
+        return compare(column, ">=", value);
+    }
+
+    /** Column is less than the value. */
+    public <V> Criteria lessThan(Column<V> column, V value) {
+        return compare(column, "<", value);
+    }
+
+    /** Column is less than or equal to the value. */
+    public <V> Criteria lessOrEqual(Column<V> column, V value) {
+        return compare(column, "<=", value);
+    }
+
+    /** Column is between the values, both inclusive. */
+    public <V> Criteria between(Column<V> column, V from, V to) {
+        return greaterOrEqual(column, from).lessOrEqual(column, to);
+    }
+
+    /**
+     * Column starts with the prefix: {@code column LIKE 'prefix%'}, the wildcards in the prefix
+     * are escaped.
+     * <p>
+     * The planner turns the prefix of the bound pattern into an index range, but in a database
+     * with a linguistic collation only over an index with the pattern operator class, e.g.
+     * {@code CREATE INDEX ON bookings.tickets (passenger_name text_pattern_ops)} or
+     * {@code varchar_pattern_ops} / {@code bpchar_pattern_ops} for the other string types.
+     * Such an index doesn't serve ordinary comparisons and ORDER BY, which need a default one.
+     *
+     * @throws IllegalArgumentException if prefix is null or empty
+     */
+    public Criteria startsWith(Column<String> column, String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Prefix cannot be null or empty");
+        }
+        return add(column.getName() + " LIKE ?", escapeLike(prefix) + "%");
+    }
+
+    /**
+     * Column matches the LIKE pattern. Patterns without wildcards become {@link #eq(Column, Object)}
+     * and patterns with a single trailing {@code %} become {@link #startsWith(Column, String)},
+     * so they can use an index.
+     *
+     * @throws IllegalArgumentException if pattern is null
+     */
+    public Criteria like(Column<String> column, String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Pattern cannot be null");
+        }
+
+        String body = pattern.endsWith("%") ? pattern.substring(0, pattern.length() - 1) : pattern;
+        boolean plain = body.chars().noneMatch(c -> c == '%' || c == '_' || c == '\\');
+        if (plain && body.length() == pattern.length()) {
+            return eq(column, pattern);
+        }
+        if (plain && !body.isEmpty()) {
+            return startsWith(column, body);
+        }
+        return add(column.getName() + " LIKE ?", pattern);
+    }
+
+    /** Column (jsonb) contains the value, e.g. a JSON object with a subset of the keys. */
+    public <V> Criteria contains(Column<V> column, V value) {
+        return compare(column, "@>", value);
+    }
+
+    /**
+     * Keyset cursor: continues after the given key of the column in ascending order.
+     * Adds {@code column > key} and orders by the column if it is not ordered yet.
+     */
+    public <V> Criteria after(Column<V> column, V key) {
+        greaterThan(column, key);
+        if (orderBy.stream().noneMatch(order -> order.startsWith(column.getName() + " "))) {
+            orderByAsc(column);
+        }
+        return this;
+    }
+
+    /** Orders by the column ascending, after the previously added orders. */
+    public Criteria orderByAsc(Column<?> column) {
+        orderBy.add(column.getName() + " ASC");
+        return this;
+    }
+
+    /** Orders by the column descending, after the previously added orders. */
+    public Criteria orderByDesc(Column<?> column) {
+        orderBy.add(column.getName() + " DESC");
+        return this;
+    }
+
+    /**
+     * Limits the number of returned rows.
+     *
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public Criteria limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    @Override
+    public Map<String, Object> toWhereParameters() {
+        return new LinkedHashMap<>(conditions);
+    }
+
+    @Override
+    public List<String> toOrderBy() {
+        return List.copyOf(orderBy);
+    }
+
+    @Override
+    public Integer getLimit() {
+        return limit;
+    }
+
+    private <V> Criteria compare(Column<V> column, String operator, V value) {
+        if (column == null || value == null) {
+            throw new IllegalArgumentException("Column and value cannot be null");
+        }
+        return add(column.getName() + " " + operator + " CAST(? AS " + column.getSqlType() + ")", column.bind(value));
+    }
+
+    private Criteria add(String condition, Object value) {
+        if (conditions.putIfAbsent(condition, value) != null) {
+            throw new IllegalArgumentException("Condition '" + condition + "' is already set");
+        }
+        return this;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+}
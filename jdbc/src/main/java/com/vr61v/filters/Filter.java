@@ -1,9 +1,24 @@
 package com.vr61v.filters;
 
+import java.util.List;
 import java.util.Map;
 
 public interface Filter {
 
     Map<String, Object> toWhereParameters();
 
+    /**
+     * @return columns with direction (e.g. {@code ticket_no DESC}) to order the found rows by, empty for no order
+     */
+    default List<String> toOrderBy() {
+        return List.of();
+    }
+
+    /**
+     * @return maximum number of found rows, null for no limit
+     */
+    default Integer getLimit() {
+        return null;
+    }
+
 }
@@ -0,0 +1,126 @@
+package com.vr61v.filters;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Translates filters to SQL in a canonical form.
+ * <p>
+ * {@link Filter#toWhereParameters()} returns the conditions in no particular order, so the same
+ * logical filter could produce different SQL texts, each of them prepared and planned separately
+ * by the server and the statement cache. The compiler orders the conditions alphabetically, so a
+ * filter shape (the set of its conditions, its order and whether it has a limit) always produces
+ * the same text. The ordered conditions and the clauses are built once per shape and cached,
+ * a repeated shape costs only a map lookup.
+ * <p>
+ * The compiler is thread-safe. At most {@code maxShapes} shapes are cached, filters of further
+ * shapes are compiled on every call.
+ */
+public class FilterCompiler {
+
+    /** Number of filter shapes cached by default. */
+    public static final int DEFAULT_MAX_SHAPES = 1024;
+
+    private final int maxShapes;
+    private final Map<ShapeKey, Shape> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * What the SQL of a filter depends on. Condition sets are equal regardless of
+     * their iteration order, so the shape is found without sorting.
+     */
+    private record ShapeKey(Set<String> conditions, List<String> orderBy, boolean limited) {}
+
+    /**
+     * Conditions and clauses of one filter shape.
+     */
+    private record Shape(List<String> conditions, String whereClause, String queryClause) {}
+
+    public FilterCompiler() {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    /**
+     * @param maxShapes the number of filter shapes to cache, must not be negative
+     * @throws IllegalArgumentException if maxShapes is negative
+     */
+    public FilterCompiler(int maxShapes) {
+        if (maxShapes < 0) {
+            throw new IllegalArgumentException("Max shapes cannot be negative");
+        }
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Compiles the filter.
+     * <p>
+     * A filter without conditions produces clauses without WHERE, e.g. a query with only
+     * an order and a limit. Statements that must not apply to every row, such as
+     * UPDATE or DELETE, should use {@link #compileNonEmpty(Filter)} instead.
+     * Order and limit of the filter are applied only by the query clause.
+     *
+     * @param filter the filter to compile, must not be null
+     * @return conditions, WHERE clause and values of the filter
+     * @throws IllegalArgumentException if filter is null
+     */
+    public CompiledFilter compile(Filter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+
+        Map<String, Object> parameters = filter.toWhereParameters();
+        Integer limit = filter.getLimit();
+        ShapeKey key = new ShapeKey(parameters.keySet(), filter.toOrderBy(), limit != null);
+        Shape shape = shapes.get(key);
+        if (shape == null) {
+            shape = compileShape(key);
+            if (shapes.size() < maxShapes) {
+                shapes.putIfAbsent(new ShapeKey(Set.copyOf(key.conditions()), List.copyOf(key.orderBy()), key.limited()), shape);
+            }
+        }
+
+        List<Object> values = new ArrayList<>(shape.conditions().size());
+        for (String condition : shape.conditions()) {
+            values.add(parameters.get(condition));
+        }
+        List<Object> queryValues = values;
+        if (limit != null) {
+            queryValues = new ArrayList<>(values);
+            queryValues.add(limit);
+        }
+        return new CompiledFilter(shape.conditions(), shape.whereClause(), values, shape.queryClause(), queryValues);
+    }
+
+    /**
+     * Compiles the filter of a statement that must not apply to every row, see {@link #compile(Filter)}.
+     * A filter without conditions is rejected, so e.g. a DELETE never clears the whole table by accident.
+     *
+     * @param filter the filter to compile, must not be null or empty
+     * @return conditions, WHERE clause and values of the filter
+     * @throws IllegalArgumentException if filter is null or has no conditions
+     */
+    public CompiledFilter compileNonEmpty(Filter filter) {
+        CompiledFilter compiled = compile(filter);
+        if (compiled.getConditions().isEmpty()) {
+            throw new IllegalArgumentException("Filter must have at least one condition");
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the number of cached filter shapes
+     */
+    public int getCachedShapes() {
+        return shapes.size();
+    }
+
+    private static Shape compileShape(ShapeKey key) {
+        List<String> ordered = key.conditions().stream().sorted().toList();
+        String where = ordered.isEmpty() ? "" : " WHERE " + String.join(" AND ", ordered);
+        String query = where
+                + (key.orderBy().isEmpty() ? "" : " ORDER BY " + String.join(", ", key.orderBy()))
+                + (key.limited() ? " LIMIT ?" : "")
+                + ";";
+        return new Shape(ordered, where + ";", query);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.vr61v.filters;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vr61v.entities.ContactData;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.mappers.JsonColumns;
+
+import java.sql.SQLException;
+
+/**
+ * Columns of {@code bookings.tickets} for {@link Criteria}.
+ */
+public final class TicketColumns {
+
+    /** Primary key, {@code char(13)}. */
+    public static final Column<String> TICKET_NO = Column.of("ticket_no", "bpchar");
+
+    /** Booking reference, {@code char(6)}. */
+    public static final Column<String> BOOK_REF = Column.of("book_ref", "bpchar");
+
+    /** Passenger document number, {@code varchar(20)}. */
+    public static final Column<String> PASSENGER_ID = Column.of("passenger_id", "varchar");
+
+    /** Passenger name, {@code text}. */
+    public static final Column<String> PASSENGER_NAME = Column.of("passenger_name", "text");
+
+    /** Contact data, {@code jsonb}, converted by {@link JsonColumns}. */
+    public static final Column<ContactData> CONTACT_DATA = Column.of("contact_data", "jsonb", TicketColumns::toJson, TicketColumns::fromJson);
+
+    private TicketColumns() {
+    }
+
+    private static String toJson(ContactData contactData) {
+        try {
+            return JsonColumns.write(contactData);
+        } catch (SQLException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static ContactData fromJson(String json) {
+        try {
+            return JsonColumns.read(json, ContactData.class);
+        } catch (JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+}
@@ -1,46 +1,50 @@
 package com.vr61v.filters;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vr61v.entities.ContactData;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Filter of tickets by LIKE patterns of their columns and by contact data containment.
+ * <p>
+ * Adapter over {@link Criteria}: patterns without wildcards become equality and patterns
+ * with a trailing {@code %} become prefix searches, see {@link Criteria#startsWith(Column, String)}.
+ */
 @Data
 @AllArgsConstructor
 public class TicketFilter implements Filter {
 
-    private final static ObjectMapper mapper = new ObjectMapper();
-
     private final String bookRef;
     private final String passengerId;
     private final String passengerName;
     private final ContactData contactData;
 
-    @Override
-    public Map<String, Object> toWhereParameters() {
-        Map<String, Object> parameters = new HashMap<>();
+    /**
+     * @return criteria with the conditions of the non-null fields
+     */
+    public Criteria toCriteria() {
+        Criteria criteria = Criteria.where();
 
         if (bookRef != null) {
-            parameters.put("book_ref LIKE ?", bookRef);
+            criteria.like(TicketColumns.BOOK_REF, bookRef);
         }
         if (passengerId != null) {
-            parameters.put("passenger_id LIKE ?", passengerId);
+            criteria.like(TicketColumns.PASSENGER_ID, passengerId);
         }
         if (passengerName != null) {
-            parameters.put("passenger_name LIKE ?", passengerName);
+            criteria.like(TicketColumns.PASSENGER_NAME, passengerName);
         }
         if (contactData != null) {
-            try {
-                parameters.put("contact_data @> (to_jsonb(?::json))", mapper.writeValueAsString(contactData));
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException(e);
-            }
+            criteria.contains(TicketColumns.CONTACT_DATA, contactData);
         }
 
-        return parameters;
+        return criteria;
+    }
+
+    @Override
+    public Map<String, Object> toWhereParameters() {
+        return toCriteria().toWhereParameters();
     }
 }
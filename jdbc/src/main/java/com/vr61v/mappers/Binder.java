@@ -0,0 +1,43 @@
+package com.vr61v.mappers;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Writes the column values of entities straight into the parameters of a {@link PreparedStatement}.
+ * <p>
+ * Unlike {@link Mapper#mapToColumns(Object)} the values keep their types (e.g. JSON is bound as
+ * {@code jsonb}) and no intermediate list of strings is built, so a batch can be bound entity by
+ * entity while it is being sent.
+ *
+ * @param <T> the type of entity this binder handles
+ */
+public interface Binder<T> {
+
+    /**
+     * Binds the columns of the entity as consecutive parameters, in column order.
+     *
+     * @param statement the statement to bind to
+     * @param index     index of the first parameter to bind, 1-based
+     * @param entity    the entity to bind
+     * @return index of the parameter following the last bound one
+     * @throws SQLException if a parameter cannot be bound or a value cannot be converted
+     */
+    int bind(PreparedStatement statement, int index, T entity) throws SQLException;
+
+    /**
+     * Binds the columns of the entities as one array parameter per column, in column order,
+     * e.g. for {@code unnest(?, ?, ...)}.
+     *
+     * @param connection the connection used to create the arrays
+     * @param statement  the statement to bind to
+     * @param index      index of the first parameter to bind, 1-based
+     * @param entities   the entities to bind
+     * @return index of the parameter following the last bound one
+     * @throws SQLException if a parameter cannot be bound or a value cannot be converted
+     */
+    int bindArrays(Connection connection, PreparedStatement statement, int index, List<T> entities) throws SQLException;
+
+}
@@ -0,0 +1,62 @@
+package com.vr61v.mappers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.util.PGobject;
+
+import java.sql.SQLException;
+
+/**
+ * Conversion of jsonb columns used by {@link TicketMapper}, the generated mappers and the columns of criteria.
+ * <p>
+ * SQL NULL is mapped to null and back, JSON values go through one shared {@link ObjectMapper}.
+ */
+public final class JsonColumns {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JsonColumns() {}
+
+    /**
+     * @param json the column text, may be null
+     * @param type the class of the value
+     * @return the parsed value or null
+     * @throws JsonProcessingException if the text can't be read as the class
+     */
+    public static <V> V read(String json, Class<V> type) throws JsonProcessingException {
+        return json == null ? null : objectMapper.readValue(json, type);
+    }
+
+    /**
+     * @param value the value, may be null
+     * @return JSON text of the value or null
+     * @throws SQLException if the value can't be written as JSON
+     */
+    public static String write(Object value) throws SQLException {
+        try {
+            return writeJson(value);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Cannot convert " + value.getClass().getSimpleName() + " to JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Same as {@link #write(Object)}, for callers declaring Jackson's exception, see {@link Mapper#mapToColumns(Object)}.
+     */
+    static String writeJson(Object value) throws JsonProcessingException {
+        return value == null ? null : objectMapper.writeValueAsString(value);
+    }
+
+    /**
+     * @param value the value, may be null
+     * @return parameter of type jsonb holding the value, SQL NULL for null
+     * @throws SQLException if the value can't be written as JSON
+     */
+    public static PGobject jsonb(Object value) throws SQLException {
+        PGobject jsonb = new PGobject();
+        jsonb.setType("jsonb");
+        jsonb.setValue(write(value));
+        return jsonb;
+    }
+
+}
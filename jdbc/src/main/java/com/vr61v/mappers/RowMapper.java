@@ -0,0 +1,24 @@
+package com.vr61v.mappers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object, e.g. {@code mapper::mapToEntity}.
+ *
+ * @param <T> the type of the mapped object
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * @param rs the ResultSet positioned at the row to map, the cursor must not be moved
+     * @return the mapped object
+     * @throws SQLException if a database access error occurs
+     * @throws JsonProcessingException if there's an error processing JSON data during mapping
+     */
+    T mapRow(ResultSet rs) throws SQLException, JsonProcessingException;
+
+}
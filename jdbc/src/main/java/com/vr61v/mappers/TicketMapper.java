@@ -1,32 +1,36 @@
 package com.vr61v.mappers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vr61v.entities.ContactData;
 import com.vr61v.entities.Ticket;
 
+import org.postgresql.util.PGobject;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * Implementation of {@link Mapper} interface for {@link Ticket} entities.
+ * Implementation of {@link Mapper} and {@link Binder} interfaces for {@link Ticket} entities.
  * Handles conversion between:
  * <ul>
  *   <li>Database records and {@link Ticket} objects</li>
  *   <li>{@link Ticket} objects and database column values</li>
+ *   <li>{@link Ticket} objects and statement parameters</li>
  * </ul>
  *
  * <p>Specifically handles JSON serialization/deserialization of {@link ContactData} field
- * using Jackson's {@link ObjectMapper}.
+ * through {@link JsonColumns}, like the generated mappers; null contact data is SQL NULL.
  *
  * @see Mapper
+ * @see Binder
  * @see Ticket
  * @see ContactData
  */
-public class TicketMapper implements Mapper<Ticket> {
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+public class TicketMapper implements Mapper<Ticket>, Binder<Ticket> {
 
     /**
      * {@inheritDoc}
@@ -41,10 +45,7 @@ public class TicketMapper implements Mapper<Ticket> {
      */
     @Override
     public Ticket mapToEntity(ResultSet result) throws SQLException, JsonProcessingException {
-            ContactData contactData = objectMapper.readValue(
-                    result.getString("contact_data"),
-                    ContactData.class
-            );
+            ContactData contactData = JsonColumns.read(result.getString("contact_data"), ContactData.class);
 
             return new Ticket(
                     result.getString("ticket_no"),
@@ -55,6 +56,17 @@ public class TicketMapper implements Mapper<Ticket> {
             );
     }
 
+    /**
+     * Creates a decoder of ticket rows which resolves the column indexes once per result set and
+     * parses contact_data with a streaming parser, for loops over many rows.
+     *
+     * @return new decoder, to be used for one query at a time
+     * @see TicketRowDecoder
+     */
+    public RowMapper<Ticket> rowDecoder() {
+        return new TicketRowDecoder();
+    }
+
     /**
      * {@inheritDoc}
      * <p>Column value order for Ticket:
@@ -63,17 +75,56 @@ public class TicketMapper implements Mapper<Ticket> {
      *   <li>book_ref</li>
      *   <li>passenger_id</li>
      *   <li>passenger_name</li>
-     *   <li>contact_data (as JSON string)</li>
+     *   <li>contact_data (as JSON string, null for null contact data)</li>
      * </ol>
      */
     @Override
     public List<String> mapToColumns(Ticket entity) throws JsonProcessingException {
-        return List.of(
+        return Arrays.asList(
                 entity.getTicketNo(),
                 entity.getBookRef(),
                 entity.getPassengerId(),
                 entity.getPassengerName(),
-                objectMapper.writeValueAsString(entity.getContactData())
+                JsonColumns.writeJson(entity.getContactData())
         );
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>Binds ticket_no, book_ref, passenger_id, passenger_name as strings and contact_data
+     * as a {@code jsonb} {@link PGobject}, so the query needs no casts of the JSON text.
+     */
+    @Override
+    public int bind(PreparedStatement statement, int index, Ticket entity) throws SQLException {
+        statement.setString(index++, entity.getTicketNo());
+        statement.setString(index++, entity.getBookRef());
+        statement.setString(index++, entity.getPassengerId());
+        statement.setString(index++, entity.getPassengerName());
+        statement.setObject(index++, JsonColumns.jsonb(entity.getContactData()));
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Binds five {@code text[]} arrays, contact_data as JSON text, the query casts them to
+     * the column types.
+     */
+    @Override
+    public int bindArrays(Connection connection, PreparedStatement statement, int index, List<Ticket> entities) throws SQLException {
+        String[][] columns = new String[5][entities.size()];
+        for (int row = 0; row < entities.size(); ++row) {
+            Ticket ticket = entities.get(row);
+            columns[0][row] = ticket.getTicketNo();
+            columns[1][row] = ticket.getBookRef();
+            columns[2][row] = ticket.getPassengerId();
+            columns[3][row] = ticket.getPassengerName();
+            columns[4][row] = JsonColumns.write(ticket.getContactData());
+        }
+
+        for (String[] column : columns) {
+            statement.setArray(index++, connection.createArrayOf("text", column));
+        }
+        return index;
+    }
+
 }
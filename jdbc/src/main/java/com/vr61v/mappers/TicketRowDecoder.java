@@ -0,0 +1,116 @@
+package com.vr61v.mappers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.vr61v.entities.ContactData;
+import com.vr61v.entities.Ticket;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Allocation-light {@link RowMapper} of ticket rows for large scans.
+ * <p>
+ * Differs from {@link TicketMapper#mapToEntity(ResultSet)} in two ways:
+ * <ul>
+ *   <li>column indexes are looked up by name once per {@link ResultSet}, not for every row</li>
+ *   <li>contact_data is read with a streaming {@link JsonParser} directly into {@link ContactData},
+ *       without the data-binding layer of {@code ObjectMapper}</li>
+ * </ul>
+ * Contact data is accepted and rejected like by the {@code ObjectMapper} of {@link TicketMapper}:
+ * unknown fields and non-scalar values of known fields fail the row.
+ * A decoder keeps the indexes of the last result set it has seen, so it is meant to be used by
+ * one thread for one query, e.g. {@code RowMapper<Ticket> decoder = mapper.rowDecoder()} before
+ * the {@code while (result.next())} loop.
+ *
+ * @see TicketMapper#rowDecoder()
+ */
+public class TicketRowDecoder implements RowMapper<Ticket> {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private ResultSet resolvedFor;
+    private int ticketNo;
+    private int bookRef;
+    private int passengerId;
+    private int passengerName;
+    private int contactData;
+
+    @Override
+    public Ticket mapRow(ResultSet rs) throws SQLException, JsonProcessingException {
+        if (rs != resolvedFor) {
+            ticketNo = rs.findColumn("ticket_no");
+            bookRef = rs.findColumn("book_ref");
+            passengerId = rs.findColumn("passenger_id");
+            passengerName = rs.findColumn("passenger_name");
+            contactData = rs.findColumn("contact_data");
+            resolvedFor = rs;
+        }
+
+        return new Ticket(
+                rs.getString(ticketNo),
+                rs.getString(bookRef),
+                rs.getString(passengerId),
+                rs.getString(passengerName),
+                parseContactData(rs.getString(contactData))
+        );
+    }
+
+    /**
+     * Reads a {@code {"phone": ..., "email": ...}} object, null for SQL NULL or JSON null.
+     *
+     * @throws JsonProcessingException if the text is not a JSON object, has a field other than
+     *                                 {@link ContactData#PHONE} and {@link ContactData#EMAIL}
+     *                                 or an object or array as the value of one of them
+     */
+    static ContactData parseContactData(String json) throws JsonProcessingException {
+        if (json == null) {
+            return null;
+        }
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected contact data object, got " + token);
+            }
+
+            ContactData result = new ContactData();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (!ContactData.PHONE.equals(field) && !ContactData.EMAIL.equals(field)) {
+                    throw UnrecognizedPropertyException.from(parser, ContactData.class, field,
+                            List.<Object>of(ContactData.PHONE, ContactData.EMAIL));
+                }
+                token = parser.nextToken();
+                if (token.isStructStart()) {
+                    throw MismatchedInputException.from(parser, String.class,
+                            "Expected a scalar value of contact data field '" + field + "', got " + token);
+                }
+
+                String value = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                if (ContactData.PHONE.equals(field)) {
+                    result.setPhone(value);
+                } else {
+                    result.setEmail(value);
+                }
+            }
+            return result;
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+package com.vr61v.repositories;
+
+import com.vr61v.changes.Changes;
+import com.vr61v.filters.Filter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous facade of a {@link Repository}.
+ * <p>
+ * Every operation runs on the executor of the facade and returns a {@link CompletableFuture},
+ * so the caller can overlap independent lookups instead of waiting for every round trip in turn.
+ * Failures of the repository (e.g. {@code RepositoryException}) complete the future exceptionally.
+ * <p>
+ * The executor is either supplied by the caller or created by one of the factories:
+ * <ul>
+ *   <li>{@link #withBoundedExecutor(Repository, int, int)} - fixed number of platform threads
+ *       with a bounded queue; when the queue is full the caller runs the operation itself,
+ *       which slows down producers instead of failing them</li>
+ *   <li>{@link #withVirtualThreads(Repository, int)} - a virtual thread per operation, at most
+ *       {@code maxConcurrency} of them use the repository at once. Virtual threads are looked up
+ *       reflectively, on runtimes without them the bounded executor is used instead</li>
+ * </ul>
+ * The number of threads should not exceed the connections of the pool: extra threads only wait
+ * for a connection. Operations submitted after {@link #close()} are not run, their futures complete
+ * exceptionally with a {@link RejectedExecutionException}.
+ *
+ * @param <T> the type of entities of the repository
+ */
+public class AsyncRepository<T> implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(AsyncRepository.class.getName());
+
+    /**
+     * Number of identifiers looked up by one task of {@link #findAllByIdAsync(List)}.
+     */
+    public static final int DEFAULT_ID_CHUNK_SIZE = 500;
+
+    private final Repository<T> repository;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean ownsExecutor;
+
+    /**
+     * Creates a facade running the operations on the caller's executor, which stays open on {@link #close()}.
+     *
+     * @param repository the repository to delegate to
+     * @param executor   the executor to run the operations on
+     * @throws IllegalArgumentException if repository or executor is null
+     */
+    public AsyncRepository(Repository<T> repository, ExecutorService executor) {
+        this(repository, executor, null, false);
+    }
+
+    private AsyncRepository(Repository<T> repository, ExecutorService executor, Semaphore permits, boolean ownsExecutor) {
+        if (repository == null || executor == null) {
+            throw new IllegalArgumentException("Repository and executor cannot be null");
+        }
+        this.repository = repository;
+        this.executor = executor;
+        this.permits = permits;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Creates a facade with its own executor of platform threads.
+     *
+     * @param repository    the repository to delegate to
+     * @param threads       the number of threads, must be positive
+     * @param queueCapacity the number of operations waiting for a thread, must be positive
+     * @return facade that shuts its executor down on {@link #close()}
+     * @throws IllegalArgumentException if threads or queueCapacity is not positive
+     */
+    public static <T> AsyncRepository<T> withBoundedExecutor(Repository<T> repository, int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "async-repository-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                AsyncRepository::runInCaller
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return new AsyncRepository<>(repository, executor, null, true);
+    }
+
+    /**
+     * Rejection policy of the bounded executor: runs the operation in the caller while the
+     * executor is open. Unlike {@link ThreadPoolExecutor.CallerRunsPolicy}, which silently drops
+     * the operation once the executor is shut down and leaves its future incomplete, rejects it then.
+     */
+    private static void runInCaller(Runnable runnable, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Async repository is closed");
+        }
+        runnable.run();
+    }
+
+    /**
+     * Creates a facade starting a virtual thread per operation, falls back to
+     * {@link #withBoundedExecutor(Repository, int, int)} with {@code maxConcurrency} threads
+     * when the runtime has no virtual threads.
+     *
+     * @param repository     the repository to delegate to
+     * @param maxConcurrency the number of operations using the repository at once, must be positive
+     * @return facade that shuts its executor down on {@link #close()}
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public static <T> AsyncRepository<T> withVirtualThreads(Repository<T> repository, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            return new AsyncRepository<>(repository, executor, new Semaphore(maxConcurrency), true);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Java 19 and 20 have the method, but it throws without --enable-preview
+            log.info("Virtual threads are not available, using platform threads");
+            return withBoundedExecutor(repository, maxConcurrency, maxConcurrency * 16);
+        }
+    }
+
+    /**
+     * @return whether the operations run on virtual threads
+     */
+    public boolean isVirtual() {
+        return permits != null;
+    }
+
+    /**
+     * Runs an arbitrary operation of the repository on the executor.
+     *
+     * @param operation the operation to run
+     * @return future completed with the result of the operation, or exceptionally with
+     *         {@link RejectedExecutionException} if the executor no longer accepts operations
+     */
+    public <R> CompletableFuture<R> submit(Function<Repository<T>, R> operation) {
+        try {
+            if (permits == null) {
+                return CompletableFuture.supplyAsync(() -> operation.apply(repository), executor);
+            }
+
+            return CompletableFuture.supplyAsync(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    return operation.apply(repository);
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Asynchronous {@link Repository#add(Object)}. */
+    public CompletableFuture<Boolean> addAsync(T t) {
+        return submit(repository -> repository.add(t));
+    }
+
+    /** Asynchronous {@link Repository#addAll(List)}. */
+    public CompletableFuture<Boolean> addAllAsync(List<T> t) {
+        return submit(repository -> repository.addAll(t));
+    }
+
+    /** Asynchronous {@link Repository#findById(String)}. */
+    public CompletableFuture<Optional<T>> findByIdAsync(String id) {
+        return submit(repository -> repository.findById(id));
+    }
+
+    /** Asynchronous {@link Repository#findAll()}. */
+    public CompletableFuture<List<T>> findAllAsync() {
+        return submit(Repository::findAll);
+    }
+
+    /** Asynchronous {@link Repository#findAll(Filter)}. */
+    public CompletableFuture<List<T>> findAllAsync(Filter filter) {
+        return submit(repository -> repository.findAll(filter));
+    }
+
+    /**
+     * Asynchronous {@link Repository#findAllById(List)} split into chunks of
+     * {@link #DEFAULT_ID_CHUNK_SIZE} identifiers, see {@link #findAllByIdAsync(List, int)}.
+     */
+    public CompletableFuture<List<T>> findAllByIdAsync(List<String> ids) {
+        return findAllByIdAsync(ids, DEFAULT_ID_CHUNK_SIZE);
+    }
+
+    /**
+     * Asynchronous {@link Repository#findAllById(List)}: the identifiers are split into chunks
+     * looked up in parallel, each on its own connection.
+     *
+     * @param ids       identifiers to look up, must not be null or empty
+     * @param chunkSize identifiers per lookup, must be positive
+     * @return future completed with the found entities of all chunks in chunk order,
+     *         or exceptionally with the first failure of a chunk
+     * @throws IllegalArgumentException if ids is null or empty or chunkSize is not positive
+     */
+    public CompletableFuture<List<T>> findAllByIdAsync(List<String> ids, int chunkSize) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("IDs list cannot be null or empty");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        List<CompletableFuture<List<T>>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = List.copyOf(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            chunks.add(submit(repository -> repository.findAllById(chunk)));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<T> result = new ArrayList<>();
+            for (CompletableFuture<List<T>> chunk : chunks) {
+                result.addAll(chunk.join());
+            }
+            return result;
+        });
+    }
+
+    /** Asynchronous {@link Repository#count()}. */
+    public CompletableFuture<Long> countAsync() {
+        return submit(Repository::count);
+    }
+
+    /** Asynchronous {@link Repository#count(Filter)}. */
+    public CompletableFuture<Long> countAsync(Filter filter) {
+        return submit(repository -> repository.count(filter));
+    }
+
+    /** Asynchronous {@link Repository#existsById(String)}. */
+    public CompletableFuture<Boolean> existsByIdAsync(String id) {
+        return submit(repository -> repository.existsById(id));
+    }
+
+    /** Asynchronous {@link Repository#existsAll(List)}. */
+    public CompletableFuture<Boolean> existsAllAsync(List<String> ids) {
+        return submit(repository -> repository.existsAll(ids));
+    }
+
+    /** Asynchronous {@link Repository#findPage(int, int)}. */
+    public CompletableFuture<List<T>> findPageAsync(int page, int size) {
+        return submit(repository -> repository.findPage(page, size));
+    }
+
+    /** Asynchronous {@link Repository#findPageAfter(String, int)}. */
+    public CompletableFuture<Page<T>> findPageAfterAsync(String token, int size) {
+        return submit(repository -> repository.findPageAfter(token, size));
+    }
+
+    /** Asynchronous {@link Repository#update(Object)}. */
+    public CompletableFuture<Boolean> updateAsync(T t) {
+        return submit(repository -> repository.update(t));
+    }
+
+    /** Asynchronous {@link Repository#updateAll(List)}. */
+    public CompletableFuture<Boolean> updateAllAsync(List<T> t) {
+        return submit(repository -> repository.updateAll(t));
+    }
+
+    /** Asynchronous {@link Repository#updateAll(Filter, Changes)}. */
+    public CompletableFuture<Integer> updateAllAsync(Filter filter, Changes changes) {
+        return submit(repository -> repository.updateAll(filter, changes));
+    }
+
+    /** Asynchronous {@link Repository#upsert(Object)}. */
+    public CompletableFuture<UpsertResult> upsertAsync(T t) {
+        return submit(repository -> repository.upsert(t));
+    }
+
+    /** Asynchronous {@link Repository#upsertAll(List)}. */
+    public CompletableFuture<UpsertResult> upsertAllAsync(List<T> t) {
+        return submit(repository -> repository.upsertAll(t));
+    }
+
+    /** Asynchronous {@link Repository#delete(String)}. */
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return submit(repository -> repository.delete(id));
+    }
+
+    /** Asynchronous {@link Repository#deleteAll(List)}. */
+    public CompletableFuture<Boolean> deleteAllAsync(List<String> ids) {
+        return submit(repository -> repository.deleteAll(ids));
+    }
+
+    /** Asynchronous {@link Repository#deleteAll(Filter)}. */
+    public CompletableFuture<Integer> deleteAllAsync(Filter filter) {
+        return submit(repository -> repository.deleteAll(filter));
+    }
+
+    /**
+     * Shuts down the executor created by a factory, lets the submitted operations finish.
+     * An executor supplied by the caller is left open.
+     * Operations submitted afterwards complete exceptionally with {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.vr61v.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a bulk load.
+ *
+ * @see TicketsBulkLoader
+ */
+@Data
+@AllArgsConstructor
+public class BulkLoadResult {
+
+    /** Rows written by all streams. */
+    private final long rows;
+
+    /** Number of parallel COPY streams used. */
+    private final int streams;
+
+    /** Wall clock time of the whole load. */
+    private final long elapsedNanos;
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.vr61v.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Snapshot of the counters of a {@link CachingRepository}.
+ *
+ * @see CachingRepository#getStats()
+ */
+@Data
+@AllArgsConstructor
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+
+    /**
+     * @return share of lookups answered from the cache, 0 if there were no lookups
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+}
@@ -0,0 +1,455 @@
+package com.vr61v.repositories;
+
+import com.vr61v.changes.Changes;
+import com.vr61v.entities.Ticket;
+import com.vr61v.filters.Filter;
+import com.vr61v.utils.transaction.TransactionManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache of entities in front of a {@link Repository}.
+ * <p>
+ * {@link #findById(String)} and {@link #findAllById(List)} are answered from an in-memory cache
+ * when possible; {@code findAllById} sends only the identifiers missing in the cache to the
+ * repository. The cache holds at most {@code maximumSize} entities and evicts the least recently
+ * used one when it is full; with a TTL an entity is also dropped once it is older than the TTL.
+ * Entities that don't exist are not cached.
+ * <p>
+ * Writes through the decorator invalidate the written identifiers: {@code add}, {@code update},
+ * {@code upsert}, {@code delete} and their bulk variants. Updates and deletes by filter can't tell
+ * which entities they changed and clear the whole cache. A lookup which raced with an invalidation
+ * doesn't put its (possibly stale) result into the cache. Changes made by other writers are seen
+ * only after the TTL or {@link #invalidate(String)}/{@link #invalidateAll()}.
+ * <p>
+ * Inside a transaction the written rows stay visible to other connections in their old state
+ * until the commit, so another thread could cache them again right after the invalidation.
+ * If the repository takes its connections from a {@link TransactionManager}, pass it to the
+ * decorator: writes made in a transaction then invalidate again when the transaction ends, and
+ * lookups inside a transaction bypass the cache, so the transaction sees its own writes and
+ * its possibly uncommitted entities are not cached.
+ * <p>
+ * The returned entities are the cached instances, shared between the callers, and must not
+ * be modified; change a copy and write it with {@link #update(Object)} instead.
+ * <p>
+ * The other queries ({@code findAll}, pages, streams, counts) are passed through uncached. The
+ * decorator is thread-safe if the repository is.
+ *
+ * @param <T> the type of entities of the repository
+ */
+public class CachingRepository<T> implements Repository<T> {
+
+    private final Repository<T> repository;
+    private final Function<T, String> idOf;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final TransactionManager transactionManager;
+
+    /**
+     * Cached entities in access order, guarded by itself together with {@link #generation}.
+     */
+    private final LinkedHashMap<String, Entry<T>> entries;
+
+    /**
+     * Incremented by every invalidation, a lookup caches its result only if it hasn't changed.
+     */
+    private long generation;
+    private long evictions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Entry<T>(T value, long createdAt) {}
+
+    /**
+     * Creates a cache in front of the repository.
+     *
+     * @param repository  the repository to delegate to
+     * @param idOf        returns the identifier of an entity
+     * @param maximumSize the maximum number of cached entities, must be positive
+     * @param ttl         time an entity stays cached after it was loaded, null to keep it until evicted
+     * @throws IllegalArgumentException if repository or idOf is null, maximumSize or ttl is not positive
+     */
+    public CachingRepository(Repository<T> repository, Function<T, String> idOf, int maximumSize, Duration ttl) {
+        this(repository, idOf, maximumSize, ttl, null);
+    }
+
+    /**
+     * Creates a cache in front of a repository whose connections come from the transaction manager.
+     *
+     * @param repository         the repository to delegate to
+     * @param idOf               returns the identifier of an entity
+     * @param maximumSize        the maximum number of cached entities, must be positive
+     * @param ttl                time an entity stays cached after it was loaded, null to keep it until evicted
+     * @param transactionManager the transaction manager of the repository, null if it doesn't use one
+     * @throws IllegalArgumentException if repository or idOf is null, maximumSize or ttl is not positive
+     */
+    public CachingRepository(Repository<T> repository, Function<T, String> idOf, int maximumSize, Duration ttl,
+                             TransactionManager transactionManager) {
+        if (repository == null || idOf == null) {
+            throw new IllegalArgumentException("Repository and id function cannot be null");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        this.repository = repository;
+        this.idOf = idOf;
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.transactionManager = transactionManager;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                if (size() > CachingRepository.this.maximumSize) {
+                    ++evictions;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache of tickets identified by their numbers.
+     *
+     * @see #CachingRepository(Repository, Function, int, Duration)
+     */
+    public static CachingRepository<Ticket> forTickets(Repository<Ticket> repository, int maximumSize, Duration ttl) {
+        return new CachingRepository<>(repository, Ticket::getTicketNo, maximumSize, ttl);
+    }
+
+    /**
+     * Creates a cache of tickets identified by their numbers, for a repository using the transaction manager.
+     *
+     * @see #CachingRepository(Repository, Function, int, Duration, TransactionManager)
+     */
+    public static CachingRepository<Ticket> forTickets(Repository<Ticket> repository, int maximumSize, Duration ttl,
+                                                       TransactionManager transactionManager) {
+        return new CachingRepository<>(repository, Ticket::getTicketNo, maximumSize, ttl, transactionManager);
+    }
+
+    /**
+     * @return snapshot of the hit, miss and eviction counters and the current size
+     */
+    public CacheStats getStats() {
+        synchronized (entries) {
+            return new CacheStats(hits.sum(), misses.sum(), evictions, entries.size());
+        }
+    }
+
+    /**
+     * Drops the cached entity, e.g. after it was changed bypassing the decorator.
+     */
+    public void invalidate(String id) {
+        invalidate(Collections.singleton(id));
+    }
+
+    /**
+     * Drops all cached entities.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            ++generation;
+            entries.clear();
+        }
+    }
+
+    private void invalidate(Collection<String> ids) {
+        synchronized (entries) {
+            ++generation;
+            for (String id : ids) {
+                entries.remove(id);
+            }
+        }
+    }
+
+    /**
+     * @return the cached entity or null if it is not cached or expired
+     */
+    private T lookup(String id) {
+        synchronized (entries) {
+            Entry<T> entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            if (ttlNanos > 0 && System.nanoTime() - entry.createdAt() >= ttlNanos) {
+                entries.remove(id);
+                ++evictions;
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private long currentGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Caches the loaded entities unless an invalidation happened since the load started.
+     */
+    private void store(long loadGeneration, Collection<T> loaded) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            for (T t : loaded) {
+                entries.put(idOf.apply(t), new Entry<>(t, now));
+            }
+        }
+    }
+
+    /**
+     * True if the calling thread is in a transaction, whose lookups bypass the cache.
+     */
+    private boolean inTransaction() {
+        return transactionManager != null && transactionManager.isTransactionActive();
+    }
+
+    /**
+     * Runs a write and invalidates the identifiers, again after the commit if the write
+     * joined a transaction.
+     */
+    private <R> R writing(Collection<String> ids, Supplier<R> write) {
+        try {
+            return write.get();
+        } finally {
+            invalidate(ids);
+            if (transactionManager != null) {
+                transactionManager.afterCompletion(() -> invalidate(ids));
+            }
+        }
+    }
+
+    /**
+     * Runs a write and clears the cache, again after the commit if the write joined a transaction.
+     */
+    private <R> R writingAll(Supplier<R> write) {
+        try {
+            return write.get();
+        } finally {
+            invalidateAll();
+            if (transactionManager != null) {
+                transactionManager.afterCompletion(this::invalidateAll);
+            }
+        }
+    }
+
+    private List<String> idsOf(T t) {
+        return t == null ? List.of() : List.of(idOf.apply(t));
+    }
+
+    private List<String> idsOf(List<T> t) {
+        return t == null ? List.of() : t.stream().filter(Objects::nonNull).map(idOf).toList();
+    }
+
+    @Override
+    public boolean add(T t) {
+        return writing(idsOf(t), () -> repository.add(t));
+    }
+
+    @Override
+    public boolean addAll(List<T> t) {
+        return writing(idsOf(t), () -> repository.addAll(t));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the cache if the entity is cached, otherwise loaded and cached.
+     */
+    @Override
+    public Optional<T> findById(String id) {
+        if (inTransaction()) {
+            return repository.findById(id);
+        }
+
+        T cached = lookup(id);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        long loadGeneration = currentGeneration();
+        Optional<T> found = repository.findById(id);
+        found.ifPresent(t -> store(loadGeneration, List.of(t)));
+        return found;
+    }
+
+    @Override
+    public List<T> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public List<T> findAll(Filter filter) {
+        return repository.findAll(filter);
+    }
+
+    @Override
+    public Stream<T> streamAll() {
+        return repository.streamAll();
+    }
+
+    @Override
+    public Stream<T> streamAll(Filter filter) {
+        return repository.streamAll(filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cached entities are taken from the cache, only the missing identifiers are sent to the
+     * repository and their entities are cached. The result follows the order of the identifiers,
+     * a repeated identifier yields its entity once.
+     */
+    @Override
+    public List<T> findAllById(List<String> ids) {
+        if (ids == null || ids.isEmpty() || inTransaction()) {
+            return repository.findAllById(ids);
+        }
+
+        Map<String, T> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            T cached = lookup(id);
+            found.put(id, cached);
+            if (cached != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long loadGeneration = currentGeneration();
+            List<T> loaded = repository.findAllById(missing);
+            store(loadGeneration, loaded);
+            for (T t : loaded) {
+                found.put(idOf.apply(t), t);
+            }
+        }
+
+        List<T> result = new ArrayList<>(found.size());
+        for (T t : found.values()) {
+            if (t != null) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    @Override
+    public long count(Filter filter) {
+        return repository.count(filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True without a query if the entity is cached.
+     */
+    @Override
+    public boolean existsById(String id) {
+        if (inTransaction()) {
+            return repository.existsById(id);
+        }
+
+        if (lookup(id) != null) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        return repository.existsById(id);
+    }
+
+    @Override
+    public boolean existsAll(List<String> ids) {
+        return repository.existsAll(ids);
+    }
+
+    @Override
+    public List<T> findPage(int page, int size) {
+        return repository.findPage(page, size);
+    }
+
+    @Override
+    public Page<T> findPageAfter(String token, int size) {
+        return repository.findPageAfter(token, size);
+    }
+
+    @Override
+    public Page<T> findPageAfter(Filter filter, String token, int size) {
+        return repository.findPageAfter(filter, token, size);
+    }
+
+    @Override
+    public boolean update(T t) {
+        return writing(idsOf(t), () -> repository.update(t));
+    }
+
+    @Override
+    public boolean updateAll(List<T> t) {
+        return writing(idsOf(t), () -> repository.updateAll(t));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clears the whole cache, the changed entities are not known.
+     */
+    @Override
+    public int updateAll(Filter filter, Changes changes) {
+        return writingAll(() -> repository.updateAll(filter, changes));
+    }
+
+    @Override
+    public UpsertResult upsert(T t) {
+        return writing(idsOf(t), () -> repository.upsert(t));
+    }
+
+    @Override
+    public UpsertResult upsertAll(List<T> t) {
+        return writing(idsOf(t), () -> repository.upsertAll(t));
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return writing(id == null ? List.of() : List.of(id), () -> repository.delete(id));
+    }
+
+    @Override
+    public boolean deleteAll(List<String> ids) {
+        return writing(ids == null ? List.of() : ids.stream().filter(Objects::nonNull).toList(), () -> repository.deleteAll(ids));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clears the whole cache, the deleted entities are not known.
+     */
+    @Override
+    public int deleteAll(Filter filter) {
+        return writingAll(() -> repository.deleteAll(filter));
+    }
+
+}
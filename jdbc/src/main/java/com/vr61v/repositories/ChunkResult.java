@@ -0,0 +1,31 @@
+package com.vr61v.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of one chunk of a chunked bulk operation.
+ *
+ * @see TicketsRepository#addAllInChunks(java.util.List)
+ */
+@Data
+@AllArgsConstructor
+public class ChunkResult {
+
+    /** Index of the first element of the chunk in the input list. */
+    private final int fromIndex;
+
+    /** Index after the last element of the chunk in the input list. */
+    private final int toIndex;
+
+    /** Rows changed by the chunk, 0 if the chunk failed. */
+    private final int affectedRows;
+
+    /** Error message of a failed chunk, null if the chunk succeeded. */
+    private final String error;
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+}
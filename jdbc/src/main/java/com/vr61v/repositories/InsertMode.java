@@ -0,0 +1,28 @@
+package com.vr61v.repositories;
+
+/**
+ * How {@link TicketsRepository} sends the rows of {@code addAll} to the server.
+ */
+public enum InsertMode {
+
+    /**
+     * JDBC batch of single-row INSERT statements. The driver pipelines them, but the server
+     * still parses, plans and executes one statement per row.
+     */
+    BATCH,
+
+    /**
+     * One {@code INSERT ... VALUES (...), (...), ...} statement per chunk. The statement text
+     * depends on the chunk length and has up to five parameters per row, the chunk size is
+     * therefore limited by the 32767 parameters of the protocol.
+     */
+    MULTI_ROW_VALUES,
+
+    /**
+     * One {@code INSERT ... SELECT FROM unnest(?::text[], ...)} statement per chunk with one
+     * array parameter per column. The statement text is the same for every chunk, so it is
+     * prepared once per connection, and the chunk size is not limited by the parameter count.
+     */
+    UNNEST
+
+}
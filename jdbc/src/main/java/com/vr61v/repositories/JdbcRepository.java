@@ -0,0 +1,271 @@
+package com.vr61v.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.mappers.Binder;
+import com.vr61v.mappers.RowMapper;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.jdbc.ResultSetStream;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Base of the repositories generated for {@code @Table} entities by the jdbc-processor.
+ * <p>
+ * The generated subclass supplies the SQL of the table, the mapper of its rows and how the key
+ * is bound; this class runs the statements. Rows are read by column index and entities are bound
+ * with typed parameters, no reflection is involved.
+ *
+ * @param <T> the type of entities
+ * @param <K> the type of the key: the type of the key field, or a record of the key fields
+ *            for a composite key
+ */
+public abstract class JdbcRepository<T, K> {
+
+    /**
+     * Number of entities sent in one statement by {@link #addAll(List)}.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * Number of rows fetched per round trip by {@link #streamAll()}.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final ConnectionManager connectionManager;
+    private final TableStatements statements;
+    private final RowMapper<T> rowMapper;
+    private final Binder<T> binder;
+
+    /**
+     * @throws IllegalArgumentException if connectionManager is null
+     */
+    protected JdbcRepository(ConnectionManager connectionManager, TableStatements statements,
+                             RowMapper<T> rowMapper, Binder<T> binder) {
+        if (connectionManager == null) {
+            throw new IllegalArgumentException("Connection manager cannot be null");
+        }
+        this.connectionManager = connectionManager;
+        this.statements = statements;
+        this.rowMapper = rowMapper;
+        this.binder = binder;
+    }
+
+    /**
+     * @return the key of the entity
+     */
+    protected abstract K keyOf(T entity);
+
+    /**
+     * Binds the key columns as consecutive parameters.
+     *
+     * @return index of the parameter following the last bound one
+     */
+    protected abstract int bindKey(PreparedStatement statement, int index, K key) throws SQLException;
+
+    /**
+     * Adds one entity.
+     *
+     * @return true if the entity was added
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if entity is null
+     */
+    public boolean add(T entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("Entity cannot be null");
+        }
+
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getInsert())
+        ) {
+            binder.bind(statement, 1, entity);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the entities with one {@code INSERT ... SELECT FROM unnest(...)} per chunk of
+     * {@link #DEFAULT_CHUNK_SIZE}, all chunks in one transaction (or in the transaction of the
+     * connection manager, if one is active).
+     *
+     * @return true if all entities were added
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if the list is null, contains null or empty
+     */
+    public boolean addAll(List<T> entities) {
+        if (entities == null || entities.isEmpty() || entities.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Entity list cannot be null, contains null or empty");
+        }
+
+        try (Connection connection = connectionManager.getConnection()) {
+            boolean ownsTransaction = connection.getAutoCommit();
+            if (ownsTransaction) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(statements.getInsertAll())) {
+                int added = 0;
+                for (int from = 0; from < entities.size(); from += DEFAULT_CHUNK_SIZE) {
+                    binder.bindArrays(connection, statement, 1, entities.subList(from, Math.min(from + DEFAULT_CHUNK_SIZE, entities.size())));
+                    added += statement.executeUpdate();
+                }
+                if (ownsTransaction) {
+                    connection.commit();
+                }
+                return added == entities.size();
+            } catch (SQLException | RuntimeException e) {
+                if (ownsTransaction) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (ownsTransaction) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the entity with the key or empty if there is none
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if key is null
+     */
+    public Optional<T> findById(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getFindById())
+        ) {
+            bindKey(statement, 1, key);
+            ResultSet result = statement.executeQuery();
+            return result.next() ? Optional.of(rowMapper.mapRow(result)) : Optional.empty();
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return all entities of the table, for large tables see {@link #streamAll()}
+     * @throws RepositoryException if there's a database error
+     */
+    public List<T> findAll() {
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getFindAll())
+        ) {
+            ResultSet result = statement.executeQuery();
+            List<T> entities = new ArrayList<>();
+            while (result.next()) {
+                entities.add(rowMapper.mapRow(result));
+            }
+
+            return entities;
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * Streams all entities through a server-side cursor reading {@link #DEFAULT_FETCH_SIZE} rows
+     * per round trip, see {@link ResultSetStream}. The stream must be closed if it's not read to the end.
+     *
+     * @throws RepositoryException if there's a database error
+     */
+    public Stream<T> streamAll() {
+        return ResultSetStream.open(connectionManager.getConnection(), statements.getFindAll(), List.of(), DEFAULT_FETCH_SIZE, rowMapper);
+    }
+
+    /**
+     * Updates the non-key columns of the row with the key of the entity.
+     *
+     * @return true if the entity was updated, false if it doesn't exist
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if entity is null
+     */
+    public boolean update(T entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("Entity cannot be null");
+        }
+
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getUpdate())
+        ) {
+            binder.bind(statement, 1, entity);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if the entity was deleted, false if it doesn't exist
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if key is null
+     */
+    public boolean delete(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getDelete())
+        ) {
+            bindKey(statement, 1, key);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of rows of the table
+     * @throws RepositoryException if there's a database error
+     */
+    public long count() {
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getCount())
+        ) {
+            ResultSet result = statement.executeQuery();
+            result.next();
+            return result.getLong(1);
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if the row with the key exists
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if key is null
+     */
+    public boolean existsById(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(statements.getExists())
+        ) {
+            bindKey(statement, 1, key);
+            ResultSet result = statement.executeQuery();
+            result.next();
+            return result.getBoolean(1);
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.vr61v.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Page of entities returned by keyset pagination.
+ *
+ * @param <T> the type of entities on the page
+ * @see Repository#findPageAfter(String, int)
+ */
+@Data
+@AllArgsConstructor
+public class Page<T> {
+
+    /** Entities of the page in key order. */
+    private final List<T> content;
+
+    /**
+     * Opaque token to pass to {@code findPageAfter} for the next page,
+     * null if this is the last page.
+     */
+    private final String nextToken;
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+}
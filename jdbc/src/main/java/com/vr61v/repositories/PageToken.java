@@ -0,0 +1,46 @@
+package com.vr61v.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the key of the last entity of a page into the continuation token of keyset pagination.
+ * <p>
+ * Callers treat the token as an opaque string, so the key format can change without breaking
+ * them: a token of an unknown version is rejected instead of being misread.
+ */
+public final class PageToken {
+
+    private static final String VERSION = "k1:";
+
+    private PageToken() {
+    }
+
+    /**
+     * @param lastKey key of the last entity on the page
+     * @return URL-safe token
+     */
+    public static String encode(String lastKey) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION + lastKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token token returned in {@link Page#getNextToken()}
+     * @return key of the last entity of the previous page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static String decode(String token) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Page token is malformed");
+        }
+        if (!value.startsWith(VERSION) || value.length() == VERSION.length()) {
+            throw new IllegalArgumentException("Page token is malformed");
+        }
+        return value.substring(VERSION.length());
+    }
+
+}
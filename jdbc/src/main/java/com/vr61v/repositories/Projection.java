@@ -0,0 +1,138 @@
+package com.vr61v.repositories;
+
+import com.vr61v.filters.Column;
+import com.vr61v.mappers.RowMapper;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Subset of columns selected by a query and how a row of them becomes a result.
+ * <p>
+ * Only the listed columns are transferred and decoded, e.g. a projection of
+ * {@code ticket_no} and {@code book_ref} neither reads nor parses the JSON contact data.
+ * <pre>{@code
+ * record TicketRef(String ticketNo, String bookRef) {}
+ *
+ * Projection<TicketRef> refs = Projection.of(TicketRef.class, TicketColumns.TICKET_NO, TicketColumns.BOOK_REF);
+ * List<TicketRef> result = repository.findAllAs(refs, filter);
+ * }</pre>
+ *
+ * @param <R> the type of results
+ * @see TicketsRepository#findAllAs(Projection, com.vr61v.filters.Filter)
+ */
+public final class Projection<R> {
+
+    private final List<Column<?>> columns;
+    private final String selectList;
+    private final RowMapper<R> mapper;
+
+    private Projection(List<Column<?>> columns, RowMapper<R> mapper) {
+        this.columns = columns;
+        this.selectList = columns.stream().map(Column::getName).collect(Collectors.joining(", "));
+        this.mapper = mapper;
+    }
+
+    /**
+     * Projection of one column.
+     */
+    public static <A, R> Projection<R> of(Column<A> a, Function<A, R> constructor) {
+        return new Projection<>(listOf(a), result -> constructor.apply(a.decode(result.getString(1))));
+    }
+
+    /**
+     * Projection of two columns.
+     */
+    public static <A, B, R> Projection<R> of(Column<A> a, Column<B> b, BiFunction<A, B, R> constructor) {
+        return new Projection<>(listOf(a, b), result -> constructor.apply(
+                a.decode(result.getString(1)),
+                b.decode(result.getString(2))
+        ));
+    }
+
+    /**
+     * Projection to a record whose components take the decoded columns in the given order.
+     *
+     * @param type    the record class, its canonical constructor is used
+     * @param columns the columns, one per record component
+     * @throws IllegalArgumentException if the number of columns doesn't match the record components
+     */
+    public static <R extends Record> Projection<R> of(Class<R> type, Column<?>... columns) {
+        List<Column<?>> list = listOf(columns);
+        RecordComponent[] components = type.getRecordComponents();
+        if (components.length != columns.length) {
+            throw new IllegalArgumentException("Record " + type.getSimpleName() + " has " + components.length
+                    + " components, but " + columns.length + " columns are given");
+        }
+
+        Constructor<R> constructor;
+        try {
+            constructor = type.getDeclaredConstructor(Arrays.stream(components).map(RecordComponent::getType).toArray(Class[]::new));
+            constructor.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Record " + type.getSimpleName() + " has no accessible canonical constructor");
+        }
+
+        return new Projection<>(list, result -> {
+            Object[] arguments = new Object[list.size()];
+            for (int i = 0; i < arguments.length; ++i) {
+                arguments[i] = list.get(i).decode(result.getString(i + 1));
+            }
+            try {
+                return constructor.newInstance(arguments);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Failed to create " + type.getSimpleName(), e);
+            }
+        });
+    }
+
+    /**
+     * Projection to {@link Row} views which decode a column only when it is read.
+     */
+    public static Projection<Row> rows(Column<?>... columns) {
+        List<Column<?>> list = listOf(columns);
+        return new Projection<>(list, result -> {
+            String[] values = new String[list.size()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = result.getString(i + 1);
+            }
+            return new Row(list, values);
+        });
+    }
+
+    private static List<Column<?>> listOf(Column<?>... columns) {
+        if (columns == null || columns.length == 0 || Arrays.stream(columns).anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Columns cannot be null, contain null or be empty");
+        }
+        return List.of(columns);
+    }
+
+    /**
+     * @return the selected columns in select order
+     */
+    public List<Column<?>> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the columns joined for a SELECT list
+     */
+    public String getSelectList() {
+        return selectList;
+    }
+
+    /**
+     * @return mapper of a result row to the projection result
+     */
+    public RowMapper<R> getMapper() {
+        return mapper;
+    }
+
+}
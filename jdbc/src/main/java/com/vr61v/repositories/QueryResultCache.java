@@ -0,0 +1,174 @@
+package com.vr61v.repositories;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of query results of a repository, e.g. {@code findAll(Filter)} and {@code findPage}.
+ * <p>
+ * Results are keyed by the canonical SQL of the query and its parameter values, so filters with
+ * the same conditions in any order share an entry (see {@link com.vr61v.filters.FilterCompiler}).
+ * The size of the cache is measured in rows: an entry weighs as many rows as it holds (an empty
+ * result weighs one), and when the total weight exceeds the maximum the least recently used
+ * entries are evicted. Results heavier than the maximum are not cached. Entries also expire
+ * after the TTL.
+ * <p>
+ * The cache has a table version: every write of the repository increments it and drops all
+ * entries at once, and a result read under an older version than the current one is not stored.
+ * Thread-safe.
+ *
+ * @see TicketsRepository#TicketsRepository(com.vr61v.utils.ConnectionManager, InsertMode, int, QueryResultCache)
+ */
+public class QueryResultCache {
+
+    private final long maximumRows;
+    private final long ttlNanos;
+
+    /**
+     * Entries in access order, guarded by itself together with the counters below.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version;
+    private long weight;
+    private long evictions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Key(String query, List<Object> values) {}
+
+    private record Entry(List<?> rows, long createdAt, int weight) {}
+
+    /**
+     * @param maximumRows the maximum total number of cached rows, must be positive
+     * @param ttl         time a result stays cached, must be positive
+     * @throws IllegalArgumentException if maximumRows or ttl is not positive or ttl is null
+     */
+    public QueryResultCache(long maximumRows, Duration ttl) {
+        if (maximumRows <= 0) {
+            throw new IllegalArgumentException("Maximum rows must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        this.maximumRows = maximumRows;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @return the current table version, to be passed to {@link #put(long, String, List, List)}
+     *         of a result read after this call
+     */
+    public long getVersion() {
+        synchronized (entries) {
+            return version;
+        }
+    }
+
+    /**
+     * @param query  the SQL text of the query
+     * @param values the parameter values of the query
+     * @return the cached rows, unmodifiable, or null if the result is not cached or expired
+     */
+    @SuppressWarnings("unchecked")
+    public <R> List<R> get(String query, List<Object> values) {
+        Key key = key(query, values);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt() >= ttlNanos) {
+                remove(key, entry);
+                ++evictions;
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return (List<R>) entry.rows();
+        }
+    }
+
+    /**
+     * Caches the rows of a query unless the table version changed since they were read.
+     *
+     * @param version the table version taken before the query was executed
+     * @param query   the SQL text of the query
+     * @param values  the parameter values of the query
+     * @param rows    the result of the query
+     */
+    public void put(long version, String query, List<Object> values, List<?> rows) {
+        int rowsWeight = Math.max(1, rows.size());
+        if (rowsWeight > maximumRows) {
+            return;
+        }
+
+        Key key = key(query, values);
+        Entry entry = new Entry(List.copyOf(rows), System.nanoTime(), rowsWeight);
+        synchronized (entries) {
+            if (this.version != version) {
+                return;
+            }
+
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += rowsWeight;
+
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maximumRows) {
+                weight -= eldest.next().getValue().weight();
+                eldest.remove();
+                ++evictions;
+            }
+        }
+    }
+
+    /**
+     * Increments the table version and drops all entries, called after every write.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            ++version;
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * @return the total number of cached rows
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * @return snapshot of the hit, miss and eviction counters and the number of entries
+     */
+    public CacheStats getStats() {
+        synchronized (entries) {
+            return new CacheStats(hits.sum(), misses.sum(), evictions, entries.size());
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        weight -= entry.weight();
+    }
+
+    /**
+     * Array parameters (e.g. of IN lists) are compared by their elements.
+     */
+    private static Key key(String query, List<Object> values) {
+        List<Object> normalized = new ArrayList<>(values.size());
+        for (Object value : values) {
+            normalized.add(value instanceof Object[] array ? Arrays.asList(array.clone()) : value);
+        }
+        return new Key(query, Collections.unmodifiableList(normalized));
+    }
+
+}
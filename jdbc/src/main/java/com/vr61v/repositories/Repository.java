@@ -1,10 +1,12 @@
 package com.vr61v.repositories;
 
+import com.vr61v.changes.Changes;
 import com.vr61v.exceptions.RepositoryException;
 import com.vr61v.filters.Filter;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Generic interface for repository operations on objects of type T.
@@ -71,6 +73,28 @@ public interface Repository<T> {
      */
     List<T> findAll(Filter filter);
 
+    /**
+     * Streams all entities from the repository without loading them into memory at once.
+     * <p>
+     * Rows are read through a database cursor and mapped lazily while the stream is consumed,
+     * the connection is held until the stream is read to the end or closed. The stream should
+     * be used in try-with-resources when it may be abandoned early.
+     *
+     * @return lazily populated stream of all entities
+     * @throws RepositoryException if there's an error during database operation
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Streams all entities matching the specified filter conditions, see {@link #streamAll()}.
+     *
+     * @param filter the filter criteria to apply, must not be null
+     * @return lazily populated stream of matching entities
+     * @throws RepositoryException if there's an error during database operation
+     *                            or if filter is invalid
+     */
+    Stream<T> streamAll(Filter filter);
+
     /**
      * Finds all entities with the specified identifiers.
      * <p>
@@ -82,10 +106,47 @@ public interface Repository<T> {
      */
     List<T> findAllById(List<String> ids);
 
+    /**
+     * Counts all entities in the repository without loading them.
+     *
+     * @return number of entities
+     * @throws RepositoryException if there's an error during database operation
+     */
+    long count();
+
+    /**
+     * Counts the entities matching the specified filter conditions without loading them.
+     *
+     * @param filter the filter criteria to apply, must not be null
+     * @return number of matching entities
+     * @throws RepositoryException if there's an error during database operation
+     *                            or if filter is invalid
+     */
+    long count(Filter filter);
+
+    /**
+     * Checks whether an entity with the specified identifier exists without loading it.
+     *
+     * @param id the unique identifier of the entity, must not be null or empty
+     * @return true if the entity exists
+     * @throws RepositoryException if there's an error during database operation
+     */
+    boolean existsById(String id);
+
+    /**
+     * Checks whether entities with all specified identifiers exist without loading them.
+     *
+     * @param ids list of identifiers to check, must not be null or empty
+     * @return true if every identifier belongs to an existing entity
+     * @throws RepositoryException if there's an error during database operation
+     */
+    boolean existsAll(List<String> ids);
+
     /**
      * Retrieves a paginated list of entities from the repository.
      * <p>
      * The pagination is 0-based. Results are ordered consistently for stable pagination.
+     * The cost of a page grows with its number, for deep scrolling use {@link #findPageAfter(String, int)}.
      *
      * @param page the page number (0-based)
      * @param size the number of entities per page
@@ -95,6 +156,36 @@ public interface Repository<T> {
      */
     List<T> findPage(int page, int size);
 
+    /**
+     * Retrieves the page of entities following the page the token was issued for.
+     * <p>
+     * Unlike {@link #findPage(int, int)} the query seeks directly to the last key of the previous
+     * page instead of skipping the preceding rows, so every page costs the same regardless of
+     * its depth. Pages are ordered by the identifier; entities added or removed between calls
+     * don't shift the following pages.
+     *
+     * @param token token from {@link Page#getNextToken()} of the previous page, null for the first page
+     * @param size  the number of entities per page
+     * @return page of entities with the token of the next page
+     * @throws RepositoryException if there's an error during database operation
+     * @throws IllegalArgumentException if the token is malformed or size is not positive
+     */
+    Page<T> findPageAfter(String token, int size);
+
+    /**
+     * Retrieves the page of entities matching the filter following the page the token was issued
+     * for, see {@link #findPageAfter(String, int)}. The token must come from a page of the same filter.
+     *
+     * @param filter the filter criteria to apply, must not be null
+     * @param token  token from {@link Page#getNextToken()} of the previous page, null for the first page
+     * @param size   the number of entities per page
+     * @return page of matching entities with the token of the next page
+     * @throws RepositoryException if there's an error during database operation
+     *                            or if filter is invalid
+     * @throws IllegalArgumentException if the token is malformed or size is not positive
+     */
+    Page<T> findPageAfter(Filter filter, String token, int size);
+
     /**
      * Updates an existing entity in the repository.
      * <p>
@@ -117,6 +208,43 @@ public interface Repository<T> {
      */
     boolean updateAll(List<T> t);
 
+    /**
+     * Applies the changes to all entities matching the filter with a single statement,
+     * without loading the entities.
+     *
+     * @param filter  the filter criteria selecting the entities, must not be null or empty
+     * @param changes new values of the changed fields, must not be null or empty
+     * @return number of updated entities
+     * @throws RepositoryException if there's an error during database operation
+     *                            or if filter is invalid
+     * @throws IllegalArgumentException if filter is null or has no conditions, changes are null or empty
+     */
+    int updateAll(Filter filter, Changes changes);
+
+    /**
+     * Inserts the entity or, if an entity with the same identifier already exists, replaces it.
+     * <p>
+     * Lets callers synchronize entities without reading them first to decide between
+     * {@link #add(Object)} and {@link #update(Object)}.
+     *
+     * @param t the entity to insert or update, must not be null
+     * @return counts of inserted and updated entities (one of them is 1)
+     * @throws RepositoryException if there's an error during database operation
+     */
+    UpsertResult upsert(T t);
+
+    /**
+     * Inserts or updates all entities from the collection, see {@link #upsert(Object)}.
+     * <p>
+     * The operation should be atomic - either all entities are written or none. If the collection
+     * contains several entities with the same identifier, the last of them is written.
+     *
+     * @param t collection of entities to insert or update, must not be null or empty
+     * @return counts of inserted and updated entities
+     * @throws RepositoryException if there's an error during database operation
+     */
+    UpsertResult upsertAll(List<T> t);
+
     /**
      * Deletes an entity with the specified identifier from the repository.
      *
@@ -137,4 +265,17 @@ public interface Repository<T> {
      */
     boolean deleteAll(List<String> ids);
 
+    /**
+     * Deletes all entities matching the filter with a single statement, without loading the entities.
+     * <p>
+     * A filter without conditions is rejected, so the whole repository can't be cleared by accident.
+     *
+     * @param filter the filter criteria selecting the entities, must not be null or empty
+     * @return number of deleted entities
+     * @throws RepositoryException if there's an error during database operation
+     *                            or if filter is invalid
+     * @throws IllegalArgumentException if filter is null or has no conditions
+     */
+    int deleteAll(Filter filter);
+
 }
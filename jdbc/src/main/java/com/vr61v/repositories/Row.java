@@ -0,0 +1,72 @@
+package com.vr61v.repositories;
+
+import com.vr61v.filters.Column;
+
+import java.util.List;
+
+/**
+ * Row of a {@link Projection#rows(Column[])} projection.
+ * <p>
+ * Keeps the column values as the text read from the result set, a value is decoded only when
+ * it is requested with {@link #get(Column)}, so e.g. a JSON column costs nothing until it is read.
+ */
+public final class Row {
+
+    private final List<Column<?>> columns;
+    private final String[] values;
+
+    Row(List<Column<?>> columns, String[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * @return decoded value of the column
+     * @throws IllegalArgumentException if the column is not part of the projection
+     */
+    public <V> V get(Column<V> column) {
+        return column.decode(values[indexOf(column)]);
+    }
+
+    /**
+     * @return text of the column as read from the result set
+     * @throws IllegalArgumentException if the column is not part of the projection
+     */
+    public String getString(Column<?> column) {
+        return values[indexOf(column)];
+    }
+
+    /**
+     * @param index position of the column in the projection, 0-based
+     * @return text of the column as read from the result set
+     */
+    public String getString(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int size() {
+        return values.length;
+    }
+
+    private int indexOf(Column<?> column) {
+        for (int i = 0; i < columns.size(); ++i) {
+            if (columns.get(i) == column) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Column " + column + " is not part of the projection");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Row(");
+        for (int i = 0; i < values.length; ++i) {
+            builder.append(i == 0 ? "" : ", ").append(columns.get(i)).append('=').append(values[i]);
+        }
+        return builder.append(')').toString();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.vr61v.repositories;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * SQL statements of a table used by {@link JdbcRepository}, written by the generated repositories.
+ * <p>
+ * Statements taking a whole entity expect its columns in declaration order (see
+ * {@link com.vr61v.mappers.Binder}), statements taking a key expect the key columns.
+ */
+@Getter
+@Builder
+public class TableStatements {
+
+    /** {@code INSERT} of one entity. */
+    private final String insert;
+
+    /** {@code INSERT ... SELECT FROM unnest(...)} of one array per column. */
+    private final String insertAll;
+
+    /** {@code SELECT} of all columns of all rows, the columns in declaration order. */
+    private final String findAll;
+
+    /** {@code SELECT} of all columns of the row with the key. */
+    private final String findById;
+
+    /** {@code UPDATE} of the non-key columns of the row with the key of the entity. */
+    private final String update;
+
+    /** {@code DELETE} of the row with the key. */
+    private final String delete;
+
+    /** {@code SELECT count(*)} of all rows. */
+    private final String count;
+
+    /** {@code SELECT EXISTS} of the row with the key. */
+    private final String exists;
+
+}
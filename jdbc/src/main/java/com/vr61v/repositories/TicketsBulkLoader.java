@@ -0,0 +1,276 @@
+package com.vr61v.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vr61v.entities.Ticket;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.mappers.TicketMapper;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.jdbc.CopyEncoder;
+import com.vr61v.utils.jdbc.CopyFormat;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Loads large numbers of tickets with {@code COPY bookings.tickets FROM STDIN}.
+ * <p>
+ * Compared to {@link TicketsRepository#addAll(List)} the rows are streamed to the server in
+ * one command per connection without per-row statements, and in the
+ * {@link CopyFormat#BINARY binary} format without parsing on the server. The input is read once
+ * and split in chunks between {@code parallelism} streams, each stream is a COPY command on its
+ * own connection borrowed from the connection manager, so the load uses several server backends.
+ * <p>
+ * Each stream commits on its own: if one stream fails the others are cancelled, but streams
+ * that already finished stay committed. Use {@link TicketsRepository#addAll(List)} when
+ * the whole load must be atomic.
+ *
+ * @see BulkLoadResult
+ */
+public class TicketsBulkLoader {
+
+    private static final TicketMapper mapper = new TicketMapper();
+    private static final int CHUNK_ROWS = 5_000;
+    private static final int FLUSH_BYTES = 256 * 1024;
+    private static final List<Ticket> END_OF_INPUT = new ArrayList<>();
+
+    private final ConnectionManager connectionManager;
+    private final int parallelism;
+    private final CopyFormat format;
+
+    /**
+     * SQL command of one COPY stream, the format option is appended.
+     */
+    private static final String COPY_QUERY = """
+        COPY bookings.tickets (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        FROM STDIN WITH (FORMAT %s)
+    """;
+
+    /**
+     * Creates a loader with 4 binary streams.
+     *
+     * @param connectionManager the connection manager to borrow connections from
+     */
+    public TicketsBulkLoader(ConnectionManager connectionManager) {
+        this(connectionManager, 4, CopyFormat.BINARY);
+    }
+
+    /**
+     * @param connectionManager the connection manager to borrow connections from, must have at
+     *                          least parallelism connections available
+     * @param parallelism       the number of parallel COPY streams, must be positive
+     * @param format            the data format of the streams
+     * @throws IllegalArgumentException if connectionManager or format is null or parallelism is not positive
+     */
+    public TicketsBulkLoader(ConnectionManager connectionManager, int parallelism, CopyFormat format) {
+        if (connectionManager == null || format == null) {
+            throw new IllegalArgumentException("Connection manager and format cannot be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.connectionManager = connectionManager;
+        this.parallelism = parallelism;
+        this.format = format;
+    }
+
+    /**
+     * Loads the tickets of a list, see {@link #load(Stream)}.
+     *
+     * @param tickets tickets to load, must not be null or contain null
+     * @return number of loaded rows and the load rate
+     * @throws RepositoryException if a stream failed
+     * @throws IllegalArgumentException if tickets is null or contains null
+     */
+    public BulkLoadResult load(List<Ticket> tickets) {
+        if (tickets == null || tickets.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Ticket list cannot be null or contains null");
+        }
+
+        return load(tickets.stream());
+    }
+
+    /**
+     * Loads the tickets of a stream. The stream is consumed on the calling thread and only
+     * a few chunks per COPY stream are kept in memory, so the input may be larger than the heap.
+     *
+     * @param tickets tickets to load, must not be null, null elements are rejected
+     * @return number of loaded rows and the load rate
+     * @throws RepositoryException if a stream failed or the input contains null
+     * @throws IllegalArgumentException if tickets is null
+     */
+    public BulkLoadResult load(Stream<Ticket> tickets) {
+        if (tickets == null) {
+            throw new IllegalArgumentException("Tickets cannot be null");
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "tickets-copy-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<CopyStream> streams = new ArrayList<>(parallelism);
+        List<Future<Long>> results = new ArrayList<>(parallelism);
+        try {
+            for (int i = 0; i < parallelism; ++i) {
+                CopyStream stream = new CopyStream(failure);
+                streams.add(stream);
+                results.add(executor.submit(stream));
+            }
+
+            distribute(tickets.iterator(), streams, failure);
+
+            long rows = 0;
+            for (Future<Long> result : results) {
+                try {
+                    rows += result.get();
+                } catch (ExecutionException e) {
+                    // reported below with the failure which cancelled the other streams
+                }
+            }
+            if (failure.get() != null) {
+                throw new RepositoryException(failure.get().getMessage());
+            }
+            return new BulkLoadResult(rows, parallelism, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while loading tickets");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Deals chunks of the input to the streams round-robin, stops early when a stream failed.
+     */
+    private void distribute(Iterator<Ticket> tickets, List<CopyStream> streams, AtomicReference<Exception> failure) throws InterruptedException {
+        int next = 0;
+        List<Ticket> chunk = new ArrayList<>(CHUNK_ROWS);
+        try {
+            while (tickets.hasNext()) {
+                Ticket ticket = tickets.next();
+                if (ticket == null) {
+                    throw new RepositoryException("Tickets cannot contain null");
+                }
+                chunk.add(ticket);
+                if (chunk.size() == CHUNK_ROWS) {
+                    if (!streams.get(next).offer(chunk)) {
+                        return;
+                    }
+                    next = (next + 1) % streams.size();
+                    chunk = new ArrayList<>(CHUNK_ROWS);
+                }
+            }
+            if (!chunk.isEmpty() && !streams.get(next).offer(chunk)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+
+        for (CopyStream stream : streams) {
+            stream.offer(END_OF_INPUT);
+        }
+    }
+
+    /**
+     * One COPY command on its own connection, fed with chunks of tickets through a small queue.
+     */
+    private final class CopyStream implements Callable<Long> {
+
+        private final BlockingQueue<List<Ticket>> chunks = new ArrayBlockingQueue<>(2);
+
+        /** First failure of the load, shared by all streams: once set every stream cancels its COPY. */
+        private final AtomicReference<Exception> failure;
+
+        CopyStream(AtomicReference<Exception> failure) {
+            this.failure = failure;
+        }
+
+        /**
+         * @return false if the load failed and the stream takes no more chunks
+         */
+        boolean offer(List<Ticket> chunk) throws InterruptedException {
+            while (failure.get() == null) {
+                if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Long call() throws SQLException, JsonProcessingException, InterruptedException {
+            try (Connection connection = connectionManager.getConnection()) {
+                CopyIn copy = connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(String.format(COPY_QUERY, format.option()));
+                try {
+                    return write(copy);
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+            } catch (SQLException | JsonProcessingException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            }
+        }
+
+        private long write(CopyIn copy) throws SQLException, JsonProcessingException, InterruptedException {
+            CopyEncoder encoder = new CopyEncoder(format);
+            byte[] header = encoder.header();
+            copy.writeToCopy(header, 0, header.length);
+
+            while (true) {
+                List<Ticket> chunk = chunks.poll(100, TimeUnit.MILLISECONDS);
+                if (failure.get() != null) {
+                    throw new SQLException("Load was cancelled because another stream failed");
+                }
+                if (chunk == null) {
+                    continue;
+                }
+                if (chunk == END_OF_INPUT) {
+                    break;
+                }
+
+                for (Ticket ticket : chunk) {
+                    List<String> values = mapper.mapToColumns(ticket);
+                    encoder.startRow(values.size());
+                    for (int i = 0; i < values.size() - 1; ++i) {
+                        encoder.writeText(values.get(i));
+                    }
+                    encoder.writeJsonb(values.get(values.size() - 1));
+                    encoder.endRow();
+                    if (encoder.size() >= FLUSH_BYTES) {
+                        copy.writeToCopy(encoder.buffer(), 0, encoder.size());
+                        encoder.reset();
+                    }
+                }
+            }
+
+            copy.writeToCopy(encoder.buffer(), 0, encoder.size());
+            byte[] trailer = encoder.trailer();
+            copy.writeToCopy(trailer, 0, trailer.length);
+            return copy.endCopy();
+        }
+
+    }
+
+}
@@ -1,17 +1,25 @@
 package com.vr61v.repositories;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vr61v.changes.Changes;
 import com.vr61v.entities.Ticket;
 import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.filters.CompiledFilter;
 import com.vr61v.filters.Filter;
+import com.vr61v.filters.FilterCompiler;
+import com.vr61v.mappers.RowMapper;
 import com.vr61v.mappers.TicketMapper;
 import com.vr61v.utils.ConnectionManager;
 import com.vr61v.utils.RepositoryConnectionManager;
 import com.vr61v.utils.RepositoryTestsConnectionManager;
+import com.vr61v.utils.jdbc.PartitionedScan;
+import com.vr61v.utils.jdbc.ResultSetStream;
+import com.vr61v.utils.transaction.TransactionManager;
 
 import java.sql.*;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * JDBC implementation of {@link Repository} interface for {@link Ticket} entities.
@@ -21,7 +29,9 @@ import java.util.stream.Collectors;
  *   <li>CRUD operations</li>
  *   <li>Batch operations</li>
  *   <li>Filtered searches</li>
- *   <li>Pagination</li>
+ *   <li>Pagination by page number and by key (keyset)</li>
+ *   <li>Streaming through a server-side cursor</li>
+ *   <li>Parallel scans by ranges of ticket numbers</li>
  * </ul>
  * <p>
  * The repository uses {@link TicketMapper} to convert between database records and
@@ -39,9 +49,36 @@ public class TicketsRepository implements Repository<Ticket> {
 
     private final ConnectionManager connectionManager;
     private static final TicketMapper mapper = new TicketMapper();
+    private static final FilterCompiler filterCompiler = new FilterCompiler();
 
     /**
-     * Constructs a new TicketsRepository with the specified connection manager.
+     * Number of rows fetched per round trip by {@link #streamAll()} and {@link #streamAll(Filter)}.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Number of tickets sent in one statement by {@link #addAll(List)} by default.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * Largest chunk of {@link InsertMode#MULTI_ROW_VALUES}: five parameters per ticket
+     * must fit into the 32767 parameters of one statement.
+     */
+    private static final int MAX_VALUES_CHUNK_SIZE = Short.MAX_VALUE / 5;
+
+    private final InsertMode insertMode;
+    private final int chunkSize;
+    private final QueryResultCache queryCache;
+
+    /**
+     * The same action for all writes, so a transaction runs it once however many writes it has.
+     */
+    private final Runnable invalidateQueryCacheAction = this::invalidateQueryCache;
+
+    /**
+     * Constructs a new TicketsRepository with the specified connection manager,
+     * tickets are added with {@link InsertMode#UNNEST} in chunks of {@link #DEFAULT_CHUNK_SIZE}.
      *
      * @param connectionManager the connection manager to use for database access
      * @throws IllegalArgumentException if connectionManager is null
@@ -49,7 +86,55 @@ public class TicketsRepository implements Repository<Ticket> {
      * @see RepositoryTestsConnectionManager
      */
     public TicketsRepository(ConnectionManager connectionManager) {
+        this(connectionManager, InsertMode.UNNEST, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new TicketsRepository with the specified connection manager and insert mode.
+     *
+     * @param connectionManager the connection manager to use for database access
+     * @param insertMode        how {@link #addAll(List)} sends tickets to the server
+     * @param chunkSize         number of tickets sent in one statement (one batch in the
+     *                          {@link InsertMode#BATCH} mode), must be positive
+     * @throws IllegalArgumentException if insertMode is null, chunkSize is not positive
+     *                                  or too large for the insert mode
+     */
+    public TicketsRepository(ConnectionManager connectionManager, InsertMode insertMode, int chunkSize) {
+        this(connectionManager, insertMode, chunkSize, null);
+    }
+
+    /**
+     * Constructs a new TicketsRepository which caches the results of {@link #findAll(Filter)}
+     * and {@link #findPage(int, int)}.
+     * <p>
+     * Every write of this repository invalidates the cache; a write made in a transaction of a
+     * {@link TransactionManager} invalidates it again when the transaction ends. Writes made
+     * bypassing it (another repository instance, {@link TicketsBulkLoader}, other applications)
+     * are seen only after the TTL of the cache, or after {@link QueryResultCache#invalidateAll()}.
+     * Results read inside a transaction are not cached.
+     *
+     * @param connectionManager the connection manager to use for database access
+     * @param insertMode        how {@link #addAll(List)} sends tickets to the server
+     * @param chunkSize         number of tickets sent in one statement, must be positive
+     * @param queryCache        the cache of query results, null to disable caching
+     * @throws IllegalArgumentException if insertMode is null, chunkSize is not positive
+     *                                  or too large for the insert mode
+     */
+    public TicketsRepository(ConnectionManager connectionManager, InsertMode insertMode, int chunkSize,
+                             QueryResultCache queryCache) {
+        if (insertMode == null) {
+            throw new IllegalArgumentException("Insert mode cannot be null");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        if (insertMode == InsertMode.MULTI_ROW_VALUES && chunkSize > MAX_VALUES_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size of multi-row VALUES cannot exceed " + MAX_VALUES_CHUNK_SIZE);
+        }
         this.connectionManager = connectionManager;
+        this.insertMode = insertMode;
+        this.chunkSize = chunkSize;
+        this.queryCache = queryCache;
     }
 
     /**
@@ -66,9 +151,33 @@ public class TicketsRepository implements Repository<Ticket> {
     private static final String ADD_QUERY = """
         INSERT INTO bookings.tickets
         (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
-        VALUES (?, ?, ?, ?, (to_json(?::json)));
+        VALUES (?, ?, ?, ?, ?);
+    """;
+
+    /**
+     * SQL query for inserting a chunk of tickets with {@link InsertMode#UNNEST}.
+     * Every parameter is an array with the values of one column, unnest turns
+     * the arrays back into rows.
+     */
+    private static final String ADD_ALL_UNNEST_QUERY = """
+        INSERT INTO bookings.tickets
+        (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        SELECT ticket_no, book_ref, passenger_id, passenger_name, contact_data::jsonb
+        FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+            AS t (ticket_no, book_ref, passenger_id, passenger_name, contact_data);
     """;
 
+    /**
+     * Beginning of the SQL query for inserting a chunk of tickets with {@link InsertMode#MULTI_ROW_VALUES},
+     * followed by one {@link #ADD_ALL_VALUES_ROW} per ticket.
+     */
+    private static final String ADD_ALL_VALUES_QUERY = """
+        INSERT INTO bookings.tickets
+        (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        VALUES\s""";
+
+    private static final String ADD_ALL_VALUES_ROW = "(?, ?, ?, ?, ?)";
+
     /**
      * SQL query for finding a ticket by its unique number.
      * Selects all columns from the tickets table where ticket_no matches.
@@ -98,6 +207,45 @@ public class TicketsRepository implements Repository<Ticket> {
         WHERE ticket_no = ANY (?);
     """;
 
+    /**
+     * SQL query for counting tickets, optionally followed by the WHERE clause of a filter.
+     */
+    private static final String COUNT_QUERY = """
+        SELECT count(*)
+        FROM bookings.tickets
+    """;
+
+    /**
+     * Planner statistics of the tickets table: the estimated number of rows and the histogram
+     * of ticket numbers (bounds of buckets with the same number of rows), both null before the
+     * table was analyzed.
+     */
+    private static final String SCAN_STATISTICS_QUERY = """
+        SELECT (SELECT reltuples::bigint FROM pg_class WHERE oid = 'bookings.tickets'::regclass),
+               (SELECT histogram_bounds::text::text[] FROM pg_stats
+                WHERE schemaname = 'bookings' AND tablename = 'tickets' AND attname = 'ticket_no');
+    """;
+
+    private record ScanStatistics(long rows, List<String> histogram) {}
+
+    /**
+     * SQL query for checking whether a ticket with the number exists.
+     */
+    private static final String EXISTS_BY_ID_QUERY = """
+        SELECT EXISTS (SELECT 1 FROM bookings.tickets WHERE ticket_no = ?);
+    """;
+
+    /**
+     * True if no identifier of the array is missing, stops at the first missing one.
+     */
+    private static final String EXISTS_ALL_QUERY = """
+        SELECT NOT EXISTS (
+            SELECT 1
+            FROM unnest(?::bpchar[]) AS id (ticket_no)
+            WHERE NOT EXISTS (SELECT 1 FROM bookings.tickets AS t WHERE t.ticket_no = id.ticket_no)
+        );
+    """;
+
     /**
      * SQL query for paginated retrieval of tickets.
      * Results are ordered by ticket_no for consistent pagination.
@@ -110,16 +258,96 @@ public class TicketsRepository implements Repository<Ticket> {
         OFFSET ?;
     """;
 
+    /**
+     * SQL query for the first page of keyset pagination.
+     * The limit is one more than the page size to find out whether there is a next page.
+     */
+    private static final String FIND_FIRST_PAGE_QUERY = """
+        SELECT ticket_no, book_ref, passenger_id, passenger_name, contact_data
+        FROM bookings.tickets
+        ORDER BY ticket_no
+        LIMIT ?;
+    """;
+
+    /**
+     * SQL query for the following pages of keyset pagination.
+     * Seeks by the primary key index to the last ticket_no of the previous page instead of
+     * skipping rows with OFFSET. The parameter is cast to the column type (bpchar), otherwise
+     * the varchar parameter makes the comparison textual and the index can't be used.
+     */
+    private static final String FIND_PAGE_AFTER_QUERY = """
+        SELECT ticket_no, book_ref, passenger_id, passenger_name, contact_data
+        FROM bookings.tickets
+        WHERE ticket_no > CAST(? AS bpchar)
+        ORDER BY ticket_no
+        LIMIT ?;
+    """;
+
     /**
      * SQL query for updating a ticket record.
      * Updates all fields except the primary key (ticket_no).
      */
     private static final String UPDATE_QUERY = """
-        UPDATE bookings.tickets
-        SET book_ref = ?, passenger_id = ?, passenger_name = ?, contact_data = (to_json(?::json))
-        WHERE ticket_no = ?;
+        UPDATE bookings.tickets AS t
+        SET book_ref = u.book_ref, passenger_id = u.passenger_id,
+            passenger_name = u.passenger_name, contact_data = u.contact_data
+        FROM (VALUES (CAST(? AS bpchar), ?, ?, ?, ?))
+            AS u (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        WHERE t.ticket_no = u.ticket_no;
+    """;
+
+    /**
+     * SQL query for inserting a ticket or replacing the existing ticket with the same number.
+     * Returns whether the row was inserted: a freshly inserted row version has no deleting
+     * transaction ({@code xmax = 0}), while a row updated by ON CONFLICT has.
+     */
+    private static final String UPSERT_QUERY = """
+        INSERT INTO bookings.tickets
+        (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (ticket_no) DO UPDATE
+        SET book_ref = EXCLUDED.book_ref, passenger_id = EXCLUDED.passenger_id,
+            passenger_name = EXCLUDED.passenger_name, contact_data = EXCLUDED.contact_data
+        RETURNING (xmax = 0) AS inserted;
+    """;
+
+    /**
+     * SQL query for inserting or replacing a chunk of tickets, bound like {@link #ADD_ALL_UNNEST_QUERY}
+     * and returning one row per ticket like {@link #UPSERT_QUERY}.
+     */
+    private static final String UPSERT_ALL_QUERY = """
+        INSERT INTO bookings.tickets
+        (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        SELECT ticket_no, book_ref, passenger_id, passenger_name, contact_data::jsonb
+        FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+            AS t (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        ON CONFLICT (ticket_no) DO UPDATE
+        SET book_ref = EXCLUDED.book_ref, passenger_id = EXCLUDED.passenger_id,
+            passenger_name = EXCLUDED.passenger_name, contact_data = EXCLUDED.contact_data
+        RETURNING (xmax = 0) AS inserted;
+    """;
+
+    /**
+     * SQL query for updating a chunk of tickets, bound like {@link #ADD_ALL_UNNEST_QUERY}.
+     * The numbers are cast to the column type so the join uses the primary key index.
+     */
+    private static final String UPDATE_ALL_QUERY = """
+        UPDATE bookings.tickets AS t
+        SET book_ref = u.book_ref, passenger_id = u.passenger_id,
+            passenger_name = u.passenger_name, contact_data = u.contact_data::jsonb
+        FROM unnest(?::bpchar[], ?::text[], ?::text[], ?::text[], ?::text[])
+            AS u (ticket_no, book_ref, passenger_id, passenger_name, contact_data)
+        WHERE t.ticket_no = u.ticket_no;
     """;
 
+    /**
+     * Beginning of the SQL query for updating tickets matching a filter,
+     * followed by the assignments of the changes and the WHERE clause.
+     */
+    private static final String UPDATE_BY_FILTER_QUERY = """
+        UPDATE bookings.tickets
+        SET\s""";
+
     /**
      * SQL query for deleting a ticket by its number.
      */
@@ -129,22 +357,77 @@ public class TicketsRepository implements Repository<Ticket> {
     """;
 
     /**
-     * Extracts database column values from a list of tickets.
+     * SQL query for deleting a chunk of tickets by their numbers.
+     */
+    private static final String DELETE_ALL_QUERY = """
+        DELETE FROM bookings.tickets
+        WHERE ticket_no = ANY (?);
+    """;
+
+    /**
+     * Beginning of the SQL query for deleting tickets matching a filter, followed by the WHERE clause.
+     */
+    private static final String DELETE_BY_FILTER_QUERY = """
+        DELETE FROM bookings.tickets
+    """;
+
+    /**
+     * Builds the WHERE clause of a statement from the non-null filter parameters.
+     * The clause is canonical and cached per filter shape, see {@link FilterCompiler}.
+     *
+     * @param filter the filter criteria
+     * @param values list receiving the parameter values in placeholder order
+     * @return WHERE clause to append to a SELECT count(*), UPDATE or DELETE statement
+     * @throws IllegalArgumentException if the filter has no conditions
+     */
+    private static String whereClause(Filter filter, List<Object> values) {
+        CompiledFilter compiled = filterCompiler.compileNonEmpty(filter);
+        values.addAll(compiled.getValues());
+        return compiled.getWhereClause();
+    }
+
+    /**
+     * Builds the WHERE clause of a filtered query followed by the order and the limit of the filter.
+     *
+     * @param filter the filter criteria
+     * @param values list receiving the parameter values in placeholder order
+     * @return clause to append to a SELECT query
+     * @throws IllegalArgumentException if the filter has neither conditions nor a limit
+     */
+    private static String queryClause(Filter filter, List<Object> values) {
+        CompiledFilter compiled = filter.getLimit() == null
+                ? filterCompiler.compileNonEmpty(filter)
+                : filterCompiler.compile(filter);
+        values.addAll(compiled.getQueryValues());
+        return compiled.getQueryClause();
+    }
+
+    /**
+     * Collects the conditions of the non-null filter parameters in canonical order.
+     *
+     * @param filter the filter criteria
+     * @param values list receiving the parameter values in placeholder order
+     * @return modifiable list of SQL conditions
+     */
+    private static List<String> whereConditions(Filter filter, List<Object> values) {
+        CompiledFilter compiled = filterCompiler.compile(filter);
+        values.addAll(compiled.getValues());
+        return new ArrayList<>(compiled.getConditions());
+    }
+
+    /**
+     * Keeps only the last ticket of every ticket number, a set-based statement
+     * cannot change the same row twice.
      *
-     * @param t list of tickets to convert
-     * @return list of column value lists
+     * @param t list of tickets
+     * @return tickets with distinct numbers in order of their first occurrence
      */
-    private List<List<String>> extractValuesList(List<Ticket> t) {
-        List<List<String>> valuesList = new ArrayList<>();
+    private static List<Ticket> lastByTicketNo(List<Ticket> t) {
+        Map<String, Ticket> unique = new LinkedHashMap<>();
         for (Ticket ticket : t) {
-            try {
-                valuesList.add(mapper.mapToColumns(ticket));
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException(e);
-            }
+            unique.put(ticket.getTicketNo(), ticket);
         }
-
-        return valuesList;
+        return new ArrayList<>(unique.values());
     }
 
     /**
@@ -159,25 +442,25 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Ticket cannot be null");
         }
 
-        try (Connection connection = connectionManager.getConnection();
+        try (Connection connection = writeConnection();
              PreparedStatement statement = connection.prepareStatement(ADD_QUERY)
         ) {
-            List<String> values = mapper.mapToColumns(t);
-            for (int i = 0; i < values.size(); ++i) {
-                statement.setString(i + 1, values.get(i));
-            }
-
+            mapper.bind(statement, 1, t);
             return statement.executeUpdate() == 1;
-        } catch (SQLException | JsonProcessingException e) {
+        } catch (SQLException e) {
             throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
         }
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * This implementation uses batch processing for efficient insertion of multiple tickets.
-     * The operation is atomic - either all tickets are added or none.
+     * Tickets are sent in chunks according to the insert mode of the repository, so a chunk
+     * costs one round trip instead of one statement per ticket. The operation is atomic - all
+     * chunks run in one transaction (or join the transaction of the connection manager, if
+     * one is active), either all tickets are added or none.
      *
      * @param t list of tickets to add, must not be null or empty
      * @return True if all tickets were successfully added, false if any insertion failed
@@ -190,23 +473,150 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Ticket list cannot be null, contains null or empty");
         }
 
-        List<List<String>> valuesList = extractValuesList(t);
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(ADD_QUERY)
-        ) {
-            for (List<String> values : valuesList) {
-                for (int i = 0; i < values.size(); ++i) {
-                    statement.setString(i + 1, values.get(i));
+        try (Connection connection = writeConnection()) {
+            return inTransaction(connection, () -> {
+                int added = 0;
+                for (int from = 0; from < t.size(); from += chunkSize) {
+                    added += insertChunk(connection, t.subList(from, Math.min(from + chunkSize, t.size())));
                 }
-                statement.addBatch();
-            }
+                return added == t.size();
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
+        }
+    }
+
+    /**
+     * Adds tickets chunk by chunk and reports the outcome of every chunk instead of failing
+     * the whole operation.
+     * <p>
+     * Chunks run in one transaction, each under its own savepoint: a failed chunk (e.g. with
+     * a duplicate ticket number) is rolled back to its savepoint and the remaining chunks
+     * are still sent. The tickets of the successful chunks are committed together at the end.
+     *
+     * @param t list of tickets to add, must not be null or empty
+     * @return results of the chunks in input order
+     * @throws RepositoryException if there's a database error outside of the chunks
+     * @throws IllegalArgumentException if the list is null, contains null or empty
+     */
+    public List<ChunkResult> addAllInChunks(List<Ticket> t) {
+        if (t == null || t.isEmpty() || t.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Ticket list cannot be null, contains null or empty");
+        }
 
-            int[] result = statement.executeBatch();
-            return result.length == valuesList.size() &&
-                    Arrays.stream(result).allMatch(i -> i == 1);
+        try (Connection connection = writeConnection()) {
+            return inTransaction(connection, () -> {
+                List<ChunkResult> results = new ArrayList<>();
+                for (int from = 0; from < t.size(); from += chunkSize) {
+                    int to = Math.min(from + chunkSize, t.size());
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        int added = insertChunk(connection, t.subList(from, to));
+                        connection.releaseSavepoint(savepoint);
+                        results.add(new ChunkResult(from, to, added, null));
+                    } catch (SQLException e) {
+                        connection.rollback(savepoint);
+                        results.add(new ChunkResult(from, to, 0, e.getMessage()));
+                    }
+                }
+                return results;
+            });
         } catch (SQLException e) {
             throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
+        }
+    }
+
+    /**
+     * Inserts one chunk of tickets with the insert mode of the repository. The tickets are
+     * bound straight from the list, only the parameters of the current chunk are held in memory.
+     *
+     * @return number of inserted rows
+     */
+    private int insertChunk(Connection connection, List<Ticket> chunk) throws SQLException {
+        switch (insertMode) {
+            case UNNEST -> {
+                try (PreparedStatement statement = connection.prepareStatement(ADD_ALL_UNNEST_QUERY)) {
+                    mapper.bindArrays(connection, statement, 1, chunk);
+                    return statement.executeUpdate();
+                }
+            }
+            case MULTI_ROW_VALUES -> {
+                String query = ADD_ALL_VALUES_QUERY + String.join(", ", Collections.nCopies(chunk.size(), ADD_ALL_VALUES_ROW));
+                try (PreparedStatement statement = connection.prepareStatement(query)) {
+                    int index = 1;
+                    for (Ticket ticket : chunk) {
+                        index = mapper.bind(statement, index, ticket);
+                    }
+                    return statement.executeUpdate();
+                }
+            }
+            default -> {
+                try (PreparedStatement statement = connection.prepareStatement(ADD_QUERY)) {
+                    for (Ticket ticket : chunk) {
+                        mapper.bind(statement, 1, ticket);
+                        statement.addBatch();
+                    }
+                    return countBatchRows(statement.executeBatch());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sums the update counts of an executed batch. The driver reports
+     * {@link Statement#SUCCESS_NO_INFO} for rewritten batches (reWriteBatchedInserts=true),
+     * each such statement inserted exactly one ticket and is counted as one row.
+     */
+    private static int countBatchRows(int[] updateCounts) {
+        int rows = 0;
+        for (int count : updateCounts) {
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return rows;
+    }
+
+    /**
+     * Work run by {@link #inTransaction(Connection, TransactionWork)}.
+     */
+    @FunctionalInterface
+    private interface TransactionWork<R> {
+        R execute() throws SQLException;
+    }
+
+    /**
+     * Runs the work in a transaction of the connection: commits if the work completes and
+     * rolls back if it throws. If the connection already takes part in a transaction (e.g. one
+     * started by a TransactionManager), the work simply joins it.
+     */
+    private static <R> R inTransaction(Connection connection, TransactionWork<R> work) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return work.execute();
         }
+
+        connection.setAutoCommit(false);
+        R result;
+        try {
+            result = work.execute();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException restoreException) {
+                e.addSuppressed(restoreException);
+            }
+            throw e;
+        }
+        connection.setAutoCommit(true);
+        return result;
     }
 
     /**
@@ -251,8 +661,9 @@ public class TicketsRepository implements Repository<Ticket> {
         ) {
             ResultSet result = statement.executeQuery();
             List<Ticket> tickets = new ArrayList<>();
+            RowMapper<Ticket> decoder = mapper.rowDecoder();
             while (result.next()) {
-                tickets.add(mapper.mapToEntity(result));
+                tickets.add(decoder.mapRow(result));
             }
 
             return tickets;
@@ -265,12 +676,13 @@ public class TicketsRepository implements Repository<Ticket> {
      * {@inheritDoc}
      * <p>
      * Builds a dynamic WHERE clause based on the filter parameters.
-     * Only non-null filter values are included in the query.
+     * Only non-null filter values are included in the query. A filter without conditions
+     * is rejected unless it has a limit, so the whole table isn't loaded by accident.
      *
      * @param filter the filter criteria, must not be null
      * @return List of matching tickets, empty list if none found
      * @throws RepositoryException if there's a database error or invalid filter
-     * @throws IllegalArgumentException if filter is null
+     * @throws IllegalArgumentException if filter is null or has neither conditions nor a limit
      */
     @Override
     public List<Ticket> findAll(Filter filter) {
@@ -278,82 +690,444 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Filter cannot be null");
         }
 
-        Map<String, Object> whereParameters = filter.toWhereParameters();
-        List<String> keys = new ArrayList<>();
         List<Object> values = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : whereParameters.entrySet()) {
-            keys.add(entry.getKey());
-            values.add(entry.getValue());
-        }
-        String where = keys.stream().collect(Collectors.joining(" AND ", " WHERE ", ";"));
-        String query = FIND_ALL_QUERY + where;
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(query)
-        ) {
-            for (int i = 0; i < values.size(); ++i) {
-                statement.setObject(i + 1, values.get(i));
-            }
+        return queryTickets(FIND_ALL_QUERY + queryClause(filter, values), values);
+    }
 
-            ResultSet result = statement.executeQuery();
-            List<Ticket> tickets = new ArrayList<>();
-            while (result.next()) {
-                tickets.add(mapper.mapToEntity(result));
+    /**
+     * Executes a query of tickets, through the query result cache if the repository has one.
+     * Queries inside a transaction bypass the cache: they must see the transaction's own writes,
+     * while the cache may hold rows committed before them. Cached tickets are shared between
+     * the callers and must not be modified.
+     *
+     * @return the tickets in a new list
+     */
+    private List<Ticket> queryTickets(String query, List<Object> values) {
+        try (Connection connection = connectionManager.getConnection()) {
+            boolean cacheable = queryCache != null && connection.getAutoCommit();
+            long version = 0;
+            if (cacheable) {
+                version = queryCache.getVersion();
+                List<Ticket> cached = queryCache.get(query, values);
+                if (cached != null) {
+                    return new ArrayList<>(cached);
+                }
             }
 
-            return tickets;
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (int i = 0; i < values.size(); ++i) {
+                    statement.setObject(i + 1, values.get(i));
+                }
+
+                ResultSet result = statement.executeQuery();
+                List<Ticket> tickets = new ArrayList<>();
+                RowMapper<Ticket> decoder = mapper.rowDecoder();
+                while (result.next()) {
+                    tickets.add(decoder.mapRow(result));
+                }
+
+                if (cacheable) {
+                    queryCache.put(version, query, values, tickets);
+                }
+                return tickets;
+            }
         } catch (SQLException | JsonProcessingException e) {
             throw new RepositoryException(e.getMessage());
         }
     }
 
+    /**
+     * Invalidates the query result cache after a write, whether it succeeded or not.
+     */
+    private void invalidateQueryCache() {
+        if (queryCache != null) {
+            queryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Borrows a connection for a write. If the write joins a transaction of a
+     * {@link TransactionManager}, the query result cache is invalidated again when the
+     * transaction ends: until the commit other connections still read the old rows and
+     * could cache them under the version already incremented by {@link #invalidateQueryCache()}.
+     */
+    private Connection writeConnection() {
+        Connection connection = connectionManager.getConnection();
+        if (queryCache != null) {
+            TransactionManager.afterCompletion(connection, invalidateQueryCacheAction);
+        }
+        return connection;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
-     * Uses Postgres ANY operator for efficient lookup of multiple tickets.
-     * The returned list may be smaller than the input list if some tickets weren't found.
+     * Reads {@link #DEFAULT_FETCH_SIZE} rows per round trip.
      *
-     * @param ids list of ticket numbers to search for, must not be null or empty
-     * @return List of found tickets, empty list if none found
+     * @return Stream of all tickets, must be closed if not read to the end
      * @throws RepositoryException if there's a database error
-     * @throws IllegalArgumentException if ids list is null, contains null or empty
      */
     @Override
-    public List<Ticket> findAllById(List<String> ids) {
-        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(str -> str == null || str.isEmpty())) {
-            throw new IllegalArgumentException("IDs list cannot be null, contains null or empty");
-        }
-
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(FIND_ALL_BY_ID_QUERY)
-        ) {
-            statement.setArray(
-                    1,
-                    connection.createArrayOf("VARCHAR", ids.toArray())
-            );
-
-            ResultSet result = statement.executeQuery();
-            List<Ticket> tickets = new ArrayList<>();
-            while (result.next()) {
-                tickets.add(mapper.mapToEntity(result));
-            }
+    public Stream<Ticket> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
 
-            return tickets;
-        } catch (SQLException | JsonProcessingException e) {
-            throw new RepositoryException(e.getMessage());
+    /**
+     * Streams all tickets through a server-side cursor, see {@link #streamAll()}.
+     *
+     * @param fetchSize the number of rows fetched per round trip, must be positive
+     * @return Stream of all tickets, must be closed if not read to the end
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if fetchSize is not positive
+     */
+    public Stream<Ticket> streamAll(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
         }
+
+        return ResultSetStream.open(connectionManager.getConnection(), FIND_ALL_QUERY, List.of(), fetchSize, mapper.rowDecoder());
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Reads {@link #DEFAULT_FETCH_SIZE} rows per round trip.
      *
-     * @param page the page number (0-based)
-     * @param size the number of tickets per page, must be positive
-     * @return List of tickets for the page, empty list if page is empty
-     * @throws RepositoryException if there's a database error
-     * @throws IllegalArgumentException if page is negative or size is not positive
+     * @param filter the filter criteria, must not be null
+     * @return Stream of matching tickets, must be closed if not read to the end
+     * @throws RepositoryException if there's a database error or invalid filter
+     * @throws IllegalArgumentException if filter is null or has neither conditions nor a limit
      */
     @Override
-    public List<Ticket> findPage(int page, int size) {
+    public Stream<Ticket> streamAll(Filter filter) {
+        return streamAll(filter, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Streams tickets matching the filter through a server-side cursor, see {@link #streamAll()}.
+     *
+     * @param filter    the filter criteria, must not be null
+     * @param fetchSize the number of rows fetched per round trip, must be positive
+     * @return Stream of matching tickets, must be closed if not read to the end
+     * @throws RepositoryException if there's a database error or invalid filter
+     * @throws IllegalArgumentException if filter is null or has neither conditions nor a limit,
+     *                                  fetchSize is not positive
+     */
+    public Stream<Ticket> streamAll(Filter filter, int fetchSize) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+
+        List<Object> values = new ArrayList<>();
+        String query = FIND_ALL_QUERY + queryClause(filter, values);
+        return ResultSetStream.open(connectionManager.getConnection(), query, values, fetchSize, mapper.rowDecoder());
+    }
+
+    /**
+     * Scans all tickets in parallel, see {@link #scanAll(int, int)}.
+     * Reads {@link #DEFAULT_FETCH_SIZE} rows per round trip.
+     */
+    public Stream<Ticket> scanAll(int partitions) {
+        return scanAll(partitions, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Scans all tickets split into ranges of ticket numbers, to be read by a {@code parallel()} stream.
+     * <p>
+     * The ranges are taken from the planner statistics of {@code ticket_no}, so they hold about
+     * the same number of rows; before the table is analyzed the scan is a single range. Every range
+     * is read through its own server-side cursor on its own connection (see {@link PartitionedScan}),
+     * a parallel stream reads as many ranges at once as it has threads. Unlike {@link #streamAll()}
+     * the tickets come in no particular order and the ranges are read in separate transactions,
+     * not in one snapshot of the table.
+     * <p>
+     * The ranges are read on other threads, which can't join a transaction of the calling thread
+     * (e.g. of a {@link TransactionManager}) and would miss its uncommitted rows, so the scan is
+     * rejected inside a transaction.
+     *
+     * <pre>{@code
+     * try (Stream<Ticket> tickets = repository.scanAll(8).parallel()) {
+     *     Map<String, Long> perBooking = tickets.collect(groupingByConcurrent(Ticket::getBookRef, counting()));
+     * }
+     * }</pre>
+     *
+     * @param partitions the number of ranges, at most as many connections are used at once
+     * @param fetchSize  the number of rows fetched per round trip, must be positive
+     * @return Stream of all tickets, must be closed if not read to the end
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if partitions or fetchSize is not positive
+     * @throws IllegalStateException if called inside a transaction
+     */
+    public Stream<Ticket> scanAll(int partitions, int fetchSize) {
+        if (partitions <= 0 || fetchSize <= 0) {
+            throw new IllegalArgumentException("Partitions and fetch size must be positive");
+        }
+
+        ScanStatistics statistics;
+        try (Connection connection = connectionManager.getConnection()) {
+            if (!connection.getAutoCommit()) {
+                throw new IllegalStateException("Cannot scan in parallel inside a transaction");
+            }
+            statistics = queryValue(connection, SCAN_STATISTICS_QUERY, List.of(), result -> {
+                Array histogram = result.getArray(2);
+                return new ScanStatistics(
+                        result.getObject(1) == null ? -1 : result.getLong(1),
+                        histogram == null ? List.of() : Arrays.asList((String[]) histogram.getArray())
+                );
+            });
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+
+        List<String> points = PartitionedScan.splitPoints(statistics.histogram(), partitions);
+        String query = FIND_ALL_QUERY.stripTrailing();
+        List<PartitionedScan.Partition> ranges = new ArrayList<>(points.size() + 1);
+        for (int i = 0; i <= points.size(); ++i) {
+            String from = i == 0 ? null : points.get(i - 1);
+            String to = i == points.size() ? null : points.get(i);
+            if (from == null && to == null) {
+                ranges.add(new PartitionedScan.Partition(query + ";", List.of()));
+            } else if (from == null) {
+                ranges.add(new PartitionedScan.Partition(query + " WHERE ticket_no < CAST(? AS bpchar);", List.of(to)));
+            } else if (to == null) {
+                ranges.add(new PartitionedScan.Partition(query + " WHERE ticket_no >= CAST(? AS bpchar);", List.of(from)));
+            } else {
+                ranges.add(new PartitionedScan.Partition(
+                        query + " WHERE ticket_no >= CAST(? AS bpchar) AND ticket_no < CAST(? AS bpchar);", List.of(from, to)));
+            }
+        }
+
+        return PartitionedScan.stream(connectionManager, ranges, fetchSize, mapper::rowDecoder, statistics.rows());
+    }
+
+    /**
+     * Retrieves the projected columns of all tickets.
+     *
+     * @param projection the columns to select and how to map them, must not be null
+     * @return list of projection results, empty list if none found
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if projection is null
+     */
+    public <R> List<R> findAllAs(Projection<R> projection) {
+        if (projection == null) {
+            throw new IllegalArgumentException("Projection cannot be null");
+        }
+
+        return readProjection(projection, projectionQuery(projection) + ";", List.of());
+    }
+
+    /**
+     * Retrieves the projected columns of the tickets matching the filter. Only the projected
+     * columns are transferred, e.g. the contact data JSON is neither read nor parsed unless
+     * the projection contains it.
+     *
+     * @param projection the columns to select and how to map them, must not be null
+     * @param filter     the filter criteria, must not be null
+     * @return list of projection results, empty list if none found
+     * @throws RepositoryException if there's a database error or invalid filter
+     * @throws IllegalArgumentException if projection or filter is null, filter has neither conditions nor a limit
+     */
+    public <R> List<R> findAllAs(Projection<R> projection, Filter filter) {
+        if (projection == null || filter == null) {
+            throw new IllegalArgumentException("Projection and filter cannot be null");
+        }
+
+        List<Object> values = new ArrayList<>();
+        String query = projectionQuery(projection) + queryClause(filter, values);
+        return readProjection(projection, query, values);
+    }
+
+    /**
+     * Streams the projected columns of the tickets matching the filter through a server-side
+     * cursor, see {@link #streamAll()} and {@link #findAllAs(Projection, Filter)}.
+     *
+     * @param projection the columns to select and how to map them, must not be null
+     * @param filter     the filter criteria, must not be null
+     * @return Stream of projection results, must be closed if not read to the end
+     * @throws RepositoryException if there's a database error or invalid filter
+     * @throws IllegalArgumentException if projection or filter is null, filter has neither conditions nor a limit
+     */
+    public <R> Stream<R> streamAllAs(Projection<R> projection, Filter filter) {
+        if (projection == null || filter == null) {
+            throw new IllegalArgumentException("Projection and filter cannot be null");
+        }
+
+        List<Object> values = new ArrayList<>();
+        String query = projectionQuery(projection) + queryClause(filter, values);
+        return ResultSetStream.open(connectionManager.getConnection(), query, values, DEFAULT_FETCH_SIZE, projection.getMapper());
+    }
+
+    private static String projectionQuery(Projection<?> projection) {
+        return "SELECT " + projection.getSelectList() + " FROM bookings.tickets";
+    }
+
+    private <R> List<R> readProjection(Projection<R> projection, String query, List<Object> values) {
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)
+        ) {
+            for (int i = 0; i < values.size(); ++i) {
+                statement.setObject(i + 1, values.get(i));
+            }
+
+            List<R> results = new ArrayList<>();
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    results.add(projection.getMapper().mapRow(result));
+                }
+            }
+            return results;
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Uses Postgres ANY operator for efficient lookup of multiple tickets.
+     * The returned list may be smaller than the input list if some tickets weren't found.
+     *
+     * @param ids list of ticket numbers to search for, must not be null or empty
+     * @return List of found tickets, empty list if none found
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if ids list is null, contains null or empty
+     */
+    @Override
+    public List<Ticket> findAllById(List<String> ids) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(str -> str == null || str.isEmpty())) {
+            throw new IllegalArgumentException("IDs list cannot be null, contains null or empty");
+        }
+
+        try (Connection connection = connectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(FIND_ALL_BY_ID_QUERY)
+        ) {
+            statement.setArray(
+                    1,
+                    connection.createArrayOf("VARCHAR", ids.toArray())
+            );
+
+            ResultSet result = statement.executeQuery();
+            List<Ticket> tickets = new ArrayList<>();
+            RowMapper<Ticket> decoder = mapper.rowDecoder();
+            while (result.next()) {
+                tickets.add(decoder.mapRow(result));
+            }
+
+            return tickets;
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Executes {@code SELECT count(*)}, only the number is transferred.
+     *
+     * @throws RepositoryException if there's a database error
+     */
+    @Override
+    public long count() {
+        return queryValue(COUNT_QUERY, List.of(), result -> result.getLong(1));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Executes {@code SELECT count(*)} with the conditions of the filter, order and limit of
+     * the filter are ignored. A filter without conditions is rejected.
+     *
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if filter is null or has no conditions
+     */
+    @Override
+    public long count(Filter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+
+        List<Object> values = new ArrayList<>();
+        return queryValue(COUNT_QUERY + whereClause(filter, values), values, result -> result.getLong(1));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Executes {@code SELECT EXISTS}, which stops at the primary key lookup.
+     *
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if id is null or empty
+     */
+    @Override
+    public boolean existsById(String id) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Ticket ID cannot be null or empty");
+        }
+
+        return queryValue(EXISTS_BY_ID_QUERY, List.of(id), result -> result.getBoolean(1));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The identifiers are sent as one array and checked on the server, which stops at the
+     * first missing one. Repeated identifiers are checked once.
+     *
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if ids list is null, contains null or empty
+     */
+    @Override
+    public boolean existsAll(List<String> ids) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(str -> str == null || str.isEmpty())) {
+            throw new IllegalArgumentException("IDs list cannot be null, contains null or empty");
+        }
+
+        try (Connection connection = connectionManager.getConnection()) {
+            Array array = connection.createArrayOf("bpchar", ids.toArray());
+            return queryValue(connection, EXISTS_ALL_QUERY, List.of(array), result -> result.getBoolean(1));
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    /**
+     * Executes a query returning a single row and maps it.
+     */
+    private <R> R queryValue(String query, List<Object> values, RowMapper<R> rowMapper) {
+        try (Connection connection = connectionManager.getConnection()) {
+            return queryValue(connection, query, values, rowMapper);
+        } catch (SQLException | JsonProcessingException e) {
+            throw new RepositoryException(e.getMessage());
+        }
+    }
+
+    private static <R> R queryValue(Connection connection, String query, List<Object> values,
+                                    RowMapper<R> rowMapper) throws SQLException, JsonProcessingException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < values.size(); ++i) {
+                statement.setObject(i + 1, values.get(i));
+            }
+
+            ResultSet result = statement.executeQuery();
+            result.next();
+            return rowMapper.mapRow(result);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param page the page number (0-based)
+     * @param size the number of tickets per page, must be positive
+     * @return List of tickets for the page, empty list if page is empty
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if page is negative or size is not positive
+     */
+    @Override
+    public List<Ticket> findPage(int page, int size) {
         if (page < 0) {
             throw new IllegalArgumentException("Page number cannot be negative");
         }
@@ -361,19 +1135,95 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Page size must be positive");
         }
 
+        return queryTickets(FIND_PAGE_QUERY, List.of(size, size * page));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tickets are ordered by ticket_no, the token holds the ticket_no of the last ticket
+     * of the previous page.
+     *
+     * @param token the token of the previous page, null for the first page
+     * @param size the number of tickets per page, must be positive
+     * @return Page of tickets with the token of the next page
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if the token is malformed or size is not positive
+     */
+    @Override
+    public Page<Ticket> findPageAfter(String token, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        List<Object> values = new ArrayList<>();
+        if (token != null) {
+            values.add(PageToken.decode(token));
+        }
+        values.add(size + 1);
+        return readPage(token == null ? FIND_FIRST_PAGE_QUERY : FIND_PAGE_AFTER_QUERY, values, size);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The filter conditions are combined with the seek condition on ticket_no, so the server
+     * walks the primary key index and stops after size + 1 matching rows.
+     *
+     * @param filter the filter criteria, must not be null
+     * @param token the token of the previous page, null for the first page
+     * @param size the number of tickets per page, must be positive
+     * @return Page of matching tickets with the token of the next page
+     * @throws RepositoryException if there's a database error or invalid filter
+     * @throws IllegalArgumentException if filter is null, the token is malformed or size is not positive
+     */
+    @Override
+    public Page<Ticket> findPageAfter(Filter filter, String token, int size) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        List<Object> values = new ArrayList<>();
+        List<String> conditions = whereConditions(filter, values);
+        if (token != null) {
+            conditions.add("ticket_no > CAST(? AS bpchar)");
+            values.add(PageToken.decode(token));
+        }
+        values.add(size + 1);
+
+        String where = conditions.isEmpty() ? "" : conditions.stream().collect(Collectors.joining(" AND ", " WHERE ", ""));
+        return readPage(FIND_ALL_QUERY + where + " ORDER BY ticket_no LIMIT ?;", values, size);
+    }
+
+    /**
+     * Executes a keyset page query whose limit is size + 1 and builds the page:
+     * the extra row only tells that there is a next page.
+     */
+    private Page<Ticket> readPage(String query, List<Object> values, int size) {
         try (Connection connection = connectionManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(FIND_PAGE_QUERY)
+             PreparedStatement statement = connection.prepareStatement(query)
         ) {
-            statement.setInt(1, size);
-            statement.setInt(2, size * page);
+            for (int i = 0; i < values.size(); ++i) {
+                statement.setObject(i + 1, values.get(i));
+            }
 
             ResultSet result = statement.executeQuery();
-            List<Ticket> tickets = new ArrayList<>();
+            List<Ticket> tickets = new ArrayList<>(size);
+            RowMapper<Ticket> decoder = mapper.rowDecoder();
+            boolean hasNext = false;
             while (result.next()) {
-                tickets.add(mapper.mapToEntity(result));
+                if (tickets.size() == size) {
+                    hasNext = true;
+                    break;
+                }
+                tickets.add(decoder.mapRow(result));
             }
 
-            return tickets;
+            String nextToken = hasNext ? PageToken.encode(tickets.get(size - 1).getTicketNo()) : null;
+            return new Page<>(tickets, nextToken);
         } catch (SQLException | JsonProcessingException e) {
             throw new RepositoryException(e.getMessage());
         }
@@ -396,29 +1246,27 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Ticket cannot be null");
         }
 
-        try (Connection connection = connectionManager.getConnection();
+        try (Connection connection = writeConnection();
              PreparedStatement statement = connection.prepareStatement(UPDATE_QUERY)
         ) {
-            List<String> values = mapper.mapToColumns(ticket);
-            statement.setString(values.size(), values.get(0));
-            for (int i = 1; i < values.size(); ++i) {
-                statement.setString(i, values.get(i));
-            }
-
+            mapper.bind(statement, 1, ticket);
             return statement.executeUpdate() == 1;
-        } catch (SQLException | JsonProcessingException e) {
+        } catch (SQLException e) {
             throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
         }
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Performs batch update of multiple tickets. The operation is atomic - either all
-     * tickets are updated or none.
+     * Tickets are updated in chunks with one {@code UPDATE ... FROM unnest(...)} statement
+     * per chunk, all chunks run in one transaction. If the list contains several tickets with
+     * the same number, the last of them is written.
      *
      * @param t list of tickets to update, must not be null or empty
-     * @return True if all tickets were successfully updated, false if any update failed
+     * @return True if all tickets were successfully updated, false if any of them doesn't exist
      * @throws RepositoryException if there's a database error
      * @throws IllegalArgumentException if tickets list is null, contains null or empty
      */
@@ -428,26 +1276,130 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Tickets list cannot be null, contains null or empty");
         }
 
-        List<List<String>> valuesList = extractValuesList(t);
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(UPDATE_QUERY)
-        ) {
-            for (List<String> values : valuesList) {
-                statement.setString(values.size(), values.get(0));
-                for (int i = 1; i < values.size(); ++i) {
-                    statement.setString(i, values.get(i));
+        List<Ticket> tickets = lastByTicketNo(t);
+        try (Connection connection = writeConnection()) {
+            return inTransaction(connection, () -> {
+                int updated = 0;
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_ALL_QUERY)) {
+                    for (int from = 0; from < tickets.size(); from += chunkSize) {
+                        mapper.bindArrays(connection, statement, 1, tickets.subList(from, Math.min(from + chunkSize, tickets.size())));
+                        updated += statement.executeUpdate();
+                    }
                 }
-                statement.addBatch();
-            }
+                return updated == tickets.size();
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RepositoryException if there's a database error or changed values are invalid
+     * @throws IllegalArgumentException if filter is null or has no conditions, changes are null or empty
+     */
+    @Override
+    public int updateAll(Filter filter, Changes changes) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        if (changes == null || changes.toSetParameters().isEmpty()) {
+            throw new IllegalArgumentException("Changes cannot be null or empty");
+        }
+
+        List<Object> values = new ArrayList<>();
+        List<String> assignments = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : changes.toSetParameters().entrySet()) {
+            assignments.add(entry.getKey());
+            values.add(entry.getValue());
+        }
+        String query = UPDATE_BY_FILTER_QUERY + String.join(", ", assignments) + whereClause(filter, values);
+        return executeUpdate(query, values);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RepositoryException if there's a database error or ticket data is invalid
+     * @throws IllegalArgumentException if ticket is null
+     */
+    @Override
+    public UpsertResult upsert(Ticket t) {
+        if (t == null) {
+            throw new IllegalArgumentException("Ticket cannot be null");
+        }
+
+        try (Connection connection = writeConnection();
+             PreparedStatement statement = connection.prepareStatement(UPSERT_QUERY)
+        ) {
+            mapper.bind(statement, 1, t);
+            return readUpsertResult(statement);
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tickets are written in chunks with one {@code INSERT ... SELECT FROM unnest ... ON CONFLICT}
+     * statement per chunk, all chunks run in one transaction.
+     *
+     * @param t list of tickets to insert or update, must not be null or empty
+     * @throws RepositoryException if there's a database error or ticket data is invalid
+     * @throws IllegalArgumentException if the list is null, contains null or empty
+     */
+    @Override
+    public UpsertResult upsertAll(List<Ticket> t) {
+        if (t == null || t.isEmpty() || t.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Ticket list cannot be null, contains null or empty");
+        }
 
-            int[] result = statement.executeBatch();
-            return result.length == valuesList.size() &&
-                    Arrays.stream(result).allMatch(i -> i == 1);
+        List<Ticket> tickets = lastByTicketNo(t);
+        try (Connection connection = writeConnection()) {
+            return inTransaction(connection, () -> {
+                int inserted = 0;
+                int updated = 0;
+                try (PreparedStatement statement = connection.prepareStatement(UPSERT_ALL_QUERY)) {
+                    for (int from = 0; from < tickets.size(); from += chunkSize) {
+                        mapper.bindArrays(connection, statement, 1, tickets.subList(from, Math.min(from + chunkSize, tickets.size())));
+                        UpsertResult result = readUpsertResult(statement);
+                        inserted += result.getInserted();
+                        updated += result.getUpdated();
+                    }
+                }
+                return new UpsertResult(inserted, updated);
+            });
         } catch (SQLException e) {
             throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
         }
     }
 
+    /**
+     * Executes an upsert statement and counts the returned rows by their {@code inserted} flag.
+     */
+    private static UpsertResult readUpsertResult(PreparedStatement statement) throws SQLException {
+        int inserted = 0;
+        int updated = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                if (resultSet.getBoolean(1)) {
+                    inserted++;
+                } else {
+                    updated++;
+                }
+            }
+        }
+        return new UpsertResult(inserted, updated);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -462,24 +1414,26 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("Ticket ID cannot be null or empty");
         }
 
-        try (Connection connection = connectionManager.getConnection();
+        try (Connection connection = writeConnection();
              PreparedStatement statement = connection.prepareStatement(DELETE_QUERY)
         ) {
             statement.setString(1, id);
             return statement.executeUpdate() == 1;
         } catch (SQLException e) {
             throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
         }
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Performs batch deletion of multiple tickets. The operation is atomic - either all
-     * tickets are deleted or none.
+     * Tickets are deleted in chunks with one {@code DELETE ... WHERE ticket_no = ANY(?)} statement
+     * per chunk, all chunks run in one transaction. Repeated numbers are counted once.
      *
      * @param ids list of ticket numbers to delete, must not be null or empty
-     * @return True if all tickets were successfully deleted, false if any deletion failed
+     * @return True if all tickets were successfully deleted, false if any of them doesn't exist
      * @throws RepositoryException if there's a database error
      * @throws IllegalArgumentException if ids list is null, contains null or empty
      */
@@ -489,19 +1443,60 @@ public class TicketsRepository implements Repository<Ticket> {
             throw new IllegalArgumentException("IDs list cannot be null, contains null or empty");
         }
 
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(DELETE_QUERY)
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        try (Connection connection = writeConnection()) {
+            return inTransaction(connection, () -> {
+                int deleted = 0;
+                try (PreparedStatement statement = connection.prepareStatement(DELETE_ALL_QUERY)) {
+                    for (int from = 0; from < unique.size(); from += chunkSize) {
+                        List<String> chunk = unique.subList(from, Math.min(from + chunkSize, unique.size()));
+                        statement.setArray(1, connection.createArrayOf("bpchar", chunk.toArray()));
+                        deleted += statement.executeUpdate();
+                    }
+                }
+                return deleted == unique.size();
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RepositoryException if there's a database error
+     * @throws IllegalArgumentException if filter is null or has no conditions
+     */
+    @Override
+    public int deleteAll(Filter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+
+        List<Object> values = new ArrayList<>();
+        return executeUpdate(DELETE_BY_FILTER_QUERY + whereClause(filter, values), values);
+    }
+
+    /**
+     * Executes a data-modifying query with the given parameters.
+     *
+     * @return number of affected rows
+     */
+    private int executeUpdate(String query, List<Object> values) {
+        try (Connection connection = writeConnection();
+             PreparedStatement statement = connection.prepareStatement(query)
         ) {
-            for (String id : ids) {
-                statement.setString(1, id);
-                statement.addBatch();
+            for (int i = 0; i < values.size(); ++i) {
+                statement.setObject(i + 1, values.get(i));
             }
 
-            int[] result = statement.executeBatch();
-            return result.length == ids.size() &&
-                    Arrays.stream(result).allMatch(i -> i == 1);
+            return statement.executeUpdate();
         } catch (SQLException e) {
             throw new RepositoryException(e.getMessage());
+        } finally {
+            invalidateQueryCache();
         }
     }
 }
@@ -0,0 +1,24 @@
+package com.vr61v.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of an upsert: how many entities were inserted as new rows
+ * and how many replaced existing rows with the same identifier.
+ *
+ * @see Repository#upsert(Object)
+ * @see Repository#upsertAll(java.util.List)
+ */
+@Data
+@AllArgsConstructor
+public class UpsertResult {
+
+    private final int inserted;
+    private final int updated;
+
+    public int getTotal() {
+        return inserted + updated;
+    }
+
+}
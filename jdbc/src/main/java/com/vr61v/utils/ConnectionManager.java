@@ -2,8 +2,15 @@ package com.vr61v.utils;
 
 import java.sql.Connection;
 
-public interface ConnectionManager {
+public interface ConnectionManager extends AutoCloseable {
 
     Connection getConnection();
 
+    /**
+     * Releases every resource held by the manager (for pooled managers - all physical connections).
+     * Managers without own resources don't need to override it.
+     */
+    @Override
+    default void close() {}
+
 }
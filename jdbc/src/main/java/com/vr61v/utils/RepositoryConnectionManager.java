@@ -1,62 +1,64 @@
 package com.vr61v.utils;
 
-import com.vr61v.exceptions.ConnectionException;
+import com.vr61v.utils.pool.ConnectionFactory;
+import com.vr61v.utils.pool.ConnectionPool;
+import com.vr61v.utils.pool.PoolConfig;
 
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * {@link ConnectionManager} backed by {@link ConnectionPool}.
+ * <p>
+ * The pool is configured from the {@code database.*} keys of {@code application.properties},
+ * see {@link PoolConfig#fromProperties(String)} for the full list of supported keys.
+ */
 public class RepositoryConnectionManager implements ConnectionManager {
 
-    protected String URL;
-    protected String USER;
-    protected String PASSWORD;
-    protected String POOL_SIZE;
-    protected int DEFAULT_POOL_SIZE;
-
-    protected BlockingQueue<Connection> connections;
+    protected final ConnectionPool pool;
 
     public RepositoryConnectionManager() {
-        this.URL = PropertiesManager.getProperty("database.url");
-        this.USER = PropertiesManager.getProperty("database.user");
-        this.PASSWORD = PropertiesManager.getProperty("database.password");
-        this.POOL_SIZE = PropertiesManager.getProperty("database.pool.size");
-        this.DEFAULT_POOL_SIZE = 5;
-
-        int size = POOL_SIZE == null ? DEFAULT_POOL_SIZE : Integer.parseInt(POOL_SIZE);
-        connections = new LinkedBlockingQueue<>(size);
-
-        for (int i = 0; i < size; ++i) {
-            connections.add(open());
-        }
+        this("database");
+    }
+
+    /**
+     * @param prefix prefix of the connection keys in {@code application.properties}
+     */
+    protected RepositoryConnectionManager(String prefix) {
+        this(PoolConfig.fromProperties(prefix));
+    }
+
+    public RepositoryConnectionManager(PoolConfig config) {
+        this.pool = new ConnectionPool(config);
     }
 
-    protected Connection open() throws RuntimeException {
-        try {
-            Connection connection = DriverManager.getConnection(this.URL, this.USER, this.PASSWORD);
-            return (Connection) Proxy.newProxyInstance(
-                    RepositoryConnectionManager.class.getClassLoader(),
-                    new Class[] {Connection.class},
-                    ((proxy, method, args) ->
-                            method.getName().equals("close") ?
-                                    connections.add((Connection) proxy) :
-                                    method.invoke(connection, args)
-                    )
-            );
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * @param config  pool settings
+     * @param factory source of physical connections used instead of {@code DriverManager}
+     */
+    public RepositoryConnectionManager(PoolConfig config, ConnectionFactory factory) {
+        this.pool = new ConnectionPool(config, factory);
     }
 
+    /**
+     * Borrows a connection from the pool, closing the connection returns it back.
+     *
+     * @throws com.vr61v.exceptions.ConnectionException if no connection became available in time
+     */
+    @Override
     public Connection getConnection() {
-        try {
-            return connections.take();
-        } catch (InterruptedException e) {
-            throw new ConnectionException(e.getMessage());
-        }
+        return pool.getConnection();
+    }
+
+    /**
+     * @return pool behind the manager, e.g. to read its statistics
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
     }
 
 }
@@ -0,0 +1,188 @@
+package com.vr61v.utils.jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes rows for {@code COPY ... FROM STDIN} into a growing byte buffer.
+ * <p>
+ * Rows are written field by field between {@link #startRow(int)} and {@link #endRow()}; the
+ * buffer is flushed to the server by the caller and then {@link #reset()}. In the
+ * {@link CopyFormat#BINARY binary} format the caller also sends {@link #header()} before the
+ * first row and {@link #trailer()} after the last one. Text-like values (char, varchar, text)
+ * and jsonb values are supported.
+ */
+public final class CopyEncoder {
+
+    private static final byte[] BINARY_HEADER = {
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0,
+            0, 0, 0, 0, // flags
+            0, 0, 0, 0  // header extension length
+    };
+    private static final byte[] BINARY_TRAILER = {(byte) 0xff, (byte) 0xff};
+    private static final byte JSONB_VERSION = 1;
+
+    private final CopyFormat format;
+    private byte[] buffer = new byte[64 * 1024];
+    private int size;
+    private boolean firstField;
+
+    public CopyEncoder(CopyFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * @return bytes to send before the first row, empty for the text format
+     */
+    public byte[] header() {
+        return format == CopyFormat.BINARY ? BINARY_HEADER.clone() : new byte[0];
+    }
+
+    /**
+     * @return bytes to send after the last row, empty for the text format
+     */
+    public byte[] trailer() {
+        return format == CopyFormat.BINARY ? BINARY_TRAILER.clone() : new byte[0];
+    }
+
+    /**
+     * @param fields number of fields the row will have
+     */
+    public void startRow(int fields) {
+        firstField = true;
+        if (format == CopyFormat.BINARY) {
+            writeShort(fields);
+        }
+    }
+
+    /**
+     * Writes a value of a char, varchar or text column.
+     *
+     * @param value value or null
+     */
+    public void writeText(String value) {
+        if (format == CopyFormat.BINARY) {
+            if (value == null) {
+                writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeInt(bytes.length);
+                write(bytes);
+            }
+        } else {
+            separate();
+            writeEscaped(value);
+        }
+    }
+
+    /**
+     * Writes a value of a jsonb column.
+     *
+     * @param json JSON text or null
+     */
+    public void writeJsonb(String json) {
+        if (format == CopyFormat.BINARY) {
+            if (json == null) {
+                writeInt(-1);
+            } else {
+                byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+                writeInt(bytes.length + 1);
+                ensureCapacity(1);
+                buffer[size++] = JSONB_VERSION;
+                write(bytes);
+            }
+        } else {
+            separate();
+            writeEscaped(json);
+        }
+    }
+
+    public void endRow() {
+        if (format == CopyFormat.TEXT) {
+            ensureCapacity(1);
+            buffer[size++] = '\n';
+        }
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    private void separate() {
+        if (!firstField) {
+            ensureCapacity(1);
+            buffer[size++] = '\t';
+        }
+        firstField = false;
+    }
+
+    /**
+     * Writes a value in the text format: backslash, tab, newline and carriage return are
+     * escaped, null is written as {@code \N}.
+     */
+    private void writeEscaped(String value) {
+        if (value == null) {
+            write(new byte[] {'\\', 'N'});
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length * 2);
+        for (byte b : bytes) {
+            switch (b) {
+                case '\\' -> {
+                    buffer[size++] = '\\';
+                    buffer[size++] = '\\';
+                }
+                case '\t' -> {
+                    buffer[size++] = '\\';
+                    buffer[size++] = 't';
+                }
+                case '\n' -> {
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'n';
+                }
+                case '\r' -> {
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'r';
+                }
+                default -> buffer[size++] = b;
+            }
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeShort(int value) {
+        ensureCapacity(2);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(4);
+        buffer[size++] = (byte) (value >>> 24);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.vr61v.utils.jdbc;
+
+/**
+ * Data format of {@code COPY ... FROM STDIN}.
+ */
+public enum CopyFormat {
+
+    /**
+     * Tab separated text, parsed by the server with the input functions of the column types.
+     * Works for any column type.
+     */
+    TEXT("text"),
+
+    /**
+     * Binary representation of the column types, skips parsing on the server. Supported by
+     * {@link CopyEncoder} for text-like and jsonb columns.
+     */
+    BINARY("binary");
+
+    private final String option;
+
+    CopyFormat(String option) {
+        this.option = option;
+    }
+
+    /**
+     * @return value of the {@code FORMAT} option of the COPY command
+     */
+    public String option() {
+        return option;
+    }
+
+}
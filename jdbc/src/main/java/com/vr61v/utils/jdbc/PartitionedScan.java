@@ -0,0 +1,193 @@
+package com.vr61v.utils.jdbc;
+
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.mappers.RowMapper;
+import com.vr61v.utils.ConnectionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link Spliterator} over a table scan divided into partitions, e.g. ranges of the primary key.
+ * <p>
+ * Each partition is a query read through its own server-side cursor (see {@link ResultSetStream})
+ * on its own connection of the connection manager, opened when the partition is reached and
+ * released as soon as it's read. {@link #trySplit()} hands over half of the partitions not yet
+ * started, so a {@code parallel()} stream reads up to as many partitions at once as it has
+ * threads, each on a separate server backend. The connection manager should have at least that
+ * many connections available.
+ * <p>
+ * Partitions are separate transactions: the scan is not one snapshot of the table and doesn't see
+ * the uncommitted rows of a transaction of the calling thread, since the connections are borrowed
+ * on the threads reading the partitions. The rows come in no particular order. The stream must be
+ * closed if it's not read to the end, closing it releases the cursors of all partitions.
+ *
+ * @param <T> the type of the mapped rows
+ */
+public final class PartitionedScan<T> implements Spliterator<T> {
+
+    /**
+     * Query of one partition and the values of its parameters.
+     */
+    public record Partition(String sql, List<?> parameters) {}
+
+    private final ConnectionManager connectionManager;
+    private final List<Partition> partitions;
+    private final int fetchSize;
+    private final Supplier<RowMapper<T>> mappers;
+    private final long rowsPerPartition;
+
+    /**
+     * Cursors opened by this scan and all its splits, closed together with the stream.
+     */
+    private final Set<ResultSetStream<T>> openCursors;
+
+    private int next;
+    private final int end;
+    private ResultSetStream<T> cursor;
+
+    private PartitionedScan(ConnectionManager connectionManager, List<Partition> partitions, int fetchSize,
+                            Supplier<RowMapper<T>> mappers, long rowsPerPartition,
+                            Set<ResultSetStream<T>> openCursors, int next, int end) {
+        this.connectionManager = connectionManager;
+        this.partitions = partitions;
+        this.fetchSize = fetchSize;
+        this.mappers = mappers;
+        this.rowsPerPartition = rowsPerPartition;
+        this.openCursors = openCursors;
+        this.next = next;
+        this.end = end;
+    }
+
+    /**
+     * Creates a sequential stream over the partitions, call {@code parallel()} to read them concurrently.
+     *
+     * @param connectionManager the connection manager to borrow a connection per partition from
+     * @param partitions        the queries of the partitions, must not be empty
+     * @param fetchSize         number of rows fetched per round trip, must be positive
+     * @param mappers           creates the row mapper of a partition, mappers are not shared between threads
+     * @param estimatedRows     estimated total number of rows, negative if unknown
+     * @return stream which must be closed if it's not read to the end
+     * @throws IllegalArgumentException if an argument is null, partitions is empty or fetchSize is not positive
+     */
+    public static <T> Stream<T> stream(ConnectionManager connectionManager, List<Partition> partitions, int fetchSize,
+                                       Supplier<RowMapper<T>> mappers, long estimatedRows) {
+        if (connectionManager == null || partitions == null || partitions.isEmpty() || mappers == null) {
+            throw new IllegalArgumentException("Connection manager, mappers and partitions cannot be null or empty");
+        }
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+
+        long rowsPerPartition = estimatedRows < 0 ? -1 : Math.max(1, estimatedRows / partitions.size());
+        PartitionedScan<T> scan = new PartitionedScan<>(connectionManager, List.copyOf(partitions), fetchSize, mappers,
+                rowsPerPartition, ConcurrentHashMap.newKeySet(), 0, partitions.size());
+        return StreamSupport.stream(scan, false).onClose(scan::closeAll);
+    }
+
+    /**
+     * Picks the split points of a key for the given number of partitions of about the same size
+     * from the histogram of the key, e.g. {@code histogram_bounds} of {@code pg_stats}: the bounds
+     * divide the rows into buckets of equal size, so every partition takes the same number of buckets.
+     *
+     * @param histogram  the sorted histogram bounds of the key, may be empty
+     * @param partitions the number of partitions, must be positive
+     * @return sorted distinct split points, at most partitions - 1, empty if the histogram has
+     *         too few bounds to split
+     * @throws IllegalArgumentException if histogram is null or partitions is not positive
+     */
+    public static List<String> splitPoints(List<String> histogram, int partitions) {
+        if (histogram == null) {
+            throw new IllegalArgumentException("Histogram cannot be null");
+        }
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Partitions must be positive");
+        }
+
+        List<String> points = new ArrayList<>(partitions);
+        int buckets = histogram.size() - 1;
+        for (int i = 1; i < partitions && buckets > 0; ++i) {
+            String point = histogram.get((int) Math.round((double) i * buckets / partitions));
+            if (points.isEmpty() || point.compareTo(points.get(points.size() - 1)) > 0) {
+                points.add(point);
+            }
+        }
+        return points;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (true) {
+            if (cursor == null) {
+                if (next >= end) {
+                    return false;
+                }
+                open(partitions.get(next++));
+            }
+
+            try {
+                if (cursor.tryAdvance(action)) {
+                    return true;
+                }
+            } catch (RepositoryException e) {
+                release();
+                throw e;
+            }
+            release();
+        }
+    }
+
+    /**
+     * Hands over the first half of the partitions not yet started.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        int remaining = end - next;
+        if (remaining < 2) {
+            return null;
+        }
+
+        int middle = next + remaining / 2;
+        PartitionedScan<T> prefix = new PartitionedScan<>(connectionManager, partitions, fetchSize, mappers,
+                rowsPerPartition, openCursors, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return rowsPerPartition < 0 ? Long.MAX_VALUE : rowsPerPartition * (end - next + (cursor == null ? 0 : 1));
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    private void open(Partition partition) {
+        cursor = ResultSetStream.cursor(connectionManager.getConnection(), partition.sql(), partition.parameters(),
+                fetchSize, mappers.get());
+        openCursors.add(cursor);
+    }
+
+    private void release() {
+        cursor.close();
+        openCursors.remove(cursor);
+        cursor = null;
+    }
+
+    private void closeAll() {
+        for (ResultSetStream<T> open : openCursors) {
+            open.close();
+        }
+        openCursors.clear();
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.vr61v.utils.jdbc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.mappers.RowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily mapped {@link Stream} over the rows of a query read through a server-side cursor.
+ * <p>
+ * The Postgres driver reads a result set in chunks of {@code fetchSize} rows only with
+ * autocommit off, otherwise it loads all rows into memory at once. The stream turns autocommit
+ * off for its connection (unless a transaction is already active), maps rows one by one while
+ * the stream is consumed and releases the result set, the statement and the connection when
+ * the last row was read or the stream is closed, whichever happens first. Streams that may be
+ * abandoned before the end must be closed, e.g. with try-with-resources.
+ * <p>
+ * Database errors during the iteration are thrown as {@link RepositoryException}.
+ *
+ * @param <T> the type of the mapped rows
+ */
+public final class ResultSetStream<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final RowMapper<T> mapper;
+    private final boolean ownsTransaction;
+    private ResultSet result;
+    private volatile boolean closed;
+
+    private ResultSetStream(Connection connection, PreparedStatement statement, RowMapper<T> mapper, boolean ownsTransaction) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.connection = connection;
+        this.statement = statement;
+        this.mapper = mapper;
+        this.ownsTransaction = ownsTransaction;
+    }
+
+    /**
+     * Prepares the connection for a cursor read and executes the query.
+     * <p>
+     * The connection is owned by the stream from now on, also when this method throws.
+     *
+     * @param connection connection to read with
+     * @param sql        query text
+     * @param parameters values of the query parameters, bound with {@code setObject}
+     * @param fetchSize  number of rows fetched from the server per round trip, must be positive
+     * @param mapper     row mapper
+     * @return stream which must be closed if it's not read to the end
+     * @throws RepositoryException if the query fails
+     */
+    public static <T> Stream<T> open(Connection connection, String sql, List<?> parameters, int fetchSize, RowMapper<T> mapper) {
+        ResultSetStream<T> stream = cursor(connection, sql, parameters, fetchSize, mapper);
+        return StreamSupport.stream(stream, false).onClose(stream::close);
+    }
+
+    /**
+     * Same as {@link #open(Connection, String, List, int, RowMapper)}, but returns the cursor
+     * itself, e.g. to read it as a part of another spliterator. The cursor must be closed if
+     * it's not read to the end.
+     *
+     * @throws RepositoryException if the query fails
+     */
+    public static <T> ResultSetStream<T> cursor(Connection connection, String sql, List<?> parameters, int fetchSize, RowMapper<T> mapper) {
+        ResultSetStream<T> stream = null;
+        try {
+            boolean ownsTransaction = connection.getAutoCommit();
+            if (ownsTransaction) {
+                connection.setAutoCommit(false);
+            }
+            PreparedStatement statement = connection.prepareStatement(sql);
+            stream = new ResultSetStream<>(connection, statement, mapper, ownsTransaction);
+            for (int i = 0; i < parameters.size(); ++i) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            statement.setFetchSize(fetchSize);
+            stream.result = statement.executeQuery();
+        } catch (SQLException e) {
+            if (stream != null) {
+                stream.close();
+            } else {
+                closeQuietly(connection);
+            }
+            throw new RepositoryException(e.getMessage());
+        }
+
+        return stream;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+
+        T row;
+        try {
+            if (!result.next()) {
+                close();
+                return false;
+            }
+            row = mapper.mapRow(result);
+        } catch (SQLException | JsonProcessingException e) {
+            close();
+            throw new RepositoryException(e.getMessage());
+        }
+
+        action.accept(row);
+        return true;
+    }
+
+    /**
+     * Releases the result set, the statement and the connection, does nothing if already released.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            if (result != null) {
+                result.close();
+            }
+            statement.close();
+            if (ownsTransaction) {
+                // Nothing was changed, the commit only ends the transaction the cursor lived in
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ignored) {
+            // the connection is closed below, a pooled one is reset or thrown away on return
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // nothing can be done about a failed close
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.vr61v.utils.metrics;
+
+import com.vr61v.utils.jdbc.DelegatingResultSet;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Result set of an instrumented query, counts the rows read from it.
+ * <p>
+ * The count is added to the metrics of the query once: when the last row was read, the result
+ * set or its statement was closed, or the statement was executed again.
+ */
+final class CountingResultSet extends DelegatingResultSet {
+
+    private final StatementMetrics metrics;
+    private long rows;
+    private boolean finished;
+
+    CountingResultSet(Statement statement, ResultSet delegate, StatementMetrics metrics) {
+        super(statement, delegate);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        boolean hasRow = super.next();
+        if (hasRow) {
+            ++rows;
+        } else {
+            finish();
+        }
+        return hasRow;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finish();
+        super.close();
+    }
+
+    void finish() {
+        if (!finished) {
+            finished = true;
+            metrics.rows.add(rows);
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.vr61v.utils.metrics;
+
+import com.vr61v.utils.jdbc.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * Connection handed out by {@link InstrumentedConnectionManager}, its prepared statements are measured.
+ */
+final class InstrumentedConnection extends DelegatingConnection {
+
+    private final InstrumentedConnectionManager manager;
+
+    InstrumentedConnection(Connection delegate, InstrumentedConnectionManager manager) {
+        super(delegate);
+        this.manager = manager;
+    }
+
+    @Override
+    protected PreparedStatement wrapStatement(PreparedStatement statement, String sql) {
+        return new InstrumentedPreparedStatement(this, statement, manager, manager.metricsOf(sql));
+    }
+
+}
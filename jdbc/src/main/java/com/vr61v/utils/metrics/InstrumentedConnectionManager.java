@@ -0,0 +1,217 @@
+package com.vr61v.utils.metrics;
+
+import com.vr61v.utils.ConnectionManager;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link ConnectionManager} which measures every statement executed on its connections.
+ * <p>
+ * Prepared statements of the connections are timed on every execute, executeUpdate and
+ * executeBatch call and grouped by the {@link SqlFingerprint} of their text. For every
+ * fingerprint the manager keeps a latency histogram (p50, p99, max), the number of executions
+ * and errors, the rows read or changed and the sizes of batches, see {@link #getTopStatements(int)}
+ * and {@link #report(int)}. Recording is a few atomic increments per execution.
+ * <p>
+ * Failed executions are timed as well and counted as errors, so statements cancelled by
+ * {@code statement_timeout} appear among the slowest ones.
+ * <p>
+ * Executions slower than the threshold, failed ones included, are written to the log with level
+ * WARNING. The values of
+ * the bound parameters are never logged, only their types (e.g. {@code $1=String, $2=jsonb}), so
+ * the log holds no personal data of the passengers.
+ * <p>
+ * Wrap the manager given to the repositories, e.g.
+ * {@code new TicketsRepository(new InstrumentedConnectionManager(new RepositoryConnectionManager()))};
+ * a {@link com.vr61v.utils.transaction.TransactionManager} can wrap it as well. Plain
+ * {@link java.sql.Statement}s and COPY streams are not measured.
+ */
+public class InstrumentedConnectionManager implements ConnectionManager {
+
+    private static final Logger log = Logger.getLogger(InstrumentedConnectionManager.class.getName());
+
+    /**
+     * Default threshold of the slow statement log.
+     */
+    public static final Duration DEFAULT_SLOW_THRESHOLD = Duration.ofMillis(500);
+
+    /**
+     * Distinct fingerprints kept at most, statements beyond it are counted under {@link #OTHER_STATEMENTS}.
+     */
+    static final int MAX_FINGERPRINTS = 1000;
+    static final String OTHER_STATEMENTS = "<other statements>";
+
+    private final ConnectionManager connectionManager;
+    private final long slowThresholdNanos;
+
+    /**
+     * Metrics by SQL text, so a statement is fingerprinted once.
+     */
+    private final Map<String, StatementMetrics> bySql = new ConcurrentHashMap<>();
+    private final Map<String, StatementMetrics> byFingerprint = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a manager with the {@link #DEFAULT_SLOW_THRESHOLD}.
+     *
+     * @param connectionManager the manager to take connections from
+     */
+    public InstrumentedConnectionManager(ConnectionManager connectionManager) {
+        this(connectionManager, DEFAULT_SLOW_THRESHOLD);
+    }
+
+    /**
+     * @param connectionManager the manager to take connections from
+     * @param slowThreshold     executions at least this long are logged, null to log none
+     * @throws IllegalArgumentException if connectionManager is null or slowThreshold is negative
+     */
+    public InstrumentedConnectionManager(ConnectionManager connectionManager, Duration slowThreshold) {
+        if (connectionManager == null) {
+            throw new IllegalArgumentException("Connection manager cannot be null");
+        }
+        if (slowThreshold != null && slowThreshold.isNegative()) {
+            throw new IllegalArgumentException("Slow threshold cannot be negative");
+        }
+        this.connectionManager = connectionManager;
+        this.slowThresholdNanos = slowThreshold == null ? Long.MAX_VALUE : slowThreshold.toNanos();
+    }
+
+    /**
+     * @return connection of the wrapped manager whose prepared statements are measured
+     */
+    @Override
+    public Connection getConnection() {
+        return new InstrumentedConnection(connectionManager.getConnection(), this);
+    }
+
+    /**
+     * @return counters of all statements executed so far, in no particular order
+     */
+    public List<StatementStatistics> getStatistics() {
+        List<StatementStatistics> statistics = new ArrayList<>(byFingerprint.size());
+        for (StatementMetrics metrics : byFingerprint.values()) {
+            statistics.add(metrics.snapshot());
+        }
+        return statistics;
+    }
+
+    /**
+     * @param limit the maximum number of statements to return, must be positive
+     * @return the statements which took the most time in total, the hottest first
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public List<StatementStatistics> getTopStatements(int limit) {
+        return getTopStatements(limit, StatementStatistics.BY_TOTAL_TIME);
+    }
+
+    /**
+     * @param limit the maximum number of statements to return, must be positive
+     * @param order the order of statements, e.g. {@link StatementStatistics#BY_P99}
+     * @return the first statements in the order
+     * @throws IllegalArgumentException if limit is not positive or order is null
+     */
+    public List<StatementStatistics> getTopStatements(int limit, Comparator<StatementStatistics> order) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+
+        return getStatistics().stream().sorted(order).limit(limit).toList();
+    }
+
+    /**
+     * @param limit the maximum number of statements in the report, must be positive
+     * @return text table of the statements which took the most time in total
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public String report(int limit) {
+        StringBuilder report = new StringBuilder(String.format(
+                "%12s %10s %7s %10s %10s %10s %12s %10s  %s%n",
+                "total ms", "calls", "errors", "p50 ms", "p99 ms", "max ms", "rows", "batch", "statement"
+        ));
+        for (StatementStatistics statement : getTopStatements(limit)) {
+            report.append(String.format(
+                    "%12.1f %10d %7d %10.3f %10.3f %10.3f %12d %10.1f  %s%n",
+                    toMillis(statement.getTotalNanos()), statement.getExecutions(), statement.getErrors(),
+                    toMillis(statement.getLatency().getP50()), toMillis(statement.getLatency().getP99()),
+                    toMillis(statement.getLatency().getMax()), statement.getRows(), statement.getMeanBatchSize(),
+                    statement.getFingerprint()
+            ));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Drops the counters of all statements, e.g. between two measured runs. Statements prepared
+     * before the reset and still open keep counting into the dropped counters.
+     */
+    public void reset() {
+        bySql.clear();
+        byFingerprint.clear();
+    }
+
+    /**
+     * Releases the wrapped manager.
+     */
+    @Override
+    public void close() {
+        connectionManager.close();
+    }
+
+    StatementMetrics metricsOf(String sql) {
+        StatementMetrics metrics = bySql.get(sql);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        String fingerprint = SqlFingerprint.of(sql);
+        if (byFingerprint.size() >= MAX_FINGERPRINTS && !byFingerprint.containsKey(fingerprint)) {
+            fingerprint = OTHER_STATEMENTS;
+        }
+        metrics = byFingerprint.computeIfAbsent(fingerprint, StatementMetrics::new);
+        if (bySql.size() < MAX_FINGERPRINTS * 4) {
+            bySql.putIfAbsent(sql, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return whether an execution of this duration goes to the slow statement log
+     */
+    boolean isSlow(long nanos) {
+        return nanos >= slowThresholdNanos && log.isLoggable(Level.WARNING);
+    }
+
+    /**
+     * @param rows       rows changed by the execution, negative if not known yet (queries) or failed
+     * @param batchSize  statements of the batch, 0 if the execution is not a batch
+     * @param parameters description of the bound parameters without their values
+     * @param sqlState   SQL state of the exception of a failed execution, null if it succeeded;
+     *                   the message is not logged, it may contain the values
+     */
+    void logSlow(StatementMetrics metrics, long nanos, long rows, int batchSize, String parameters, String sqlState) {
+        log.warning(String.format(
+                "Slow statement: %.3f ms%s%s%s: %s; parameters: [%s]",
+                toMillis(nanos),
+                batchSize > 0 ? ", batch of " + batchSize : "",
+                rows >= 0 ? ", " + rows + " rows" : "",
+                sqlState != null ? ", failed with SQL state " + sqlState : "",
+                metrics.fingerprint, parameters
+        ));
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
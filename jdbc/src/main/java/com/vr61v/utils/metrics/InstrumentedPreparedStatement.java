@@ -0,0 +1,357 @@
+package com.vr61v.utils.metrics;
+
+import com.vr61v.utils.jdbc.DelegatingPreparedStatement;
+import org.postgresql.util.PGobject;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Arrays;
+
+/**
+ * Statement of an {@link InstrumentedConnection}: times the execute methods, failed ones included,
+ * and counts rows and batches into the metrics of its fingerprint.
+ * <p>
+ * The types of the bound parameters are remembered for the slow statement log, their values are not.
+ */
+final class InstrumentedPreparedStatement extends DelegatingPreparedStatement {
+
+    private final InstrumentedConnectionManager manager;
+    private final StatementMetrics metrics;
+
+    /**
+     * Type of every bound parameter by index - 1: a class, a Postgres type name or "null".
+     */
+    private Object[] parameterTypes = new Object[8];
+    private int batchSize;
+    private CountingResultSet resultSet;
+
+    InstrumentedPreparedStatement(Connection connection, PreparedStatement delegate,
+                                  InstrumentedConnectionManager manager, StatementMetrics metrics) {
+        super(connection, delegate);
+        this.manager = manager;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        finishResultSet();
+        long start = System.nanoTime();
+        ResultSet result;
+        try {
+            result = super.executeQuery();
+        } catch (SQLException e) {
+            throw failed(System.nanoTime() - start, 0, e);
+        }
+        executed(System.nanoTime() - start, -1, 0);
+        return countRows(result);
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        finishResultSet();
+        long start = System.nanoTime();
+        int rows;
+        try {
+            rows = super.executeUpdate();
+        } catch (SQLException e) {
+            throw failed(System.nanoTime() - start, 0, e);
+        }
+        metrics.rows.add(rows);
+        executed(System.nanoTime() - start, rows, 0);
+        return rows;
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        finishResultSet();
+        long start = System.nanoTime();
+        long rows;
+        try {
+            rows = super.executeLargeUpdate();
+        } catch (SQLException e) {
+            throw failed(System.nanoTime() - start, 0, e);
+        }
+        metrics.rows.add(rows);
+        executed(System.nanoTime() - start, rows, 0);
+        return rows;
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        finishResultSet();
+        long start = System.nanoTime();
+        boolean hasResultSet;
+        try {
+            hasResultSet = super.execute();
+        } catch (SQLException e) {
+            throw failed(System.nanoTime() - start, 0, e);
+        }
+        long nanos = System.nanoTime() - start;
+        long rows = hasResultSet ? -1 : Math.max(0, delegate().getUpdateCount());
+        if (rows > 0) {
+            metrics.rows.add(rows);
+        }
+        executed(nanos, rows, 0);
+        return hasResultSet;
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        finishResultSet();
+        int size = batchSize;
+        batchSize = 0;
+        long start = System.nanoTime();
+        int[] counts;
+        try {
+            counts = super.executeBatch();
+        } catch (SQLException e) {
+            throw failed(System.nanoTime() - start, size, e);
+        }
+        long rows = 0;
+        for (int count : counts) {
+            rows += Math.max(0, count);
+        }
+        batched(System.nanoTime() - start, rows, size);
+        return counts;
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        finishResultSet();
+        int size = batchSize;
+        batchSize = 0;
+        long start = System.nanoTime();
+        long[] counts;
+        try {
+            counts = super.executeLargeBatch();
+        } catch (SQLException e) {
+            throw failed(System.nanoTime() - start, size, e);
+        }
+        long rows = 0;
+        for (long count : counts) {
+            rows += Math.max(0, count);
+        }
+        batched(System.nanoTime() - start, rows, size);
+        return counts;
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        super.addBatch();
+        ++batchSize;
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        super.clearBatch();
+        batchSize = 0;
+    }
+
+    /**
+     * The result set of the last {@link #execute()} counts its rows as well.
+     */
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        if (resultSet != null) {
+            return resultSet;
+        }
+        ResultSet result = super.getResultSet();
+        return result == null ? null : countRows(result);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finishResultSet();
+        super.close();
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        super.clearParameters();
+        Arrays.fill(parameterTypes, null);
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        super.setNull(parameterIndex, sqlType);
+        bound(parameterIndex, null);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        super.setBoolean(parameterIndex, x);
+        bound(parameterIndex, Boolean.class);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        super.setShort(parameterIndex, x);
+        bound(parameterIndex, Short.class);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        super.setInt(parameterIndex, x);
+        bound(parameterIndex, Integer.class);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        super.setLong(parameterIndex, x);
+        bound(parameterIndex, Long.class);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        super.setDouble(parameterIndex, x);
+        bound(parameterIndex, Double.class);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        super.setBigDecimal(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        super.setString(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        super.setBytes(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        super.setDate(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        super.setTimestamp(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        super.setArray(parameterIndex, x);
+        bound(parameterIndex, x == null ? null : Array.class);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        super.setObject(parameterIndex, x, targetSqlType);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        super.setObject(parameterIndex, x);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        super.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        super.setObject(parameterIndex, x, targetSqlType);
+        bound(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        super.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        bound(parameterIndex, x);
+    }
+
+    /**
+     * Remembers the type of a bound value, only a class reference is kept.
+     */
+    private void bound(int parameterIndex, Object value) {
+        if (parameterIndex < 1) {
+            return;
+        }
+        if (parameterIndex > parameterTypes.length) {
+            parameterTypes = Arrays.copyOf(parameterTypes, Math.max(parameterIndex, parameterTypes.length * 2));
+        }
+        Object type;
+        if (value == null || value instanceof Class<?>) {
+            type = value;
+        } else if (value instanceof PGobject object) {
+            type = object.getType();
+        } else {
+            type = value.getClass();
+        }
+        parameterTypes[parameterIndex - 1] = type;
+    }
+
+    /**
+     * @return the bound parameters as {@code $1=String, $2=jsonb}, without values
+     */
+    private String describeParameters() {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < parameterTypes.length; ++i) {
+            Object type = parameterTypes[i];
+            if (type == null) {
+                continue;
+            }
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append('$').append(i + 1).append('=')
+                    .append(type instanceof Class<?> c ? c.getSimpleName() : type);
+        }
+        return description.toString();
+    }
+
+    private void executed(long nanos, long rows, int batch) {
+        metrics.executed(nanos);
+        if (manager.isSlow(nanos)) {
+            manager.logSlow(metrics, nanos, rows, batch, describeParameters(), null);
+        }
+    }
+
+    /**
+     * Records a failed execution: it is counted as an error and timed like a successful one,
+     * so statements cancelled by {@code statement_timeout} show up in the latency and the slow log.
+     *
+     * @return the exception to rethrow
+     */
+    private SQLException failed(long nanos, int batch, SQLException e) {
+        metrics.errors.increment();
+        metrics.executed(nanos);
+        if (manager.isSlow(nanos)) {
+            manager.logSlow(metrics, nanos, -1, batch, describeParameters(), e.getSQLState());
+        }
+        return e;
+    }
+
+    private void batched(long nanos, long rows, int size) {
+        metrics.batches.increment();
+        metrics.batchedStatements.add(size);
+        metrics.rows.add(rows);
+        executed(nanos, rows, size);
+    }
+
+    private ResultSet countRows(ResultSet result) {
+        resultSet = new CountingResultSet(this, result, metrics);
+        return resultSet;
+    }
+
+    private void finishResultSet() {
+        if (resultSet != null) {
+            resultSet.finish();
+            resultSet = null;
+        }
+    }
+
+}
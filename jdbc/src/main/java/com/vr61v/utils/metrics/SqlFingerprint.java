@@ -0,0 +1,122 @@
+package com.vr61v.utils.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalized text of an SQL statement, which groups the executions of the same statement.
+ * <p>
+ * Comments are removed, runs of whitespace become one space, string and number literals become
+ * {@code ?}, a list of parameters such as {@code (?, ?, ?)} becomes {@code (?, ...)} and repeated
+ * rows of a multi-row {@code VALUES} become one, so a statement has the same fingerprint for
+ * any literals and any list or chunk size. Keywords and identifiers are kept as they are.
+ */
+public final class SqlFingerprint {
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?:, \\?)+");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\([^()]*\\))(?:, \\1)+");
+
+    private SqlFingerprint() {}
+
+    /**
+     * @param sql text of the statement, must not be null
+     * @return fingerprint of the statement
+     * @throws IllegalArgumentException if sql is null
+     */
+    public static String of(String sql) {
+        if (sql == null) {
+            throw new IllegalArgumentException("SQL cannot be null");
+        }
+
+        StringBuilder normalized = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipString(sql, i);
+                normalized.append('?');
+            } else if (c == '-' && sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 2;
+                space(normalized);
+            } else if (Character.isWhitespace(c)) {
+                space(normalized);
+                ++i;
+            } else if (Character.isDigit(c) && !partOfIdentifier(sql, i)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    ++i;
+                }
+                normalized.append('?');
+            } else if (c == ',' || c == ')') {
+                trimSpace(normalized);
+                normalized.append(c);
+                if (c == ',') {
+                    normalized.append(' ');
+                }
+                ++i;
+            } else {
+                normalized.append(c);
+                ++i;
+            }
+        }
+
+        trimSpace(normalized);
+        while (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == ';') {
+            normalized.setLength(normalized.length() - 1);
+            trimSpace(normalized);
+        }
+        if (normalized.length() > 0 && normalized.charAt(0) == ' ') {
+            normalized.deleteCharAt(0);
+        }
+
+        String fingerprint = PARAMETER_LIST.matcher(normalized).replaceAll("?, ...");
+        return REPEATED_ROWS.matcher(fingerprint).replaceAll("$1");
+    }
+
+    /**
+     * @return index after the closing quote, a doubled quote is a part of the literal
+     */
+    private static int skipString(String sql, int start) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * Digits after a letter, an underscore, a digit or {@code $} belong to a name or a positional
+     * parameter, e.g. {@code int4} or {@code $1}.
+     */
+    private static boolean partOfIdentifier(String sql, int index) {
+        if (index == 0) {
+            return false;
+        }
+        char previous = sql.charAt(index - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+
+    private static void space(StringBuilder normalized) {
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) != ' ' && normalized.charAt(length - 1) != '(') {
+            normalized.append(' ');
+        }
+    }
+
+    private static void trimSpace(StringBuilder normalized) {
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) == ' ') {
+            normalized.setLength(length - 1);
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.vr61v.utils.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of the statements with one fingerprint, updated by the instrumented statements.
+ */
+final class StatementMetrics {
+
+    final String fingerprint;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LongAdder errors = new LongAdder();
+    final LongAdder totalNanos = new LongAdder();
+    final LongAdder rows = new LongAdder();
+    final LongAdder batches = new LongAdder();
+    final LongAdder batchedStatements = new LongAdder();
+
+    StatementMetrics(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    void executed(long nanos) {
+        latency.record(nanos);
+        totalNanos.add(nanos);
+    }
+
+    StatementStatistics snapshot() {
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        return StatementStatistics.builder()
+                .fingerprint(fingerprint)
+                .executions(snapshot.getCount())
+                .errors(errors.sum())
+                .totalNanos(totalNanos.sum())
+                .latency(snapshot)
+                .rows(rows.sum())
+                .batches(batches.sum())
+                .batchedStatements(batchedStatements.sum())
+                .build();
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.vr61v.utils.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Comparator;
+
+/**
+ * Counters of the statements with one {@link SqlFingerprint}, accumulated by
+ * {@link InstrumentedConnectionManager} since it was created or reset.
+ * <p>
+ * The latency of a query is the time of its execute call, i.e. until the first rows arrived:
+ * rows read later through a cursor are counted but not timed.
+ */
+@Getter
+@Builder
+@ToString
+public class StatementStatistics {
+
+    /** Orders the hottest statements first: most time spent in total. */
+    public static final Comparator<StatementStatistics> BY_TOTAL_TIME =
+            Comparator.comparingLong(StatementStatistics::getTotalNanos).reversed();
+    /** Orders the statements with the slowest tail first. */
+    public static final Comparator<StatementStatistics> BY_P99 =
+            Comparator.comparingLong((StatementStatistics statistics) -> statistics.getLatency().getP99()).reversed();
+    /** Orders the most frequently executed statements first. */
+    public static final Comparator<StatementStatistics> BY_EXECUTIONS =
+            Comparator.comparingLong(StatementStatistics::getExecutions).reversed();
+    /** Orders the statements which read or changed the most rows first. */
+    public static final Comparator<StatementStatistics> BY_ROWS =
+            Comparator.comparingLong(StatementStatistics::getRows).reversed();
+
+    private final String fingerprint;
+
+    /** Executions, failed ones included, a batch is one execution. */
+    private final long executions;
+    /** Executions which threw an exception, e.g. were cancelled by statement_timeout. */
+    private final long errors;
+    /** Time of all executions, failed ones included. */
+    private final long totalNanos;
+    /** Time of one execution. */
+    private final LatencyHistogram.Snapshot latency;
+
+    /** Rows read by queries plus rows changed by updates and batches. */
+    private final long rows;
+    /** Executed batches. */
+    private final long batches;
+    /** Statements sent in all batches. */
+    private final long batchedStatements;
+
+    /**
+     * @return rows per execution, 0 if there were no executions
+     */
+    public double getMeanRows() {
+        return executions == 0 ? 0 : (double) rows / executions;
+    }
+
+    /**
+     * @return statements per batch, 0 if there were no batches
+     */
+    public double getMeanBatchSize() {
+        return batches == 0 ? 0 : (double) batchedStatements / batches;
+    }
+
+}
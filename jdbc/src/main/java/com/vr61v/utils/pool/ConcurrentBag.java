@@ -0,0 +1,135 @@
+package com.vr61v.utils.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * {@link ConnectionBag} of {@link PoolMode#STRIPED} mode.
+ * <p>
+ * Entries never leave the shared copy-on-write list while they belong to the pool, borrowing
+ * is a compare-and-set of the entry state, so there is no lock on the fast path:
+ * <ol>
+ *   <li>the borrower tries the entries it returned before (per-thread affinity list)</li>
+ *   <li>then scans the shared list, starting from a stripe derived from the thread id, so
+ *       concurrent borrowers don't race for the same first entries</li>
+ *   <li>only when every entry is busy it waits on a hand-off queue, where returned
+ *       and newly added entries are passed to waiters directly</li>
+ * </ol>
+ */
+final class ConcurrentBag implements ConnectionBag {
+
+    private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+    private final CopyOnWriteArrayList<PoolEntry> shared = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<List<PoolEntry>> threadEntries = ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES));
+    private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<>(true);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final IntConsumer waitingListener;
+
+    ConcurrentBag(IntConsumer waitingListener) {
+        this.waitingListener = waitingListener;
+    }
+
+    @Override
+    public void add(PoolEntry entry) {
+        entry.state.set(PoolEntry.STATE_NOT_IN_USE);
+        shared.add(entry);
+        while (waiters.get() > 0 && entry.state.get() == PoolEntry.STATE_NOT_IN_USE && !handoff.offer(entry)) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public PoolEntry borrow(long timeoutNanos) throws InterruptedException {
+        List<PoolEntry> local = threadEntries.get();
+        for (int i = local.size() - 1; i >= 0; --i) {
+            PoolEntry entry = local.remove(i);
+            if (entry.state.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                return entry;
+            }
+        }
+
+        int waiting = waiters.incrementAndGet();
+        try {
+            Object[] entries = shared.toArray();
+            int size = entries.length;
+            int stripe = size == 0 ? 0 : (int) (Thread.currentThread().getId() % size);
+            for (int i = 0; i < size; ++i) {
+                PoolEntry entry = (PoolEntry) entries[(stripe + i) % size];
+                if (entry.state.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                    return entry;
+                }
+            }
+
+            waitingListener.accept(waiting);
+
+            long remaining = timeoutNanos;
+            while (remaining > 10_000) {
+                long waitStart = System.nanoTime();
+                PoolEntry entry = handoff.poll(remaining, TimeUnit.NANOSECONDS);
+                if (entry == null || entry.state.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                    return entry;
+                }
+                remaining -= System.nanoTime() - waitStart;
+            }
+            return null;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void requite(PoolEntry entry) {
+        entry.state.lazySet(PoolEntry.STATE_NOT_IN_USE);
+
+        for (int i = 0; waiters.get() > 0; ++i) {
+            if (entry.state.get() != PoolEntry.STATE_NOT_IN_USE || handoff.offer(entry)) {
+                return;
+            }
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+
+        List<PoolEntry> local = threadEntries.get();
+        if (local.size() < MAX_THREAD_LOCAL_ENTRIES) {
+            local.add(entry);
+        }
+    }
+
+    @Override
+    public boolean reserve(PoolEntry entry) {
+        return entry.state.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_RESERVED);
+    }
+
+    @Override
+    public void remove(PoolEntry entry) {
+        entry.state.set(PoolEntry.STATE_REMOVED);
+        shared.remove(entry);
+    }
+
+    @Override
+    public int getIdleCount() {
+        int count = 0;
+        for (PoolEntry entry : shared) {
+            if (entry.state.get() == PoolEntry.STATE_NOT_IN_USE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int getWaitingCount() {
+        return waiters.get();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.vr61v.utils.pool;
+
+/**
+ * Storage of pool entries which hands idle entries out to borrowers.
+ * <p>
+ * The bag only moves entries between the {@code PoolEntry.STATE_*} states, opening, validating
+ * and closing connections is done by {@link ConnectionPool}. When a borrower finds no idle
+ * entry the bag tells the pool the number of waiting borrowers, so the pool can grow.
+ */
+interface ConnectionBag {
+
+    /**
+     * Adds a new idle entry, a waiting borrower may get it right away.
+     */
+    void add(PoolEntry entry);
+
+    /**
+     * Takes an idle entry and marks it as in use.
+     *
+     * @param timeoutNanos how long to wait for an idle entry
+     * @return borrowed entry or null if the timeout elapsed
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    PoolEntry borrow(long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Returns a borrowed entry back to the idle ones.
+     */
+    void requite(PoolEntry entry);
+
+    /**
+     * Takes an idle entry out of circulation, so it can be closed without racing with borrowers.
+     *
+     * @return true if the entry was idle and is reserved now
+     */
+    boolean reserve(PoolEntry entry);
+
+    /**
+     * Forgets a borrowed or reserved entry.
+     */
+    void remove(PoolEntry entry);
+
+    /**
+     * @return number of idle entries
+     */
+    int getIdleCount();
+
+    /**
+     * @return number of threads waiting in {@link #borrow(long)}
+     */
+    int getWaitingCount();
+
+}
@@ -0,0 +1,23 @@
+package com.vr61v.utils.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Source of physical connections for {@link ConnectionPool}.
+ * <p>
+ * By default the pool opens connections through {@link java.sql.DriverManager}, the factory
+ * allows replacing it (for example with a stub in tests and benchmarks).
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+    /**
+     * Opens a new physical connection to the database.
+     *
+     * @return opened connection, never null
+     * @throws SQLException if the connection can't be established
+     */
+    Connection open() throws SQLException;
+
+}
@@ -0,0 +1,603 @@
+package com.vr61v.utils.pool;
+
+import com.vr61v.exceptions.ConnectionException;
+import com.vr61v.utils.metrics.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Elastic pool of JDBC connections.
+ * <p>
+ * Compared to a plain queue of connections the pool:
+ * <ul>
+ *   <li>opens {@link PoolConfig#getMinSize()} connections in parallel at startup and grows up to
+ *       {@link PoolConfig#getMaxSize()} as soon as borrowers have to wait, new connections are
+ *       opened in the background and handed to the waiting borrowers directly</li>
+ *   <li>closes connections idle for {@link PoolConfig#getIdleTimeout()} while there are more of
+ *       them than the minimum (or than the estimate of {@link PoolSizer} for an adaptive pool)</li>
+ *   <li>waits for a free connection at most {@link PoolConfig#getAcquireTimeout()} milliseconds</li>
+ *   <li>validates connections on borrow (if they were idle for a while) and on return, where an
+ *       unfinished transaction is rolled back and changed session properties are reset</li>
+ *   <li>retires connections after {@link PoolConfig#getMaxLifetime()}, broken connections are
+ *       thrown away right away</li>
+ *   <li>replaces retired connections in the background, so a restarted database doesn't
+ *       leave the pool empty</li>
+ *   <li>reports connections held longer than {@link PoolConfig#getLeakDetectionThreshold()}
+ *       together with the stack trace of the borrower</li>
+ *   <li>keeps up to {@link PoolConfig#getStatementCacheSize()} prepared statements per connection,
+ *       closing such a statement returns it to the cache of its connection</li>
+ *   <li>collects acquire wait and hold time histograms and failure counters, available through
+ *       {@link #getStatistics()} and the {@link ConnectionPoolMXBean}</li>
+ * </ul>
+ * Connections are handed out as wrappers, {@link Connection#close()} on a wrapper returns the
+ * physical connection to the pool and makes the wrapper itself unusable. Idle connections are
+ * kept in a {@link ConnectionBag} chosen by {@link PoolConfig#getMode()}.
+ *
+ * @see PoolConfig
+ * @see PoolMode
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+    private final String name;
+
+    private final ConnectionBag bag;
+    private final Set<PoolEntry> entries = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private final ThreadPoolExecutor adder;
+    private final PoolSizer sizer;
+
+    /** Open connections plus connections being opened, never exceeds the maximum size. */
+    private final AtomicInteger allocated = new AtomicInteger();
+    /** Connections being opened in the background for waiting borrowers. */
+    private final AtomicInteger pending = new AtomicInteger();
+    /** Number of connections the pool keeps even when they are idle. */
+    private volatile int targetSize;
+
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /* Metrics, read by PoolMXBeanAdapter directly */
+    final LatencyHistogram acquireWait = new LatencyHistogram();
+    final LatencyHistogram holdTime = new LatencyHistogram();
+    final LongAdder acquireTimeouts = new LongAdder();
+    final LongAdder validationFailures = new LongAdder();
+    final LongAdder leaks = new LongAdder();
+    final LongAdder connectionsCreated = new LongAdder();
+    final LongAdder connectionsClosed = new LongAdder();
+    private ObjectName mbeanName;
+
+    private final long acquireTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final int validationTimeoutSeconds;
+    private final long maxLifetimeNanos;
+    private final long idleTimeoutNanos;
+    private final long leakDetectionNanos;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool which opens connections through {@link DriverManager}.
+     *
+     * @param config pool settings, must not be null
+     * @throws ConnectionException if the initial connections can't be opened
+     */
+    public ConnectionPool(PoolConfig config) {
+        this(config, () -> DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword()));
+    }
+
+    /**
+     * Creates a pool and opens {@link PoolConfig#getMinSize()} connections.
+     *
+     * @param config  pool settings, must not be null
+     * @param factory source of physical connections, must not be null
+     * @throws IllegalArgumentException if config or factory is null or the pool bounds are invalid
+     * @throws ConnectionException if the initial connections can't be opened
+     */
+    public ConnectionPool(PoolConfig config, ConnectionFactory factory) {
+        if (config == null || factory == null) {
+            throw new IllegalArgumentException("Pool config and connection factory cannot be null");
+        }
+        if (config.getMaxSize() <= 0) {
+            throw new IllegalArgumentException("Pool max size must be positive");
+        }
+        if (config.getMinSize() < 0 || config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Pool min size must be between 0 and max size");
+        }
+
+        this.config = config;
+        this.factory = factory;
+        this.name = config.getName() == null ? "pool" : config.getName();
+        this.bag = config.getMode() == PoolMode.STRIPED ? new ConcurrentBag(this::onWaiting) : new QueueBag(this::onWaiting);
+        this.sizer = config.isAdaptive() ? new PoolSizer() : null;
+        this.targetSize = config.getMinSize();
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeout());
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getValidationInterval());
+        this.validationTimeoutSeconds = (int) Math.max(1, (config.getValidationTimeout() + 999) / 1000);
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxLifetime());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeout());
+        this.leakDetectionNanos = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThreshold());
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger adderThreads = new AtomicInteger();
+        int parallelism = Math.max(1, config.getWarmupParallelism());
+        this.adder = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-adder-" + adderThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.adder.allowCoreThreadTimeOut(true);
+
+        warmUp();
+        if (config.isRegisterMBean()) {
+            registerMBean();
+        }
+
+        if (config.getHousekeepingPeriod() > 0) {
+            housekeeper.scheduleWithFixedDelay(
+                    this::housekeep,
+                    config.getHousekeepingPeriod(),
+                    config.getHousekeepingPeriod(),
+                    TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool.
+     * <p>
+     * The returned connection must be closed by the caller, closing returns it to the pool.
+     *
+     * @return validated connection
+     * @throws ConnectionException if the pool is closed, no connection became available within
+     *                             the acquire timeout or the waiting thread was interrupted
+     */
+    public Connection getConnection() {
+        long deadline = System.nanoTime() + acquireTimeoutNanos;
+        try {
+            while (true) {
+                if (closed) {
+                    throw new ConnectionException(String.format("Pool '%s' is closed", name));
+                }
+
+                long remaining = deadline - System.nanoTime();
+                PoolEntry entry = remaining > 0 ? bag.borrow(remaining) : null;
+                if (entry == null) {
+                    acquireTimeouts.increment();
+                    throw new ConnectionException(String.format(
+                            "Connection is not available in pool '%s', request timed out after %d ms (total=%d, idle=%d)",
+                            name, config.getAcquireTimeout(), entries.size(), bag.getIdleCount()
+                    ));
+                }
+
+                long now = System.nanoTime();
+                if (entry.isExpired(now)) {
+                    retire(entry, "max lifetime reached");
+                    continue;
+                }
+                if (now - entry.lastAccessed > validationIntervalNanos && !isValid(entry)) {
+                    validationFailures.increment();
+                    retire(entry, "validation failed");
+                    continue;
+                }
+
+                long waited = now - (deadline - acquireTimeoutNanos);
+                acquireWait.record(waited);
+                if (sizer != null) {
+                    sizer.onBorrow(waited);
+                }
+                return borrow(entry, now);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException(String.format("Interrupted while waiting for a connection from pool '%s'", name), e);
+        }
+    }
+
+    /**
+     * @return number of physical connections owned by the pool
+     */
+    public int getTotalConnections() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of connections waiting in the pool for a borrower
+     */
+    public int getIdleConnections() {
+        return bag.getIdleCount();
+    }
+
+    /**
+     * @return number of connections currently held by borrowers
+     */
+    public int getActiveConnections() {
+        return (int) entries.stream().filter(entry -> entry.state.get() == PoolEntry.STATE_IN_USE).count();
+    }
+
+    /**
+     * @return number of borrowers waiting for a connection
+     */
+    public int getPendingThreads() {
+        return bag.getWaitingCount();
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Collects the current gauges and the counters and histograms accumulated since the pool
+     * was created. Cheap enough to be polled by a monitoring agent every few seconds.
+     *
+     * @return snapshot of the pool state
+     */
+    public PoolStatistics getStatistics() {
+        return PoolStatistics.builder()
+                .name(name)
+                .minSize(config.getMinSize())
+                .maxSize(config.getMaxSize())
+                .totalConnections(getTotalConnections())
+                .activeConnections(getActiveConnections())
+                .idleConnections(getIdleConnections())
+                .pendingThreads(getPendingThreads())
+                .acquireWait(acquireWait.snapshot())
+                .holdTime(holdTime.snapshot())
+                .acquireTimeouts(acquireTimeouts.sum())
+                .validationFailures(validationFailures.sum())
+                .leaks(leaks.sum())
+                .connectionsCreated(connectionsCreated.sum())
+                .connectionsClosed(connectionsClosed.sum())
+                .statementCacheHits(statementCacheHits.sum())
+                .statementCacheMisses(statementCacheMisses.sum())
+                .build();
+    }
+
+    /**
+     * @return number of prepared statements taken from the statement caches of the connections
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * @return number of prepared statements that had to be prepared because they were not cached
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Closes the pool and all idle connections. Connections that are currently borrowed
+     * are closed as soon as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        adder.shutdownNow();
+        unregisterMBean();
+
+        for (PoolEntry entry : entries) {
+            if (bag.reserve(entry)) {
+                bag.remove(entry);
+                entries.remove(entry);
+                entry.closeQuietly();
+                connectionsClosed.increment();
+            }
+        }
+    }
+
+    /**
+     * Opens the minimum number of connections, {@link PoolConfig#getWarmupParallelism()} at a time,
+     * so a pool of remote connections starts in a few round trips instead of one per connection.
+     */
+    private void warmUp() {
+        List<Future<?>> connections = new ArrayList<>(config.getMinSize());
+        for (int i = 0; i < config.getMinSize(); ++i) {
+            allocated.incrementAndGet();
+            connections.add(adder.submit(() -> {
+                bag.add(createEntry());
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> connection : connections) {
+                connection.get();
+            }
+        } catch (ExecutionException e) {
+            close();
+            throw new ConnectionException(
+                    String.format("Failed to initialize pool '%s': %s", name, e.getCause().getMessage()), e.getCause()
+            );
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new ConnectionException(String.format("Interrupted while initializing pool '%s'", name), e);
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            ObjectName objectName = new ObjectName("com.vr61v.utils.pool:type=ConnectionPool,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new PoolMXBeanAdapter(this), objectName);
+            mbeanName = objectName;
+        } catch (JMException e) {
+            log.warning(String.format("Failed to register MBean of pool '%s': %s", name, e.getMessage()));
+        }
+    }
+
+    private void unregisterMBean() {
+        if (mbeanName == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(mbeanName)) {
+                server.unregisterMBean(mbeanName);
+            }
+        } catch (JMException e) {
+            log.warning(String.format("Failed to unregister MBean of pool '%s': %s", name, e.getMessage()));
+        }
+        mbeanName = null;
+    }
+
+    private PoolEntry createEntry() throws SQLException {
+        Connection connection = factory.open();
+        try {
+            StatementCache statements = config.getStatementCacheSize() > 0
+                    ? new StatementCache(config.getStatementCacheSize(), statementCacheHits, statementCacheMisses)
+                    : null;
+            PoolEntry entry = new PoolEntry(connection, maxLifetimeNanos, statements);
+            entries.add(entry);
+            connectionsCreated.increment();
+            return entry;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a slot for one more connection unless the pool already has {@code limit} of them.
+     */
+    private boolean tryAllocate(int limit) {
+        while (true) {
+            int current = allocated.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (allocated.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Called by the bag when a borrower found no idle connection: opens one more connection per
+     * waiting borrower that isn't already covered by a connection being opened.
+     */
+    private void onWaiting(int waiting) {
+        if (closed || allocated.get() >= config.getMaxSize()) {
+            return;
+        }
+
+        while (pending.get() < waiting && tryAllocate(config.getMaxSize())) {
+            pending.incrementAndGet();
+            if (!submitAdd(true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Opens a connection on the adder threads, the slot must be already taken with {@link #tryAllocate}.
+     */
+    private boolean submitAdd(boolean forWaiter) {
+        try {
+            adder.execute(() -> addConnection(forWaiter));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // the pool is being closed
+            allocated.decrementAndGet();
+            if (forWaiter) {
+                pending.decrementAndGet();
+            }
+            return false;
+        }
+    }
+
+    private void addConnection(boolean forWaiter) {
+        PoolEntry entry = null;
+        try {
+            if (!closed) {
+                entry = createEntry();
+            }
+        } catch (SQLException e) {
+            log.warning(String.format("Failed to open connection for pool '%s': %s", name, e.getMessage()));
+        } finally {
+            // Before the entry is handed out, so a borrower arriving after that asks for its own
+            if (forWaiter) {
+                pending.decrementAndGet();
+            }
+        }
+
+        if (entry == null) {
+            allocated.decrementAndGet();
+            return;
+        }
+        bag.add(entry);
+        if (closed && bag.reserve(entry)) {
+            bag.remove(entry);
+            entries.remove(entry);
+            entry.closeQuietly();
+            connectionsClosed.increment();
+        }
+    }
+
+    private boolean isValid(PoolEntry entry) {
+        try {
+            return entry.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection borrow(PoolEntry entry, long now) {
+        entry.borrowedAt = now;
+        entry.leakReported = false;
+        entry.dirty = 0;
+        if (leakDetectionNanos > 0) {
+            entry.borrowTrace = new Exception("Connection borrowed from pool '" + name + "' here");
+        }
+
+        return new PooledConnection(this, entry);
+    }
+
+    /**
+     * Takes back a connection closed by its borrower.
+     */
+    void release(PoolEntry entry) {
+        if (leakDetectionNanos > 0) {
+            entry.borrowTrace = null;
+        }
+
+        long now = System.nanoTime();
+        long held = now - entry.borrowedAt;
+        holdTime.record(held);
+        if (sizer != null) {
+            sizer.onReturn(held);
+        }
+        boolean reusable = !closed && !entry.broken && !entry.isExpired(now) && reset(entry);
+        if (reusable) {
+            entry.lastAccessed = now;
+            bag.requite(entry);
+        } else {
+            retire(entry, entry.broken ? "connection is broken" : "not reusable");
+        }
+    }
+
+    /**
+     * Returns the session of a connection to the state it had when it was opened:
+     * rolls back a transaction left open and restores changed session properties.
+     */
+    private boolean reset(PoolEntry entry) {
+        Connection connection = entry.connection;
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if ((entry.dirty & PoolEntry.DIRTY_READONLY) != 0) {
+                connection.setReadOnly(false);
+            }
+            if ((entry.dirty & PoolEntry.DIRTY_ISOLATION) != 0) {
+                connection.setTransactionIsolation(entry.defaultIsolation);
+            }
+            if ((entry.dirty & PoolEntry.DIRTY_SCHEMA) != 0) {
+                connection.setSchema(entry.defaultSchema);
+            }
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            log.log(Level.FINE, String.format("Failed to reset connection of pool '%s'", name), e);
+            return false;
+        }
+    }
+
+    private void retire(PoolEntry entry, String reason) {
+        bag.remove(entry);
+        if (entries.remove(entry)) {
+            allocated.decrementAndGet();
+            log.fine(() -> String.format("Closing connection of pool '%s': %s", name, reason));
+            entry.closeQuietly();
+            connectionsClosed.increment();
+            fill();
+            if (bag.getWaitingCount() > 0) {
+                onWaiting(bag.getWaitingCount());
+            }
+        }
+    }
+
+    /**
+     * Opens connections in the background until the pool is back to its target size.
+     * A failure is logged and retried on the next housekeeping run.
+     */
+    private void fill() {
+        while (!closed && tryAllocate(targetSize)) {
+            if (!submitAdd(false)) {
+                return;
+            }
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            if (sizer != null) {
+                int estimate = sizer.update(now, bag.getWaitingCount());
+                targetSize = Math.max(config.getMinSize(), Math.min(config.getMaxSize(), estimate));
+            }
+
+            for (PoolEntry entry : entries) {
+                if (entry.state.get() != PoolEntry.STATE_NOT_IN_USE) {
+                    continue;
+                }
+                if (entry.isExpired(now)) {
+                    if (bag.reserve(entry)) {
+                        retire(entry, "max lifetime reached");
+                    }
+                } else if (idleTimeoutNanos > 0 && now - entry.lastAccessed > idleTimeoutNanos && allocated.get() > targetSize && bag.reserve(entry)) {
+                    // retire() would open a replacement below the target only, so this shrinks the pool
+                    retire(entry, "idle timeout reached");
+                }
+            }
+
+            if (leakDetectionNanos > 0) {
+                for (PoolEntry entry : entries) {
+                    Throwable trace = entry.borrowTrace;
+                    if (entry.state.get() == PoolEntry.STATE_IN_USE && !entry.leakReported && trace != null && now - entry.borrowedAt > leakDetectionNanos) {
+                        entry.leakReported = true;
+                        leaks.increment();
+                        log.log(Level.WARNING, String.format(
+                                "Connection of pool '%s' is held for more than %d ms, possible leak",
+                                name, config.getLeakDetectionThreshold()
+                        ), trace);
+                    }
+                }
+            }
+
+            fill();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, String.format("Housekeeping of pool '%s' failed", name), e);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.vr61v.utils.pool;
+
+/**
+ * Management interface of {@link ConnectionPool}, registered in the platform MBean server
+ * under {@code com.vr61v.utils.pool:type=ConnectionPool,name=<pool name>} when
+ * {@link PoolConfig#isRegisterMBean()} is set. Durations are in milliseconds.
+ *
+ * @see PoolStatistics
+ */
+public interface ConnectionPoolMXBean {
+
+    int getMinSize();
+
+    int getMaxSize();
+
+    int getTotalConnections();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getPendingThreads();
+
+    long getAcquireCount();
+
+    double getAcquireWaitMeanMillis();
+
+    double getAcquireWaitP50Millis();
+
+    double getAcquireWaitP99Millis();
+
+    double getAcquireWaitMaxMillis();
+
+    double getHoldTimeMeanMillis();
+
+    double getHoldTimeP50Millis();
+
+    double getHoldTimeP99Millis();
+
+    double getHoldTimeMaxMillis();
+
+    long getAcquireTimeouts();
+
+    long getValidationFailures();
+
+    long getLeaks();
+
+    long getConnectionsCreated();
+
+    long getConnectionsClosed();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+}
@@ -0,0 +1,146 @@
+package com.vr61v.utils.pool;
+
+import com.vr61v.utils.PropertiesManager;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Settings of {@link ConnectionPool}.
+ * <p>
+ * Usually created from {@code application.properties} with {@link #fromProperties(String)}, where
+ * every key is resolved relative to the given prefix (e.g. {@code database.pool.max.size}).
+ * All durations are in milliseconds, {@code 0} disables the corresponding feature.
+ * <p>
+ * The pool keeps at least {@code minSize} connections and grows up to {@code maxSize} when
+ * borrowers have to wait, {@code size} sets both bounds to the same value (fixed-size pool).
+ */
+@Getter
+@Builder(toBuilder = true)
+public class PoolConfig {
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    /** Connections opened at startup and kept even when they are idle. */
+    @Builder.Default
+    private final int minSize = 5;
+
+    /** Upper bound of connections the pool may open under contention. */
+    @Builder.Default
+    private final int maxSize = 5;
+
+    /** How many connections are opened concurrently at startup and while the pool grows. */
+    @Builder.Default
+    private final int warmupParallelism = 4;
+
+    /**
+     * Whether the pool estimates the needed number of connections from the observed borrow
+     * rate, hold and wait times (Little's law) and keeps that many instead of only {@code minSize}.
+     */
+    @Builder.Default
+    private final boolean adaptive = false;
+
+    /**
+     * Prepared statements kept open per connection and reused for the same SQL text,
+     * so a query is parsed and planned once per connection.
+     */
+    @Builder.Default
+    private final int statementCacheSize = 0;
+
+    /** Whether the pool registers a {@link ConnectionPoolMXBean} in the platform MBean server. */
+    @Builder.Default
+    private final boolean registerMBean = false;
+
+    /** How idle connections are kept and handed out, see {@link PoolMode}. */
+    @Builder.Default
+    private final PoolMode mode = PoolMode.QUEUE;
+
+    /** How long a borrower waits for a free connection before {@code ConnectionException}. */
+    @Builder.Default
+    private final long acquireTimeout = 30_000;
+
+    /** Upper bound for the {@code Connection.isValid} check on borrow. */
+    @Builder.Default
+    private final long validationTimeout = 5_000;
+
+    /** Connections used more recently than this are handed out without the validation query. */
+    @Builder.Default
+    private final long validationInterval = 500;
+
+    /** Connections older than this are retired and replaced with fresh ones. */
+    @Builder.Default
+    private final long maxLifetime = 1_800_000;
+
+    /** Connections that stayed unused for this long are closed while the pool is above its minimum size. */
+    @Builder.Default
+    private final long idleTimeout = 600_000;
+
+    /** Connections held longer than this are reported as leaked together with the borrower stack. */
+    @Builder.Default
+    private final long leakDetectionThreshold = 0;
+
+    /** Period of the background task that trims, replaces and checks connections for leaks. */
+    @Builder.Default
+    private final long housekeepingPeriod = 30_000;
+
+    /**
+     * Reads the pool settings from {@code application.properties}.
+     *
+     * @param prefix prefix of the keys, e.g. {@code database} or {@code database.tests}
+     * @return configuration with defaults for all missing keys
+     */
+    public static PoolConfig fromProperties(String prefix) {
+        PoolConfig defaults = PoolConfig.builder().build();
+        int size = getInt(prefix + ".pool.size", defaults.maxSize);
+        int maxSize = getInt(prefix + ".pool.max.size", size);
+        return PoolConfig.builder()
+                .name(prefix)
+                .url(PropertiesManager.getProperty(prefix + ".url"))
+                .user(PropertiesManager.getProperty(prefix + ".user"))
+                .password(PropertiesManager.getProperty(prefix + ".password"))
+                .minSize(getInt(prefix + ".pool.min.size", Math.min(size, maxSize)))
+                .maxSize(maxSize)
+                .warmupParallelism(getInt(prefix + ".pool.warmup.parallelism", defaults.warmupParallelism))
+                .adaptive(Boolean.parseBoolean(PropertiesManager.getProperty(prefix + ".pool.adaptive")))
+                .statementCacheSize(getInt(prefix + ".pool.statement.cache.size", defaults.statementCacheSize))
+                .registerMBean(Boolean.parseBoolean(PropertiesManager.getProperty(prefix + ".pool.register.mbean")))
+                .mode(getMode(prefix + ".pool.mode", defaults.mode))
+                .acquireTimeout(getLong(prefix + ".pool.acquire.timeout.ms", defaults.acquireTimeout))
+                .validationTimeout(getLong(prefix + ".pool.validation.timeout.ms", defaults.validationTimeout))
+                .validationInterval(getLong(prefix + ".pool.validation.interval.ms", defaults.validationInterval))
+                .maxLifetime(getLong(prefix + ".pool.max.lifetime.ms", defaults.maxLifetime))
+                .idleTimeout(getLong(prefix + ".pool.idle.timeout.ms", defaults.idleTimeout))
+                .leakDetectionThreshold(getLong(prefix + ".pool.leak.detection.threshold.ms", defaults.leakDetectionThreshold))
+                .housekeepingPeriod(getLong(prefix + ".pool.housekeeping.period.ms", defaults.housekeepingPeriod))
+                .build();
+    }
+
+    public static class PoolConfigBuilder {
+
+        /**
+         * Sets both the minimum and the maximum size, the pool keeps exactly this many connections.
+         */
+        public PoolConfigBuilder size(int size) {
+            return minSize(size).maxSize(size);
+        }
+
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        String value = PropertiesManager.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static PoolMode getMode(String key, PoolMode defaultValue) {
+        String value = PropertiesManager.getProperty(key);
+        return value == null ? defaultValue : PoolMode.valueOf(value.trim().toUpperCase());
+    }
+
+    private static long getLong(String key, long defaultValue) {
+        String value = PropertiesManager.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.vr61v.utils.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookkeeping of one physical connection owned by {@link ConnectionPool}.
+ * <p>
+ * Keeps the connection timestamps, the borrower stack for leak detection and the set of
+ * session properties changed by the borrower, so only those have to be reset on return.
+ */
+final class PoolEntry {
+
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+    static final int STATE_RESERVED = -2;
+
+    static final int DIRTY_AUTOCOMMIT = 1;
+    static final int DIRTY_READONLY = 1 << 1;
+    static final int DIRTY_ISOLATION = 1 << 2;
+    static final int DIRTY_SCHEMA = 1 << 3;
+
+    final Connection connection;
+    final int defaultIsolation;
+    final String defaultSchema;
+    final long createdAt;
+    final long expiresAt;
+    /** Prepared statements of the connection, null when statement caching is disabled. */
+    final StatementCache statements;
+
+    /** One of the {@code STATE_*} constants, changed by {@link ConnectionBag} implementations. */
+    final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
+    volatile Throwable borrowTrace;
+    volatile boolean broken;
+
+    /*
+     * Read by the housekeeper without synchronization: a stale value only delays an eviction
+     * or a leak report by one housekeeping run, while volatile writes would slow down every borrow.
+     */
+    long lastAccessed;
+    long borrowedAt;
+    boolean leakReported;
+
+    /** Changed session properties, touched only by the thread that holds the connection. */
+    int dirty;
+
+    PoolEntry(Connection connection, long maxLifetimeNanos, StatementCache statements) throws SQLException {
+        this.connection = connection;
+        this.statements = statements;
+        this.defaultIsolation = connection.getTransactionIsolation();
+        this.defaultSchema = connection.getSchema();
+        this.createdAt = System.nanoTime();
+        this.lastAccessed = createdAt;
+        // Up to 2.5% of jitter keeps connections opened together from expiring together
+        long jitter = maxLifetimeNanos > 0 ? ThreadLocalRandom.current().nextLong(maxLifetimeNanos / 40 + 1) : 0;
+        this.expiresAt = maxLifetimeNanos > 0 ? createdAt + maxLifetimeNanos - jitter : Long.MAX_VALUE;
+    }
+
+    boolean isExpired(long now) {
+        return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+    }
+
+    /**
+     * Marks the connection as unusable when the error says the session itself is gone
+     * (SQL state class 08 - connection exception, 57P - operator intervention).
+     */
+    void checkBroken(SQLException e) {
+        String state = e.getSQLState();
+        if (state != null && (state.startsWith("08") || state.startsWith("57P"))) {
+            broken = true;
+        }
+    }
+
+    void closeQuietly() {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // the connection is being thrown away anyway
+        }
+    }
+
+}
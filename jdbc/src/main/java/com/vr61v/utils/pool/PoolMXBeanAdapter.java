@@ -0,0 +1,138 @@
+package com.vr61v.utils.pool;
+
+import com.vr61v.utils.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConnectionPoolMXBean} reading the values from the pool on every attribute access.
+ */
+final class PoolMXBeanAdapter implements ConnectionPoolMXBean {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConnectionPool pool;
+
+    PoolMXBeanAdapter(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int getMinSize() {
+        return pool.getConfig().getMinSize();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return pool.getConfig().getMaxSize();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return pool.getTotalConnections();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return pool.getActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return pool.getIdleConnections();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return pool.getPendingThreads();
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return acquireWait().getCount();
+    }
+
+    @Override
+    public double getAcquireWaitMeanMillis() {
+        return acquireWait().getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcquireWaitP50Millis() {
+        return acquireWait().getP50() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcquireWaitP99Millis() {
+        return acquireWait().getP99() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcquireWaitMaxMillis() {
+        return acquireWait().getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeMeanMillis() {
+        return holdTime().getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeP50Millis() {
+        return holdTime().getP50() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeP99Millis() {
+        return holdTime().getP99() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeMaxMillis() {
+        return holdTime().getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getAcquireTimeouts() {
+        return pool.acquireTimeouts.sum();
+    }
+
+    @Override
+    public long getValidationFailures() {
+        return pool.validationFailures.sum();
+    }
+
+    @Override
+    public long getLeaks() {
+        return pool.leaks.sum();
+    }
+
+    @Override
+    public long getConnectionsCreated() {
+        return pool.connectionsCreated.sum();
+    }
+
+    @Override
+    public long getConnectionsClosed() {
+        return pool.connectionsClosed.sum();
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return pool.getStatementCacheHits();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return pool.getStatementCacheMisses();
+    }
+
+    private LatencyHistogram.Snapshot acquireWait() {
+        return pool.acquireWait.snapshot();
+    }
+
+    private LatencyHistogram.Snapshot holdTime() {
+        return pool.holdTime.snapshot();
+    }
+
+}
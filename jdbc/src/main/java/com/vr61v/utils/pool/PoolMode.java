@@ -0,0 +1,22 @@
+package com.vr61v.utils.pool;
+
+/**
+ * Strategy of keeping idle connections in {@link ConnectionPool}.
+ */
+public enum PoolMode {
+
+    /**
+     * All idle connections are kept in one blocking deque, every borrow and return takes its lock.
+     * Waiting borrowers are served strictly in arrival order.
+     */
+    QUEUE,
+
+    /**
+     * Idle connections are kept in a lock-free list with per-thread affinity: a thread first
+     * tries the connections it used before, then scans the shared list starting from its own
+     * stripe, and only waits for a hand-off when every connection is busy. Gives the best
+     * throughput, but doesn't guarantee the order in which waiting borrowers are served.
+     */
+    STRIPED
+
+}
@@ -0,0 +1,75 @@
+package com.vr61v.utils.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates how many connections the pool needs from the observed load.
+ * <p>
+ * By Little's law the average number of connections in use is the borrow rate multiplied by
+ * the average hold time. The estimate is smoothed between housekeeping runs and increased
+ * when borrowers had to wait, so the pool grows ahead of a sustained burst and shrinks back
+ * once the load drops.
+ */
+final class PoolSizer {
+
+    private static final double SMOOTHING = 0.5;
+    private static final double HEADROOM = 1.25;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder holdNanos = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    private long windowStart = System.nanoTime();
+    private double arrivalRate;
+    private double holdTime;
+    private double waitTime;
+
+    void onBorrow(long waitedNanos) {
+        borrows.increment();
+        if (waitedNanos > 0) {
+            waits.increment();
+            waitNanos.add(waitedNanos);
+        }
+    }
+
+    void onReturn(long heldNanos) {
+        returns.increment();
+        holdNanos.add(heldNanos);
+    }
+
+    /**
+     * Closes the current observation window. Called by the housekeeper only.
+     *
+     * @param now     current {@link System#nanoTime()}
+     * @param waiting number of borrowers waiting right now
+     * @return estimated number of connections needed
+     */
+    int update(long now, int waiting) {
+        long elapsed = Math.max(1, now - windowStart);
+        windowStart = now;
+
+        long borrowed = borrows.sumThenReset();
+        long returned = returns.sumThenReset();
+        long held = holdNanos.sumThenReset();
+        long waited = waits.sumThenReset();
+        long waitedNanos = waitNanos.sumThenReset();
+
+        arrivalRate = smooth(arrivalRate, (double) borrowed / elapsed);
+        if (returned > 0) {
+            holdTime = smooth(holdTime, (double) held / returned);
+        }
+        waitTime = smooth(waitTime, waited > 0 ? (double) waitedNanos / waited : 0);
+
+        double inUse = arrivalRate * holdTime;
+        // Waits longer than the work itself mean the pool is the bottleneck, not the database
+        int backlog = waitTime > holdTime ? waiting : 0;
+        return (int) Math.ceil(inUse * HEADROOM) + backlog;
+    }
+
+    private static double smooth(double previous, double current) {
+        return SMOOTHING * current + (1 - SMOOTHING) * previous;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.vr61v.utils.pool;
+
+import com.vr61v.utils.metrics.LatencyHistogram;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * State of {@link ConnectionPool} at some moment, returned by {@link ConnectionPool#getStatistics()}.
+ * <p>
+ * Gauges describe the pool right now, counters and histograms are accumulated since the pool
+ * was created. Sustained {@code pending} borrowers and an acquire wait close to the hold time
+ * mean the pool is too small, idle connections with a short wait mean it can be shrunk.
+ */
+@Getter
+@Builder
+@ToString
+public class PoolStatistics {
+
+    private final String name;
+    private final int minSize;
+    private final int maxSize;
+
+    /** Open physical connections. */
+    private final int totalConnections;
+    /** Connections held by borrowers. */
+    private final int activeConnections;
+    /** Connections waiting for a borrower. */
+    private final int idleConnections;
+    /** Borrowers waiting for a connection. */
+    private final int pendingThreads;
+
+    /** Time from the {@code getConnection} call to the moment a connection was handed out. */
+    private final LatencyHistogram.Snapshot acquireWait;
+    /** Time from borrowing a connection to closing it. */
+    private final LatencyHistogram.Snapshot holdTime;
+
+    /** Borrowers that got no connection within the acquire timeout. */
+    private final long acquireTimeouts;
+    /** Connections that failed the validation on borrow. */
+    private final long validationFailures;
+    /** Connections reported as leaked by the leak detection. */
+    private final long leaks;
+    private final long connectionsCreated;
+    private final long connectionsClosed;
+
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+}
@@ -0,0 +1,168 @@
+package com.vr61v.utils.pool;
+
+import com.vr61v.utils.jdbc.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Logical connection handed out by {@link ConnectionPool}.
+ * <p>
+ * Every borrow gets its own instance, so a reference kept after {@link #close()} can't reach
+ * a connection used by somebody else. The connection remembers which session properties the
+ * borrower changed and which statements are still open, on close the statements are closed
+ * and the physical connection is returned to the pool.
+ * <p>
+ * With statement caching enabled statements prepared by {@link #prepareStatement(String)} and
+ * {@link #prepareStatement(String, int, int)} are taken from the {@link StatementCache} of the
+ * physical connection, the other variants are always prepared anew.
+ */
+final class PooledConnection extends DelegatingConnection {
+
+    private final ConnectionPool pool;
+    private final PoolEntry entry;
+    private List<PooledPreparedStatement> openStatements;
+    private boolean closed;
+
+    PooledConnection(ConnectionPool pool, PoolEntry entry) {
+        super(entry.connection);
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    @Override
+    protected Connection delegate() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection is closed", "08003");
+        }
+        return delegate;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        if (entry.statements == null) {
+            return super.prepareStatement(sql);
+        }
+        return prepareCached(new StatementCache.Key(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        if (entry.statements == null) {
+            return super.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        }
+        return prepareCached(new StatementCache.Key(sql, resultSetType, resultSetConcurrency));
+    }
+
+    private PreparedStatement prepareCached(StatementCache.Key key) throws SQLException {
+        Connection connection = delegate();
+        PreparedStatement statement = entry.statements.take(key);
+        if (statement == null) {
+            statement = connection.prepareStatement(key.sql(), key.resultSetType(), key.resultSetConcurrency());
+        }
+        return register(new PooledPreparedStatement(this, statement, key));
+    }
+
+    @Override
+    protected PreparedStatement wrapStatement(PreparedStatement statement, String sql) {
+        return register(new PooledPreparedStatement(this, statement, null));
+    }
+
+    private PreparedStatement register(PooledPreparedStatement pooled) {
+        if (openStatements == null) {
+            openStatements = new ArrayList<>(4);
+        }
+        openStatements.add(pooled);
+        return pooled;
+    }
+
+    @Override
+    protected SQLException handleException(SQLException e) {
+        checkBroken(e);
+        return e;
+    }
+
+    void checkBroken(SQLException e) {
+        entry.checkBroken(e);
+    }
+
+    void statementClosed(PooledPreparedStatement statement) {
+        if (openStatements != null) {
+            openStatements.remove(statement);
+        }
+    }
+
+    /**
+     * Puts a statement closed by the borrower back to the cache of the physical connection.
+     */
+    void cacheStatement(StatementCache.Key key, PreparedStatement statement) throws SQLException {
+        if (entry.broken) {
+            statement.close();
+        } else {
+            entry.statements.put(key, statement);
+        }
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        entry.dirty |= PoolEntry.DIRTY_AUTOCOMMIT;
+        super.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        entry.dirty |= PoolEntry.DIRTY_READONLY;
+        super.setReadOnly(readOnly);
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        entry.dirty |= PoolEntry.DIRTY_ISOLATION;
+        super.setTransactionIsolation(level);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        entry.dirty |= PoolEntry.DIRTY_SCHEMA;
+        super.setSchema(schema);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed || delegate.isClosed();
+    }
+
+    /**
+     * Closes the statements left open by the borrower and returns the connection to the pool.
+     * Repeated calls do nothing.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (openStatements != null) {
+            for (PooledPreparedStatement statement : new ArrayList<>(openStatements)) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // the connection is reset or thrown away by the pool anyway
+                }
+            }
+            openStatements = null;
+        }
+        pool.release(entry);
+    }
+
+    @Override
+    public String toString() {
+        return "Pooled " + delegate;
+    }
+
+}
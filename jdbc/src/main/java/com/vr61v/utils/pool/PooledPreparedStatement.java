@@ -0,0 +1,169 @@
+package com.vr61v.utils.pool;
+
+import com.vr61v.utils.jdbc.DelegatingPreparedStatement;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Statement created by {@link PooledConnection}.
+ * <p>
+ * Reports connection failures of the execute methods to the pool and unregisters itself
+ * from the connection on close. A statement taken from the {@link StatementCache} goes back
+ * to it on close: its parameters, batch and result set are cleared and the options changed by
+ * the borrower are restored, statements with options that can't be restored are closed.
+ */
+final class PooledPreparedStatement extends DelegatingPreparedStatement {
+
+    private final PooledConnection owner;
+    private final StatementCache.Key key;
+    private boolean closed;
+    private boolean reusable = true;
+
+    /* Values the options had before the borrower changed them, null if unchanged */
+    private Integer fetchSize;
+    private Integer fetchDirection;
+    private Integer maxRows;
+    private Integer queryTimeout;
+
+    /**
+     * @param key key of the statement in the statement cache, null if the statement is not cached
+     */
+    PooledPreparedStatement(PooledConnection owner, PreparedStatement delegate, StatementCache.Key key) {
+        super(owner, delegate);
+        this.owner = owner;
+        this.key = key;
+    }
+
+    @Override
+    protected PreparedStatement delegate() throws SQLException {
+        if (closed) {
+            throw new SQLException("Statement is closed");
+        }
+        return delegate;
+    }
+
+    @Override
+    protected SQLException handleException(SQLException e) {
+        owner.checkBroken(e);
+        return e;
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        if (fetchSize == null) {
+            fetchSize = delegate().getFetchSize();
+        }
+        super.setFetchSize(rows);
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        if (fetchDirection == null) {
+            fetchDirection = delegate().getFetchDirection();
+        }
+        super.setFetchDirection(direction);
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        if (maxRows == null) {
+            maxRows = delegate().getMaxRows();
+        }
+        super.setMaxRows(max);
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        if (queryTimeout == null) {
+            queryTimeout = delegate().getQueryTimeout();
+        }
+        super.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        reusable = false;
+        super.setLargeMaxRows(max);
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        reusable = false;
+        super.setMaxFieldSize(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        reusable = false;
+        super.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        reusable = false;
+        super.setCursorName(name);
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        reusable &= poolable;
+        super.setPoolable(poolable);
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        reusable = false;
+        super.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed || delegate.isClosed();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        owner.statementClosed(this);
+        if (key != null && reusable && reset()) {
+            owner.cacheStatement(key, delegate);
+        } else {
+            delegate.close();
+        }
+    }
+
+    private boolean reset() {
+        try {
+            ResultSet resultSet = delegate.getResultSet();
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            delegate.clearParameters();
+            delegate.clearBatch();
+            delegate.clearWarnings();
+            if (fetchSize != null) {
+                delegate.setFetchSize(fetchSize);
+            }
+            if (fetchDirection != null) {
+                delegate.setFetchDirection(fetchDirection);
+            }
+            if (maxRows != null) {
+                delegate.setMaxRows(maxRows);
+            }
+            if (queryTimeout != null) {
+                delegate.setQueryTimeout(queryTimeout);
+            }
+            return true;
+        } catch (SQLException e) {
+            owner.checkBroken(e);
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.vr61v.utils.pool;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * {@link ConnectionBag} of {@link PoolMode#QUEUE} mode: idle entries in one blocking deque.
+ * <p>
+ * Returned entries are put to the head of the deque, so the most recently used connections
+ * are reused first and the rest can reach the idle timeout. Borrowers are admitted by a fair
+ * semaphore with one permit per idle entry, so under contention connections go to waiters
+ * in arrival order and a thread returning a connection can't take it right back.
+ */
+final class QueueBag implements ConnectionBag {
+
+    private final BlockingDeque<PoolEntry> idle = new LinkedBlockingDeque<>();
+    private final Semaphore available = new Semaphore(0, true);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final IntConsumer waitingListener;
+
+    QueueBag(IntConsumer waitingListener) {
+        this.waitingListener = waitingListener;
+    }
+
+    @Override
+    public void add(PoolEntry entry) {
+        entry.state.set(PoolEntry.STATE_NOT_IN_USE);
+        idle.offerLast(entry);
+        available.release();
+    }
+
+    @Override
+    public PoolEntry borrow(long timeoutNanos) throws InterruptedException {
+        int waiting = waiters.incrementAndGet();
+        try {
+            // Zero timeout instead of tryAcquire() keeps the fairness: no barging past waiters
+            if (!available.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                waitingListener.accept(waiting);
+                if (!available.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    return null;
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        // A permit guarantees an entry in the deque: permits never outnumber idle entries
+        PoolEntry entry = idle.pollFirst();
+        entry.state.lazySet(PoolEntry.STATE_IN_USE);
+        return entry;
+    }
+
+    @Override
+    public void requite(PoolEntry entry) {
+        entry.state.lazySet(PoolEntry.STATE_NOT_IN_USE);
+        idle.offerFirst(entry);
+        available.release();
+    }
+
+    @Override
+    public boolean reserve(PoolEntry entry) {
+        if (!available.tryAcquire()) {
+            return false;
+        }
+
+        if (idle.remove(entry)) {
+            entry.state.set(PoolEntry.STATE_RESERVED);
+            return true;
+        }
+        available.release();
+        return false;
+    }
+
+    @Override
+    public void remove(PoolEntry entry) {
+        entry.state.set(PoolEntry.STATE_REMOVED);
+    }
+
+    @Override
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public int getWaitingCount() {
+        return waiters.get();
+    }
+
+}
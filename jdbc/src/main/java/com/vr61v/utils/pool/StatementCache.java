@@ -0,0 +1,96 @@
+package com.vr61v.utils.pool;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of the prepared statements of one physical connection.
+ * <p>
+ * A statement is taken out of the cache while a borrower uses it and put back on its logical
+ * close, so two open statements never share one physical statement. When the cache is full
+ * the least recently used statement is closed. The cache belongs to a {@link PoolEntry} and is
+ * touched only by the thread holding the connection, so it needs no synchronization.
+ */
+final class StatementCache {
+
+    /**
+     * Statements are reusable only for the same SQL text and the same result set options.
+     */
+    record Key(String sql, int resultSetType, int resultSetConcurrency) {
+    }
+
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+
+    /**
+     * @param maxSize maximum number of cached statements
+     * @param hits    pool-wide counter of statements found in the cache
+     * @param misses  pool-wide counter of statements prepared anew
+     */
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Takes the statement out of the cache.
+     *
+     * @return cached statement or null if the statement has to be prepared
+     */
+    PreparedStatement take(Key key) {
+        PreparedStatement statement = statements.remove(key);
+        if (statement == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return statement;
+    }
+
+    /**
+     * Puts a statement back after its logical close. If the cache already has a statement
+     * for the key or is full, a statement is closed.
+     */
+    void put(Key key, PreparedStatement statement) {
+        PreparedStatement previous = statements.put(key, statement);
+        if (previous != null) {
+            closeQuietly(previous);
+        }
+
+        if (statements.size() > maxSize) {
+            Iterator<PreparedStatement> eldest = statements.values().iterator();
+            closeQuietly(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes all cached statements, the connection itself stays open.
+     */
+    void clear() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // the server releases the statement with the connection anyway
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.vr61v.utils.transaction;
+
+import com.vr61v.exceptions.TransactionException;
+
+/**
+ * Handle of a transaction started by {@link TransactionManager#begin(TransactionOptions)}.
+ * <p>
+ * Meant for try-with-resources: a transaction that wasn't committed when the handle is closed
+ * is rolled back. A handle of a nested scope joins the outer transaction, its {@link #commit()}
+ * only marks the scope as completed and its rollback marks the whole transaction rollback-only.
+ * <pre>{@code
+ * try (Transaction transaction = transactionManager.begin()) {
+ *     repository.add(first);
+ *     repository.update(second);
+ *     transaction.commit();
+ * }
+ * }</pre>
+ */
+public final class Transaction implements AutoCloseable {
+
+    private final TransactionManager manager;
+    private final TransactionManager.Scope scope;
+    private boolean completed;
+
+    Transaction(TransactionManager manager, TransactionManager.Scope scope) {
+        this.manager = manager;
+        this.scope = scope;
+    }
+
+    /**
+     * Commits the transaction (or completes the nested scope).
+     *
+     * @throws TransactionException if the transaction is already completed, is marked
+     *                              rollback-only or the commit failed
+     */
+    public void commit() {
+        checkActive();
+        completed = true;
+        manager.end(scope, true);
+    }
+
+    /**
+     * Rolls back the transaction (or marks the outer transaction rollback-only).
+     *
+     * @throws TransactionException if the transaction is already completed
+     */
+    public void rollback() {
+        checkActive();
+        completed = true;
+        manager.end(scope, false);
+    }
+
+    /**
+     * @return whether the transaction will be rolled back regardless of {@link #commit()}
+     */
+    public boolean isRollbackOnly() {
+        return scope.rollbackOnly;
+    }
+
+    /**
+     * Marks the transaction to be rolled back when the outermost scope ends.
+     */
+    public void setRollbackOnly() {
+        checkActive();
+        scope.rollbackOnly = true;
+    }
+
+    /**
+     * Rolls back the transaction if it wasn't committed, repeated calls do nothing.
+     */
+    @Override
+    public void close() {
+        if (!completed) {
+            completed = true;
+            manager.end(scope, false);
+        }
+    }
+
+    private void checkActive() {
+        if (completed) {
+            throw new TransactionException("Transaction is already completed");
+        }
+    }
+
+}
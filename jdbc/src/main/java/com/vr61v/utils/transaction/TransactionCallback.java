@@ -0,0 +1,22 @@
+package com.vr61v.utils.transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Work executed by {@link TransactionManager#execute(TransactionOptions, TransactionCallback)}.
+ *
+ * @param <T> type of the result
+ */
+@FunctionalInterface
+public interface TransactionCallback<T> {
+
+    /**
+     * @param connection connection of the transaction, the same one repositories get from the
+     *                   transaction manager on this thread; it must not be committed or closed
+     * @return result returned from {@code execute}
+     * @throws SQLException to roll back the transaction
+     */
+    T doInTransaction(Connection connection) throws SQLException;
+
+}
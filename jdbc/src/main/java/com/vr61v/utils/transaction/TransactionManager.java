@@ -0,0 +1,332 @@
+package com.vr61v.utils.transaction;
+
+import com.vr61v.exceptions.TransactionException;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.jdbc.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link ConnectionManager} which binds a transaction to the current thread.
+ * <p>
+ * Outside of a transaction every {@link #getConnection()} call is passed to the wrapped
+ * manager, so repositories work in autocommit as before. Inside a transaction started by
+ * {@link #begin(TransactionOptions)} or {@link #execute(TransactionOptions, TransactionCallback)}
+ * all repositories created with this manager get the connection of the transaction: a burst
+ * of {@code add}/{@code update} calls borrows one connection and commits once, and either all
+ * of the changes are applied or none.
+ * <p>
+ * The connection handed out inside a transaction ignores {@code close()}, so the repository
+ * code needs no changes; {@code commit()}, {@code rollback()} and {@code setAutoCommit(true)}
+ * on it throw, because the transaction is completed by its owner only. Savepoints are allowed.
+ * <p>
+ * Scopes started while a transaction is already active on the thread join it. A failed nested
+ * scope marks the whole transaction rollback-only.
+ * <p>
+ * Caches in front of the repositories register actions with {@link #afterCompletion(Runnable)}
+ * or {@link #afterCompletion(Connection, Runnable)} to drop their entries once the changes of
+ * the transaction are committed (or rolled back): until then other connections still read the
+ * old rows and could cache them again.
+ *
+ * @see Transaction
+ * @see TransactionOptions
+ */
+public class TransactionManager implements ConnectionManager {
+
+    private static final Logger log = Logger.getLogger(TransactionManager.class.getName());
+
+    private final ConnectionManager connectionManager;
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+    /**
+     * @param connectionManager source of connections for transactions and for calls made outside of them
+     * @throws IllegalArgumentException if connectionManager is null
+     */
+    public TransactionManager(ConnectionManager connectionManager) {
+        if (connectionManager == null) {
+            throw new IllegalArgumentException("Connection manager cannot be null");
+        }
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * State of the transaction bound to a thread, shared by all nested scopes.
+     */
+    static final class Scope {
+        final TransactionalConnection connection;
+        final TransactionOptions options;
+        final Set<Runnable> afterCompletion = new LinkedHashSet<>();
+        int depth = 1;
+        boolean rollbackOnly;
+        boolean completed;
+
+        Scope(Connection physical, TransactionOptions options) {
+            this.connection = new TransactionalConnection(physical, this);
+            this.options = options;
+        }
+    }
+
+    /**
+     * @return connection of the current transaction or a connection of the wrapped manager
+     *         if no transaction is active on this thread
+     */
+    @Override
+    public Connection getConnection() {
+        Scope scope = currentScope.get();
+        return scope == null ? connectionManager.getConnection() : scope.connection;
+    }
+
+    /**
+     * @return whether a transaction is active on the current thread
+     */
+    public boolean isTransactionActive() {
+        return currentScope.get() != null;
+    }
+
+    /**
+     * Registers an action to run when the transaction active on the current thread ends,
+     * after its commit or rollback and after the connection is returned. Actions run in the
+     * order of registration, an action registered several times runs once. A failing action
+     * is logged and doesn't prevent the others.
+     *
+     * @param action the action to run, must not be null
+     * @return false if no transaction is active on the current thread, the action is not run then
+     * @throws IllegalArgumentException if action is null
+     */
+    public boolean afterCompletion(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null");
+        }
+
+        Scope scope = currentScope.get();
+        if (scope == null) {
+            return false;
+        }
+        scope.afterCompletion.add(action);
+        return true;
+    }
+
+    /**
+     * Registers an action to run when the transaction of the connection ends, see
+     * {@link #afterCompletion(Runnable)}. For repositories, which only see the connections
+     * of their {@link ConnectionManager}: the connection may be wrapped, e.g. by an
+     * instrumenting connection manager, as long as its wrappers support {@code unwrap}.
+     *
+     * @param connection the connection used by the caller, must not be null
+     * @param action     the action to run, must not be null
+     * @return false if the connection doesn't belong to an active transaction of a
+     *         TransactionManager, the action is not run then
+     * @throws IllegalArgumentException if connection or action is null
+     */
+    public static boolean afterCompletion(Connection connection, Runnable action) {
+        if (connection == null || action == null) {
+            throw new IllegalArgumentException("Connection and action cannot be null");
+        }
+
+        Scope scope;
+        try {
+            if (!connection.isWrapperFor(TransactionalConnection.class)) {
+                return false;
+            }
+            scope = connection.unwrap(TransactionalConnection.class).scope;
+        } catch (SQLException e) {
+            return false;
+        }
+        if (scope.completed) {
+            return false;
+        }
+        scope.afterCompletion.add(action);
+        return true;
+    }
+
+    /**
+     * Starts a read-write transaction with the default isolation, see {@link #begin(TransactionOptions)}.
+     */
+    public Transaction begin() {
+        return begin(TransactionOptions.DEFAULT);
+    }
+
+    /**
+     * Starts a transaction bound to the current thread or joins the active one.
+     *
+     * @param options isolation and read-only hint of the transaction, must not be null
+     * @return handle which must be committed or closed on the same thread
+     * @throws IllegalArgumentException if options is null
+     * @throws TransactionException if the connection can't be prepared for the transaction or
+     *                              the options conflict with the transaction being joined
+     */
+    public Transaction begin(TransactionOptions options) {
+        if (options == null) {
+            throw new IllegalArgumentException("Transaction options cannot be null");
+        }
+
+        Scope scope = currentScope.get();
+        if (scope != null) {
+            join(scope, options);
+            return new Transaction(this, scope);
+        }
+
+        Connection connection = connectionManager.getConnection();
+        try {
+            if (options.isReadOnly()) {
+                connection.setReadOnly(true);
+            }
+            if (options.hasIsolation()) {
+                connection.setTransactionIsolation(options.getIsolation());
+            }
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new TransactionException(String.format("Failed to begin transaction: %s", e.getMessage()), e);
+        }
+
+        scope = new Scope(connection, options);
+        currentScope.set(scope);
+        return new Transaction(this, scope);
+    }
+
+    /**
+     * Runs the callback in a read-write transaction, see {@link #execute(TransactionOptions, TransactionCallback)}.
+     */
+    public <T> T execute(TransactionCallback<T> callback) {
+        return execute(TransactionOptions.DEFAULT, callback);
+    }
+
+    /**
+     * Runs the callback in a transaction and commits it if the callback returns normally.
+     * Any exception of the callback rolls the transaction back.
+     *
+     * @param options  isolation and read-only hint of the transaction, must not be null
+     * @param callback work to do, must not be null
+     * @return result of the callback
+     * @throws TransactionException if the callback threw {@link SQLException} or the transaction
+     *                              couldn't be started or committed
+     */
+    public <T> T execute(TransactionOptions options, TransactionCallback<T> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Transaction callback cannot be null");
+        }
+
+        try (Transaction transaction = begin(options)) {
+            T result = callback.doInTransaction(getConnection());
+            transaction.commit();
+            return result;
+        } catch (SQLException e) {
+            throw new TransactionException(e.getMessage(), e);
+        }
+    }
+
+    private void join(Scope scope, TransactionOptions options) {
+        if (scope.options.isReadOnly() && !options.isReadOnly()) {
+            throw new TransactionException("Cannot join read-only transaction with a read-write scope");
+        }
+        if (options.hasIsolation() && options.getIsolation() != scope.options.getIsolation()) {
+            throw new TransactionException(String.format(
+                    "Cannot join transaction with isolation %s by a scope requiring %s",
+                    TransactionOptions.isolationName(scope.options.getIsolation()),
+                    TransactionOptions.isolationName(options.getIsolation())
+            ));
+        }
+        scope.depth++;
+    }
+
+    /**
+     * Ends a scope started by {@link #begin(TransactionOptions)}, the outermost scope completes
+     * the transaction and returns the connection to the wrapped manager.
+     */
+    void end(Scope scope, boolean commit) {
+        if (currentScope.get() != scope) {
+            throw new TransactionException("Transaction is not active on the current thread");
+        }
+        if (--scope.depth > 0) {
+            scope.rollbackOnly |= !commit;
+            return;
+        }
+
+        currentScope.remove();
+        Connection connection = scope.connection.physical();
+        try {
+            if (commit && !scope.rollbackOnly) {
+                connection.commit();
+            } else {
+                connection.rollback();
+                if (commit) {
+                    throw new TransactionException("Transaction was marked rollback-only and has been rolled back");
+                }
+            }
+        } catch (SQLException e) {
+            throw new TransactionException(String.format(
+                    "Failed to %s transaction: %s", commit ? "commit" : "roll back", e.getMessage()
+            ), e);
+        } finally {
+            closeQuietly(connection);
+            scope.completed = true;
+            runAfterCompletion(scope);
+        }
+    }
+
+    private static void runAfterCompletion(Scope scope) {
+        for (Runnable action : scope.afterCompletion) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "After-completion action of a transaction failed", e);
+            }
+        }
+        scope.afterCompletion.clear();
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // a pooled connection resets autocommit, isolation and read-only on close anyway
+        }
+    }
+
+    /**
+     * Connection of an active transaction as seen by the code running inside of it.
+     */
+    private static final class TransactionalConnection extends DelegatingConnection {
+
+        private final Scope scope;
+
+        TransactionalConnection(Connection delegate, Scope scope) {
+            super(delegate);
+            this.scope = scope;
+        }
+
+        Connection physical() {
+            return delegate;
+        }
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) throws SQLException {
+            if (autoCommit) {
+                throw new SQLException("Cannot enable autocommit inside a transaction managed by TransactionManager");
+            }
+        }
+
+        @Override
+        public void commit() throws SQLException {
+            throw new SQLException("Cannot commit a transaction managed by TransactionManager");
+        }
+
+        @Override
+        public void rollback() throws SQLException {
+            throw new SQLException("Cannot roll back a transaction managed by TransactionManager");
+        }
+
+        @Override
+        public void close() {
+            // the connection is closed when the transaction ends
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.vr61v.utils.transaction;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.sql.Connection;
+
+/**
+ * Settings of a transaction started by {@link TransactionManager}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class TransactionOptions {
+
+    public static final int DEFAULT_ISOLATION = -1;
+
+    /** Read-write transaction with the default isolation of the connection. */
+    public static final TransactionOptions DEFAULT = TransactionOptions.builder().build();
+
+    /** Read-only transaction with the default isolation of the connection. */
+    public static final TransactionOptions READ_ONLY = TransactionOptions.builder().readOnly(true).build();
+
+    /**
+     * One of the {@code Connection.TRANSACTION_*} constants, {@link #DEFAULT_ISOLATION} keeps
+     * the isolation level of the connection (read committed for Postgres).
+     */
+    @Builder.Default
+    private final int isolation = DEFAULT_ISOLATION;
+
+    /**
+     * Hints the database that the transaction doesn't modify data, Postgres rejects writes
+     * in such transactions and can skip some locking.
+     */
+    @Builder.Default
+    private final boolean readOnly = false;
+
+    /**
+     * @param isolation one of the {@code Connection.TRANSACTION_*} constants
+     * @return read-write transaction options with the given isolation
+     */
+    public static TransactionOptions isolation(int isolation) {
+        return TransactionOptions.builder().isolation(isolation).build();
+    }
+
+    boolean hasIsolation() {
+        return isolation != DEFAULT_ISOLATION;
+    }
+
+    static String isolationName(int isolation) {
+        return switch (isolation) {
+            case Connection.TRANSACTION_NONE -> "NONE";
+            case Connection.TRANSACTION_READ_UNCOMMITTED -> "READ UNCOMMITTED";
+            case Connection.TRANSACTION_READ_COMMITTED -> "READ COMMITTED";
+            case Connection.TRANSACTION_REPEATABLE_READ -> "REPEATABLE READ";
+            case Connection.TRANSACTION_SERIALIZABLE -> "SERIALIZABLE";
+            default -> "DEFAULT";
+        };
+    }
+
+}
@@ -0,0 +1,117 @@
+import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.repositories.AsyncRepository;
+import com.vr61v.repositories.Repository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class AsyncRepositoryTests {
+
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+    private final List<List<String>> lookups = new CopyOnWriteArrayList<>();
+    private AsyncRepository<String> async;
+
+    /**
+     * Repository whose entities are their identifiers, records the lookups and the threads
+     * they ran on. Ids starting with "fail" make findAllById throw.
+     */
+    @SuppressWarnings("unchecked")
+    private Repository<String> recordingRepository() {
+        return (Repository<String>) Proxy.newProxyInstance(
+                AsyncRepositoryTests.class.getClassLoader(),
+                new Class[] {Repository.class},
+                (proxy, method, args) -> {
+                    threads.add(Thread.currentThread().getName());
+                    return switch (method.getName()) {
+                        case "findById" -> Optional.of((String) args[0]);
+                        case "findAllById" -> {
+                            List<String> ids = (List<String>) args[0];
+                            lookups.add(ids);
+                            if (ids.stream().anyMatch(id -> id.startsWith("fail"))) {
+                                throw new RepositoryException("lookup failed");
+                            }
+                            yield new ArrayList<>(ids);
+                        }
+                        default -> null;
+                    };
+                }
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if (async != null) {
+            async.close();
+        }
+    }
+
+
+    @Test
+    public void findByIdAsync_WhenCalled_ThenShouldRunOnExecutorThread() {
+        async = AsyncRepository.withBoundedExecutor(recordingRepository(), 2, 10);
+        assertEquals(Optional.of("1"), async.findByIdAsync("1").join());
+        assertTrue(threads.get(0).startsWith("async-repository-"));
+    }
+
+    @Test
+    public void findAllByIdAsync_WhenIdsExceedChunkSize_ThenShouldMergeChunksInOrder() {
+        async = AsyncRepository.withBoundedExecutor(recordingRepository(), 2, 10);
+        List<String> ids = List.of("1", "2", "3", "4", "5");
+
+        assertEquals(ids, async.findAllByIdAsync(ids, 2).join());
+        assertEquals(3, lookups.size());
+        assertTrue(lookups.stream().allMatch(chunk -> chunk.size() <= 2));
+    }
+
+    @Test
+    public void findAllByIdAsync_WhenChunkFails_ThenShouldCompleteExceptionally() {
+        async = AsyncRepository.withBoundedExecutor(recordingRepository(), 2, 10);
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> async.findAllByIdAsync(List.of("1", "2", "fail"), 2).join());
+        assertTrue(e.getCause() instanceof RepositoryException);
+    }
+
+    @Test
+    public void findAllByIdAsync_WhenIdsAreEmpty_ThenShouldThrowIllegalArgumentException() {
+        async = AsyncRepository.withBoundedExecutor(recordingRepository(), 2, 10);
+        assertThrows(IllegalArgumentException.class, () -> async.findAllByIdAsync(List.of()));
+    }
+
+    @Test
+    public void withVirtualThreads_WhenRuntimeHasNoVirtualThreads_ThenShouldFallBackToPlatformThreads() {
+        async = AsyncRepository.withVirtualThreads(recordingRepository(), 2);
+        assertEquals(Optional.of("1"), async.findByIdAsync("1").join());
+        if (!async.isVirtual()) {
+            assertTrue(threads.get(0).startsWith("async-repository-"));
+        }
+    }
+
+    @Test
+    public void findByIdAsync_WhenCalledAfterClose_ThenShouldCompleteExceptionally() {
+        async = AsyncRepository.withBoundedExecutor(recordingRepository(), 1, 1);
+        async.close();
+
+        CompletionException e = assertThrows(CompletionException.class, () -> async.findByIdAsync("1").join());
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertTrue(threads.isEmpty());
+    }
+
+    @Test
+    public void findByIdAsync_WhenVirtualFacadeIsClosed_ThenShouldCompleteExceptionally() {
+        async = AsyncRepository.withVirtualThreads(recordingRepository(), 2);
+        async.close();
+
+        CompletionException e = assertThrows(CompletionException.class, () -> async.findByIdAsync("1").join());
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+}
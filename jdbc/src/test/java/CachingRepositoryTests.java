@@ -0,0 +1,198 @@
+import com.vr61v.repositories.CacheStats;
+import com.vr61v.repositories.CachingRepository;
+import com.vr61v.repositories.Repository;
+import com.vr61v.utils.transaction.Transaction;
+import com.vr61v.utils.transaction.TransactionManager;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class CachingRepositoryTests {
+
+    private final List<List<String>> lookups = new CopyOnWriteArrayList<>();
+
+    /**
+     * Repository whose entities are their identifiers, ids starting with "x" don't exist.
+     * Records the identifiers of every lookup.
+     */
+    @SuppressWarnings("unchecked")
+    private Repository<String> recordingRepository() {
+        return (Repository<String>) Proxy.newProxyInstance(
+                CachingRepositoryTests.class.getClassLoader(),
+                new Class[] {Repository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> {
+                        lookups.add(List.of((String) args[0]));
+                        yield Optional.of((String) args[0]).filter(id -> !id.startsWith("x"));
+                    }
+                    case "findAllById" -> {
+                        List<String> ids = (List<String>) args[0];
+                        lookups.add(ids);
+                        yield ids.stream().filter(id -> !id.startsWith("x")).toList();
+                    }
+                    case "update", "delete" -> true;
+                    case "deleteAll" -> 0;
+                    default -> null;
+                }
+        );
+    }
+
+    private CachingRepository<String> cache(int maximumSize, Duration ttl) {
+        return new CachingRepository<>(recordingRepository(), Function.identity(), maximumSize, ttl);
+    }
+
+    /**
+     * Transaction manager over connections which accept every call and do nothing.
+     */
+    private static TransactionManager transactionManager() {
+        return new TransactionManager(() -> (Connection) Proxy.newProxyInstance(
+                CachingRepositoryTests.class.getClassLoader(),
+                new Class[] {Connection.class},
+                (proxy, method, args) -> method.getReturnType() == boolean.class ? false : null
+        ));
+    }
+
+
+    @Test
+    public void findById_WhenCalledTwice_ThenShouldQueryOnce() {
+        CachingRepository<String> repository = cache(10, null);
+
+        assertEquals(Optional.of("1"), repository.findById("1"));
+        assertEquals(Optional.of("1"), repository.findById("1"));
+
+        assertEquals(1, lookups.size());
+        CacheStats stats = repository.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(0.5, stats.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void findAllById_WhenSomeIdsCached_ThenShouldQueryOnlyMissingIds() {
+        CachingRepository<String> repository = cache(10, null);
+        repository.findById("2");
+
+        assertEquals(List.of("1", "2", "3"), repository.findAllById(List.of("1", "2", "x", "3", "1")));
+        assertEquals(List.of("1", "x", "3"), lookups.get(1));
+        assertEquals(List.of("1", "3"), repository.findAllById(List.of("1", "3")));
+        assertEquals(2, lookups.size());
+    }
+
+    @Test
+    public void findById_WhenCacheIsFull_ThenShouldEvictLeastRecentlyUsed() {
+        CachingRepository<String> repository = cache(2, null);
+        repository.findById("1");
+        repository.findById("2");
+        repository.findById("1");
+        repository.findById("3");
+
+        repository.findById("1");
+        repository.findById("2");
+
+        assertEquals(List.of("2"), lookups.get(lookups.size() - 1));
+        assertEquals(4, lookups.size());
+        assertEquals(2, repository.getStats().getEvictions());
+    }
+
+    @Test
+    public void findById_WhenTtlExpired_ThenShouldQueryAgain() throws InterruptedException {
+        CachingRepository<String> repository = cache(10, Duration.ofMillis(20));
+        repository.findById("1");
+        Thread.sleep(50);
+        repository.findById("1");
+
+        assertEquals(2, lookups.size());
+    }
+
+    @Test
+    public void update_WhenEntityCached_ThenShouldInvalidateIt() {
+        CachingRepository<String> repository = cache(10, null);
+        repository.findById("1");
+        repository.findById("2");
+
+        repository.update("1");
+        repository.findById("1");
+        repository.findById("2");
+
+        assertEquals(3, lookups.size());
+    }
+
+    @Test
+    public void deleteAll_WhenFilterGiven_ThenShouldClearCache() {
+        CachingRepository<String> repository = cache(10, null);
+        repository.findById("1");
+
+        repository.deleteAll(() -> Map.of("book_ref = ?", "000000"));
+
+        assertEquals(0, repository.getStats().getSize());
+    }
+
+    @Test
+    public void constructor_WhenMaximumSizeIsNotPositive_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> cache(0, null));
+    }
+
+    @Test
+    public void update_WhenOtherThreadCachesEntityBeforeCommit_ThenShouldInvalidateItAfterCommit() throws Exception {
+        TransactionManager transactionManager = transactionManager();
+        CachingRepository<String> repository = new CachingRepository<>(
+                recordingRepository(), Function.identity(), 10, null, transactionManager);
+
+        try (Transaction transaction = transactionManager.begin()) {
+            repository.update("1");
+            // a reader on another connection still sees the committed (old) row and caches it
+            Thread reader = new Thread(() -> repository.findById("1"));
+            reader.start();
+            reader.join();
+            assertEquals(1, repository.getStats().getSize());
+            transaction.commit();
+        }
+
+        assertEquals(0, repository.getStats().getSize());
+        repository.findById("1");
+        assertEquals(2, lookups.size());
+    }
+
+    @Test
+    public void findById_WhenOtherThreadCachedEntityInsideTransaction_ThenShouldQueryRepository() throws Exception {
+        TransactionManager transactionManager = transactionManager();
+        CachingRepository<String> repository = new CachingRepository<>(
+                recordingRepository(), Function.identity(), 10, null, transactionManager);
+
+        try (Transaction transaction = transactionManager.begin()) {
+            repository.update("1");
+            Thread reader = new Thread(() -> repository.findById("1"));
+            reader.start();
+            reader.join();
+
+            repository.findById("1");
+            repository.findAllById(List.of("1"));
+            assertEquals(3, lookups.size());
+            assertEquals(0, repository.getStats().getHits());
+            transaction.commit();
+        }
+    }
+
+    @Test
+    public void findById_WhenInsideTransaction_ThenShouldNotCacheResult() {
+        TransactionManager transactionManager = transactionManager();
+        CachingRepository<String> repository = new CachingRepository<>(
+                recordingRepository(), Function.identity(), 10, null, transactionManager);
+
+        try (Transaction transaction = transactionManager.begin()) {
+            repository.findById("1");
+            transaction.commit();
+        }
+
+        assertEquals(0, repository.getStats().getSize());
+    }
+
+}
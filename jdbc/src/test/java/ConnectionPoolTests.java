@@ -0,0 +1,309 @@
+import com.vr61v.exceptions.ConnectionException;
+import com.vr61v.utils.pool.ConnectionPool;
+import com.vr61v.utils.pool.PoolConfig;
+import com.vr61v.utils.pool.PoolMode;
+import com.vr61v.utils.pool.PoolStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class ConnectionPoolTests {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Object[] modes() {
+        return PoolMode.values();
+    }
+
+    @Parameterized.Parameter
+    public PoolMode mode;
+
+    private PoolConfig config;
+    private final List<StubConnection> opened = new CopyOnWriteArrayList<>();
+    private ConnectionPool pool;
+
+    /**
+     * In-memory imitation of a physical connection, keeps only the state the pool looks at.
+     */
+    private static class StubConnection {
+        boolean autoCommit = true;
+        boolean closed;
+        boolean valid = true;
+        int rollbacks;
+        final List<Boolean> statementsClosed = new CopyOnWriteArrayList<>();
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPoolTests.class.getClassLoader(),
+                    new Class[] {Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid;
+                        case "getTransactionIsolation" -> Connection.TRANSACTION_READ_COMMITTED;
+                        case "commit" -> throw new SQLException("An I/O error occurred while sending to the backend", "08006");
+                        case "prepareStatement" -> statement(statementsClosed.size());
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    }
+            );
+        }
+
+        PreparedStatement statement(int index) {
+            statementsClosed.add(false);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPoolTests.class.getClassLoader(),
+                    new Class[] {PreparedStatement.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> statementsClosed.set(index, true);
+                        case "isClosed" -> statementsClosed.get(index);
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> method.getReturnType() == int.class ? 0 : null;
+                    }
+            );
+        }
+    }
+
+    private ConnectionPool createPool(PoolConfig config) {
+        return new ConnectionPool(config, () -> {
+            StubConnection stub = new StubConnection();
+            opened.add(stub);
+            return stub.connection();
+        });
+    }
+
+    @Before
+    public void setUp() {
+        config = PoolConfig.builder()
+                .name("test")
+                .size(2)
+                .mode(mode)
+                .acquireTimeout(200)
+                .housekeepingPeriod(0)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void constructor_WhenCreated_ThenShouldOpenConfiguredNumberOfConnections() {
+        pool = createPool(config);
+        assertEquals(config.getMaxSize(), pool.getTotalConnections());
+        assertEquals(config.getMaxSize(), pool.getIdleConnections());
+    }
+
+    @Test
+    public void getConnection_WhenPoolIsExhausted_ThenShouldThrowConnectionException() {
+        pool = createPool(config);
+        pool.getConnection();
+        pool.getConnection();
+        assertThrows(ConnectionException.class, () -> pool.getConnection());
+    }
+
+    @Test
+    public void close_WhenConnectionClosed_ThenShouldReturnItToPool() throws SQLException {
+        pool = createPool(config);
+        Connection connection = pool.getConnection();
+        assertEquals(1, pool.getActiveConnections());
+
+        connection.close();
+        connection.close();
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(config.getMaxSize(), pool.getIdleConnections());
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    public void close_WhenConnectionUsedAfterClose_ThenShouldThrowSQLException() throws SQLException {
+        pool = createPool(config);
+        Connection connection = pool.getConnection();
+        connection.close();
+        assertThrows(SQLException.class, () -> connection.setAutoCommit(false));
+    }
+
+    @Test
+    public void close_WhenTransactionLeftOpen_ThenShouldRollbackAndRestoreAutoCommit() throws SQLException {
+        pool = createPool(config.toBuilder().size(1).build());
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        StubConnection stub = opened.get(0);
+        assertEquals(1, stub.rollbacks);
+        assertTrue(stub.autoCommit);
+        assertFalse(stub.closed);
+    }
+
+    @Test
+    public void close_WhenConnectionIsBroken_ThenShouldNotReturnItToPool() throws SQLException {
+        pool = createPool(config.toBuilder().size(1).build());
+        Connection connection = pool.getConnection();
+        assertThrows(SQLException.class, connection::commit);
+        connection.close();
+
+        assertTrue(opened.get(0).closed);
+    }
+
+    @Test
+    public void getConnection_WhenValidationFails_ThenShouldSkipInvalidConnection() {
+        pool = createPool(config.toBuilder().validationInterval(0).build());
+        opened.get(0).valid = false;
+
+        pool.getConnection();
+        pool.getConnection();
+
+        assertTrue(opened.get(0).closed);
+        assertEquals(2, pool.getActiveConnections());
+    }
+
+    @Test
+    public void constructor_WhenMinSizeIsLessThanMaxSize_ThenShouldOpenMinSizeConnections() {
+        pool = createPool(config.toBuilder().minSize(1).maxSize(4).build());
+        assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    public void getConnection_WhenAllConnectionsAreBusy_ThenShouldGrowUpToMaxSize() {
+        pool = createPool(config.toBuilder().minSize(1).maxSize(3).build());
+        pool.getConnection();
+        pool.getConnection();
+        pool.getConnection();
+
+        assertEquals(3, pool.getTotalConnections());
+        assertThrows(ConnectionException.class, () -> pool.getConnection());
+        assertEquals(3, opened.size());
+    }
+
+    @Test
+    public void housekeeping_WhenConnectionsAreIdle_ThenShouldShrinkToMinSize() throws Exception {
+        pool = createPool(config.toBuilder().minSize(1).maxSize(3).idleTimeout(50).housekeepingPeriod(20).build());
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        Connection third = pool.getConnection();
+        first.close();
+        second.close();
+        third.close();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getTotalConnections() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals(1, pool.getTotalConnections());
+        assertEquals(2, opened.stream().filter(stub -> stub.closed).count());
+    }
+
+    @Test
+    public void prepareStatement_WhenSameSqlPreparedAgain_ThenShouldReuseCachedStatement() throws SQLException {
+        pool = createPool(config.toBuilder().size(1).statementCacheSize(4).build());
+        for (int i = 0; i < 3; ++i) {
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                assertFalse(statement.isClosed());
+            }
+        }
+
+        StubConnection stub = opened.get(0);
+        assertEquals(List.of(false), stub.statementsClosed);
+        assertEquals(2, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void prepareStatement_WhenCacheIsFull_ThenShouldCloseLeastRecentlyUsedStatement() throws SQLException {
+        pool = createPool(config.toBuilder().size(1).statementCacheSize(1).build());
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement("SELECT 1").close();
+            connection.prepareStatement("SELECT 2").close();
+            connection.prepareStatement("SELECT 1").close();
+        }
+
+        StubConnection stub = opened.get(0);
+        assertEquals(List.of(true, true, false), stub.statementsClosed);
+        assertEquals(3, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void prepareStatement_WhenStatementCacheIsDisabled_ThenShouldCloseStatements() throws SQLException {
+        pool = createPool(config.toBuilder().size(1).build());
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement("SELECT 1").close();
+        }
+
+        assertEquals(List.of(true), opened.get(0).statementsClosed);
+        assertEquals(0, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void getStatistics_WhenConnectionsBorrowedAndTimedOut_ThenShouldCountThem() throws SQLException {
+        pool = createPool(config.toBuilder().size(1).validationInterval(0).build());
+        pool.getConnection().close();
+        Connection connection = pool.getConnection();
+        assertThrows(ConnectionException.class, () -> pool.getConnection());
+
+        PoolStatistics statistics = pool.getStatistics();
+        assertEquals(1, statistics.getActiveConnections());
+        assertEquals(0, statistics.getIdleConnections());
+        assertEquals(2, statistics.getAcquireWait().getCount());
+        assertEquals(1, statistics.getHoldTime().getCount());
+        assertEquals(1, statistics.getAcquireTimeouts());
+        assertEquals(0, statistics.getValidationFailures());
+        connection.close();
+    }
+
+    @Test
+    public void constructor_WhenMBeanRegistrationEnabled_ThenShouldExposeGauges() throws Exception {
+        pool = createPool(config.toBuilder().name("mbean-" + mode).registerMBean(true).build());
+        ObjectName name = new ObjectName("com.vr61v.utils.pool:type=ConnectionPool,name=\"mbean-" + mode + "\"");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try (Connection ignored = pool.getConnection()) {
+            assertEquals(1, server.getAttribute(name, "ActiveConnections"));
+            assertEquals(2, server.getAttribute(name, "TotalConnections"));
+        }
+        pool.close();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void getConnection_WhenPoolIsClosed_ThenShouldThrowConnectionException() {
+        pool = createPool(config);
+        pool.close();
+        assertThrows(ConnectionException.class, () -> pool.getConnection());
+        assertTrue(opened.stream().allMatch(stub -> stub.closed));
+    }
+}
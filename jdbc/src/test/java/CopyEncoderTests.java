@@ -0,0 +1,71 @@
+import com.vr61v.utils.jdbc.CopyEncoder;
+import com.vr61v.utils.jdbc.CopyFormat;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CopyEncoderTests {
+
+    private static byte[] encoded(CopyEncoder encoder) {
+        return Arrays.copyOf(encoder.buffer(), encoder.size());
+    }
+
+    @Test
+    public void writeText_WhenTextFormat_ThenShouldEscapeSpecialCharacters() {
+        CopyEncoder encoder = new CopyEncoder(CopyFormat.TEXT);
+        encoder.startRow(3);
+        encoder.writeText("a\tb\\c");
+        encoder.writeText(null);
+        encoder.writeJsonb("{\"note\":\"line\\nbreak\"}");
+        encoder.endRow();
+
+        assertEquals(
+                "a\\tb\\\\c\t\\N\t{\"note\":\"line\\\\nbreak\"}\n",
+                new String(encoded(encoder), StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    public void writeJsonb_WhenBinaryFormat_ThenShouldPrefixVersionAndLength() {
+        CopyEncoder encoder = new CopyEncoder(CopyFormat.BINARY);
+        encoder.startRow(2);
+        encoder.writeText("ab");
+        encoder.writeJsonb("{}");
+        encoder.endRow();
+
+        ByteBuffer row = ByteBuffer.wrap(encoded(encoder));
+        assertEquals(2, row.getShort());
+        assertEquals(2, row.getInt());
+        assertEquals('a', row.get());
+        assertEquals('b', row.get());
+        assertEquals(3, row.getInt());
+        assertEquals(1, row.get());
+        assertEquals('{', row.get());
+        assertEquals('}', row.get());
+        assertFalse(row.hasRemaining());
+    }
+
+    @Test
+    public void writeText_WhenBinaryFormatAndNull_ThenShouldWriteMinusOneLength() {
+        CopyEncoder encoder = new CopyEncoder(CopyFormat.BINARY);
+        encoder.startRow(1);
+        encoder.writeText(null);
+
+        ByteBuffer row = ByteBuffer.wrap(encoded(encoder));
+        assertEquals(1, row.getShort());
+        assertEquals(-1, row.getInt());
+    }
+
+    @Test
+    public void header_WhenBinaryFormat_ThenShouldStartWithSignature() {
+        byte[] header = new CopyEncoder(CopyFormat.BINARY).header();
+        assertEquals(19, header.length);
+        assertEquals("PGCOPY\n", new String(header, 0, 7, StandardCharsets.US_ASCII));
+        assertEquals(0, new CopyEncoder(CopyFormat.TEXT).header().length);
+    }
+
+}
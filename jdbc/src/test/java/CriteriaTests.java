@@ -0,0 +1,92 @@
+import com.vr61v.entities.ContactData;
+import com.vr61v.filters.Column;
+import com.vr61v.filters.Criteria;
+import com.vr61v.filters.TicketColumns;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CriteriaTests {
+
+    @Test
+    public void startsWith_WhenPrefixGiven_ThenShouldAddPrefixLike() {
+        Map<String, Object> parameters = Criteria.where()
+                .startsWith(TicketColumns.PASSENGER_NAME, "IVAN")
+                .toWhereParameters();
+
+        assertEquals(Map.of("passenger_name LIKE ?", "IVAN%"), parameters);
+    }
+
+    @Test
+    public void startsWith_WhenPrefixHasWildcards_ThenShouldEscapeThem() {
+        Map<String, Object> parameters = Criteria.where()
+                .startsWith(TicketColumns.PASSENGER_NAME, "z_%")
+                .toWhereParameters();
+
+        assertEquals(Map.of("passenger_name LIKE ?", "z\\_\\%%"), parameters);
+    }
+
+    @Test
+    public void like_WhenPatternHasNoWildcards_ThenShouldUseEquality() {
+        Map<String, Object> parameters = Criteria.where()
+                .like(TicketColumns.BOOK_REF, "000000")
+                .toWhereParameters();
+
+        assertEquals(Map.of("book_ref = CAST(? AS bpchar)", "000000"), parameters);
+    }
+
+    @Test
+    public void like_WhenPatternHasLeadingWildcard_ThenShouldKeepLike() {
+        Map<String, Object> parameters = Criteria.where()
+                .like(TicketColumns.PASSENGER_NAME, "%USER")
+                .toWhereParameters();
+
+        assertEquals(Map.of("passenger_name LIKE ?", "%USER"), parameters);
+    }
+
+    @Test
+    public void in_WhenValuesGiven_ThenShouldBindSingleArray() {
+        Map<String, Object> parameters = Criteria.where()
+                .in(TicketColumns.TICKET_NO, List.of("0000000000001", "0000000000002"))
+                .toWhereParameters();
+
+        Object value = parameters.get("ticket_no = ANY (CAST(? AS bpchar[]))");
+        assertArrayEquals(new String[] {"0000000000001", "0000000000002"}, (String[]) value);
+    }
+
+    @Test
+    public void contains_WhenContactDataGiven_ThenShouldBindJson() {
+        Map<String, Object> parameters = Criteria.where()
+                .contains(TicketColumns.CONTACT_DATA, new ContactData("+70000000000", "mail@mail.com"))
+                .toWhereParameters();
+
+        String json = (String) parameters.get("contact_data @> CAST(? AS jsonb)");
+        assertTrue(json.contains("\"+70000000000\""));
+    }
+
+    @Test
+    public void after_WhenNotOrdered_ThenShouldOrderByCursorColumn() {
+        Criteria criteria = Criteria.where()
+                .after(TicketColumns.TICKET_NO, "0000000000005")
+                .limit(10);
+
+        assertEquals("0000000000005", criteria.toWhereParameters().get("ticket_no > CAST(? AS bpchar)"));
+        assertEquals(List.of("ticket_no ASC"), criteria.toOrderBy());
+        assertEquals(Integer.valueOf(10), criteria.getLimit());
+    }
+
+    @Test
+    public void eq_WhenConditionRepeated_ThenShouldThrowIllegalArgumentException() {
+        Criteria criteria = Criteria.where().eq(TicketColumns.BOOK_REF, "000000");
+        assertThrows(IllegalArgumentException.class, () -> criteria.eq(TicketColumns.BOOK_REF, "000001"));
+    }
+
+    @Test
+    public void of_WhenColumnNameIsNotIdentifier_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> Column.of("ticket_no; DROP TABLE tickets", "text"));
+    }
+
+}
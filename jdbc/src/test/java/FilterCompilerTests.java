@@ -0,0 +1,118 @@
+import com.vr61v.entities.ContactData;
+import com.vr61v.filters.CompiledFilter;
+import com.vr61v.filters.Criteria;
+import com.vr61v.filters.Filter;
+import com.vr61v.filters.FilterCompiler;
+import com.vr61v.filters.TicketColumns;
+import com.vr61v.filters.TicketFilter;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FilterCompilerTests {
+
+    private final FilterCompiler compiler = new FilterCompiler();
+
+    /**
+     * Filter returning the given conditions in the given order.
+     */
+    private static Filter orderedFilter(String... conditionsAndValues) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < conditionsAndValues.length; i += 2) {
+            parameters.put(conditionsAndValues[i], conditionsAndValues[i + 1]);
+        }
+        return () -> parameters;
+    }
+
+
+    @Test
+    public void compile_WhenConditionsComeInDifferentOrder_ThenShouldProduceSameSql() {
+        CompiledFilter first = compiler.compile(orderedFilter("passenger_name LIKE ?", "A", "book_ref LIKE ?", "B"));
+        CompiledFilter second = compiler.compile(orderedFilter("book_ref LIKE ?", "C", "passenger_name LIKE ?", "D"));
+
+        assertEquals(" WHERE book_ref LIKE ? AND passenger_name LIKE ?;", first.getWhereClause());
+        assertSame(first.getWhereClause(), second.getWhereClause());
+        assertEquals(List.of("B", "A"), first.getValues());
+        assertEquals(List.of("C", "D"), second.getValues());
+        assertEquals(1, compiler.getCachedShapes());
+    }
+
+    @Test
+    public void compile_WhenTicketFilterHasAllParameters_ThenShouldOrderConditionsAlphabetically() {
+        ContactData contactData = new ContactData("+70000000000", null);
+        CompiledFilter compiled = compiler.compile(new TicketFilter("000000", "1234 %", "%USER%", contactData));
+
+        assertEquals(List.of(
+                "book_ref = CAST(? AS bpchar)",
+                "contact_data @> CAST(? AS jsonb)",
+                "passenger_id LIKE ?",
+                "passenger_name LIKE ?"
+        ), compiled.getConditions());
+        assertEquals(List.of("1234 %", "%USER%"), compiled.getValues().subList(2, 4));
+    }
+
+    @Test
+    public void compile_WhenCriteriaHasOrderAndLimit_ThenShouldAppendThemToQueryClauseOnly() {
+        Criteria criteria = Criteria.where()
+                .eq(TicketColumns.BOOK_REF, "000000")
+                .orderByDesc(TicketColumns.TICKET_NO)
+                .limit(10);
+        CompiledFilter compiled = compiler.compile(criteria);
+
+        assertEquals(" WHERE book_ref = CAST(? AS bpchar);", compiled.getWhereClause());
+        assertEquals(" WHERE book_ref = CAST(? AS bpchar) ORDER BY ticket_no DESC LIMIT ?;", compiled.getQueryClause());
+        assertEquals(List.of("000000"), compiled.getValues());
+        assertEquals(List.of("000000", 10), compiled.getQueryValues());
+    }
+
+    @Test
+    public void compile_WhenCriteriaHasOnlyOrderAndLimit_ThenShouldProduceQueryClauseWithoutWhere() {
+        Criteria criteria = Criteria.where()
+                .orderByAsc(TicketColumns.TICKET_NO)
+                .limit(10);
+        CompiledFilter compiled = compiler.compile(criteria);
+
+        assertEquals(" ORDER BY ticket_no ASC LIMIT ?;", compiled.getQueryClause());
+        assertEquals(List.of(10), compiled.getQueryValues());
+    }
+
+    @Test
+    public void compile_WhenFilterIsEmpty_ThenShouldProduceClausesWithoutWhere() {
+        CompiledFilter compiled = compiler.compile(new TicketFilter(null, null, null, null));
+        assertEquals(";", compiled.getWhereClause());
+        assertEquals(";", compiled.getQueryClause());
+        assertTrue(compiled.getValues().isEmpty());
+    }
+
+    @Test
+    public void compileNonEmpty_WhenFilterIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> compiler.compileNonEmpty(new TicketFilter(null, null, null, null)));
+    }
+
+    @Test
+    public void compileNonEmpty_WhenFilterHasConditions_ThenShouldCompileLikeCompile() {
+        CompiledFilter compiled = compiler.compileNonEmpty(new TicketFilter("000000", null, null, null));
+        assertEquals(" WHERE book_ref = CAST(? AS bpchar);", compiled.getWhereClause());
+        assertEquals(List.of("000000"), compiled.getValues());
+    }
+
+    @Test
+    public void compile_WhenShapeLimitReached_ThenShouldCompileWithoutCaching() {
+        FilterCompiler limited = new FilterCompiler(1);
+        limited.compile(orderedFilter("book_ref LIKE ?", "A"));
+        CompiledFilter compiled = limited.compile(orderedFilter("passenger_id LIKE ?", "B"));
+
+        assertEquals(" WHERE passenger_id LIKE ?;", compiled.getWhereClause());
+        assertEquals(1, limited.getCachedShapes());
+    }
+
+    @Test
+    public void compile_WhenFilterIsNull_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(null));
+    }
+
+}
@@ -0,0 +1,126 @@
+import com.vr61v.entities.Airport;
+import com.vr61v.entities.Flight;
+import com.vr61v.entities.LocalizedString;
+import com.vr61v.mappers.AirportMapper;
+import com.vr61v.mappers.FlightMapper;
+import org.junit.Test;
+import org.postgresql.util.PGobject;
+
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GeneratedMapperTests {
+
+    private static final OffsetDateTime DEPARTURE = OffsetDateTime.parse("2017-08-15T10:00:00+03:00");
+
+    /**
+     * Result set positioned on one row, fails on lookups of columns by name.
+     */
+    private static ResultSet row(Object... values) {
+        return (ResultSet) Proxy.newProxyInstance(
+                GeneratedMapperTests.class.getClassLoader(),
+                new Class[] {ResultSet.class},
+                (proxy, method, args) -> {
+                    if (!(args[0] instanceof Integer index)) {
+                        throw new AssertionError("Column read by name: " + args[0]);
+                    }
+                    return values[index - 1];
+                }
+        );
+    }
+
+    /**
+     * Statement which records the bound parameters by index.
+     */
+    private static PreparedStatement recordingStatement(Map<Integer, Object> parameters) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                GeneratedMapperTests.class.getClassLoader(),
+                new Class[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("set")) {
+                        parameters.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                }
+        );
+    }
+
+    /**
+     * Connection whose arrays are their elements.
+     */
+    private static Connection arrayConnection() {
+        return (Connection) Proxy.newProxyInstance(
+                GeneratedMapperTests.class.getClassLoader(),
+                new Class[] {Connection.class},
+                (proxy, method, args) -> Proxy.newProxyInstance(
+                        GeneratedMapperTests.class.getClassLoader(),
+                        new Class[] {Array.class},
+                        (array, arrayMethod, arrayArgs) -> args[1]
+                )
+        );
+    }
+
+
+    @Test
+    public void mapRow_WhenFlightRowGiven_ThenShouldReadColumnsByIndex() throws Exception {
+        ResultSet result = row(1, "PG0403", DEPARTURE, DEPARTURE.plusHours(1), "DME", "LED",
+                "Scheduled", "321", null, null);
+
+        Flight flight = new FlightMapper().mapRow(result);
+
+        assertEquals(new Flight(1, "PG0403", DEPARTURE, DEPARTURE.plusHours(1), "DME", "LED",
+                "Scheduled", "321", null, null), flight);
+    }
+
+    @Test
+    public void mapRow_WhenJsonColumnGiven_ThenShouldReadItWithJackson() throws Exception {
+        ResultSet result = row("DME", "{\"en\": \"Domodedovo\", \"ru\": \"Домодедово\"}", null,
+                "(37.90,55.41)", "Europe/Moscow");
+
+        Airport airport = new AirportMapper().mapRow(result);
+
+        assertEquals(new LocalizedString("Domodedovo", "Домодедово"), airport.getAirportName());
+        assertNull(airport.getCity());
+    }
+
+    @Test
+    public void bind_WhenAirportGiven_ThenShouldBindTypedParameters() throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+        Airport airport = new Airport("DME", new LocalizedString("Domodedovo", "Домодедово"), null,
+                "(37.90,55.41)", "Europe/Moscow");
+
+        int next = new AirportMapper().bind(recordingStatement(parameters), 1, airport);
+
+        assertEquals(6, next);
+        assertEquals("DME", parameters.get(1));
+        assertEquals("jsonb", ((PGobject) parameters.get(2)).getType());
+        assertNull(((PGobject) parameters.get(3)).getValue());
+        assertEquals("(37.90,55.41)", parameters.get(4));
+    }
+
+    @Test
+    public void bindArrays_WhenFlightsGiven_ThenShouldBindOneArrayPerColumn() throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+        List<Flight> flights = List.of(
+                new Flight(1, "PG0403", DEPARTURE, DEPARTURE, "DME", "LED", "Scheduled", "321", null, null),
+                new Flight(2, "PG0404", DEPARTURE, DEPARTURE, "DME", "LED", "Scheduled", "321", null, null)
+        );
+
+        int next = new FlightMapper().bindArrays(arrayConnection(), recordingStatement(parameters), 1, flights);
+
+        assertEquals(11, next);
+        assertArrayEquals(new String[] {"1", "2"}, (Object[]) ((Array) parameters.get(1)).getArray());
+        assertArrayEquals(new String[] {DEPARTURE.toString(), DEPARTURE.toString()}, (Object[]) ((Array) parameters.get(3)).getArray());
+        assertArrayEquals(new String[] {null, null}, (Object[]) ((Array) parameters.get(9)).getArray());
+    }
+
+}
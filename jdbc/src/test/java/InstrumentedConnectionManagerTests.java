@@ -0,0 +1,259 @@
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.metrics.InstrumentedConnectionManager;
+import com.vr61v.utils.metrics.SqlFingerprint;
+import com.vr61v.utils.metrics.StatementStatistics;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedConnectionManagerTests {
+
+    private static final int ROWS = 3;
+
+    /**
+     * Connections whose queries return three rows, updates change one row per statement
+     * and statements containing "fail" throw as if cancelled by statement_timeout.
+     */
+    private static ConnectionManager stubConnections() {
+        return () -> (Connection) Proxy.newProxyInstance(
+                InstrumentedConnectionManagerTests.class.getClassLoader(),
+                new Class[] {Connection.class},
+                (connection, method, args) -> method.getName().equals("prepareStatement") ? statement((String) args[0]) : null
+        );
+    }
+
+    private static PreparedStatement statement(String sql) {
+        int[] batch = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(
+                InstrumentedConnectionManagerTests.class.getClassLoader(),
+                new Class[] {PreparedStatement.class},
+                (statement, method, args) -> {
+                    if (sql.contains("fail") && method.getName().startsWith("execute")) {
+                        throw new SQLException("canceling statement due to statement timeout", "57014");
+                    }
+                    return switch (method.getName()) {
+                        case "executeQuery" -> rows();
+                        case "executeUpdate" -> 1;
+                        case "addBatch" -> {
+                            ++batch[0];
+                            yield null;
+                        }
+                        case "executeBatch" -> {
+                            int[] counts = new int[batch[0]];
+                            Arrays.fill(counts, 1);
+                            batch[0] = 0;
+                            yield counts;
+                        }
+                        default -> null;
+                    };
+                }
+        );
+    }
+
+    private static ResultSet rows() {
+        int[] row = {0};
+        return (ResultSet) Proxy.newProxyInstance(
+                InstrumentedConnectionManagerTests.class.getClassLoader(),
+                new Class[] {ResultSet.class},
+                (result, method, args) -> method.getName().equals("next") ? ++row[0] <= ROWS : null
+        );
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run(InstrumentedConnectionManager manager) throws SQLException;
+    }
+
+    /**
+     * Runs the work with a manager logging every statement as slow.
+     *
+     * @return messages of the slow statement log
+     */
+    private static List<String> slowLog(Work work) throws SQLException {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        Logger logger = Logger.getLogger(InstrumentedConnectionManager.class.getName());
+        logger.addHandler(handler);
+        try {
+            work.run(new InstrumentedConnectionManager(stubConnections(), Duration.ZERO));
+        } finally {
+            logger.removeHandler(handler);
+        }
+        return messages;
+    }
+
+    private static StatementStatistics statisticsOf(InstrumentedConnectionManager manager, String fingerprint) {
+        return manager.getStatistics().stream()
+                .filter(statistics -> statistics.getFingerprint().equals(fingerprint))
+                .findFirst()
+                .orElseThrow();
+    }
+
+
+    @Test
+    public void of_WhenStatementsDifferInLiteralsAndListSizes_ThenShouldHaveSameFingerprint() {
+        assertEquals(
+                "SELECT * FROM bookings.tickets WHERE book_ref = ? AND ticket_no IN (?, ...) LIMIT ?",
+                SqlFingerprint.of("SELECT *\n  FROM bookings.tickets  -- all\n WHERE book_ref = 'ab''c' AND ticket_no IN (1, 2, 3) LIMIT 10;")
+        );
+        assertEquals(
+                SqlFingerprint.of("INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?);"),
+                SqlFingerprint.of("INSERT INTO t (a, b) VALUES (?, ?);")
+        );
+        assertEquals("SELECT CAST(? AS int4), $1", SqlFingerprint.of("SELECT CAST(? AS int4), $1"));
+    }
+
+    @Test
+    public void executeQuery_WhenRowsRead_ThenShouldCountExecutionAndRows() throws SQLException {
+        InstrumentedConnectionManager manager = new InstrumentedConnectionManager(stubConnections(), null);
+
+        for (int i = 0; i < 2; ++i) {
+            try (Connection connection = manager.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT * FROM bookings.tickets WHERE book_ref = ?")
+            ) {
+                statement.setString(1, "000000");
+                ResultSet result = statement.executeQuery();
+                while (result.next()) {
+                    assertSame(statement, result.getStatement());
+                }
+            }
+        }
+
+        StatementStatistics statistics = statisticsOf(manager, "SELECT * FROM bookings.tickets WHERE book_ref = ?");
+        assertEquals(2, statistics.getExecutions());
+        assertEquals(2 * ROWS, statistics.getRows());
+        assertEquals(ROWS, statistics.getMeanRows(), 1e-9);
+        assertTrue(statistics.getLatency().getMax() >= statistics.getLatency().getP50());
+    }
+
+    @Test
+    public void close_WhenResultSetReadPartially_ThenShouldCountReadRows() throws SQLException {
+        InstrumentedConnectionManager manager = new InstrumentedConnectionManager(stubConnections(), null);
+
+        try (Connection connection = manager.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")
+        ) {
+            statement.executeQuery().next();
+        }
+
+        assertEquals(1, statisticsOf(manager, "SELECT ?").getRows());
+    }
+
+    @Test
+    public void executeBatch_WhenBatchesExecuted_ThenShouldCountBatchSizes() throws SQLException {
+        InstrumentedConnectionManager manager = new InstrumentedConnectionManager(stubConnections(), null);
+
+        try (Connection connection = manager.getConnection();
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM bookings.tickets WHERE ticket_no = ?")
+        ) {
+            for (int size : new int[] {4, 2}) {
+                for (int i = 0; i < size; ++i) {
+                    statement.setString(1, String.valueOf(i));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+
+        StatementStatistics statistics = statisticsOf(manager, "DELETE FROM bookings.tickets WHERE ticket_no = ?");
+        assertEquals(2, statistics.getBatches());
+        assertEquals(3, statistics.getMeanBatchSize(), 1e-9);
+        assertEquals(6, statistics.getRows());
+    }
+
+    @Test
+    public void executeUpdate_WhenStatementFails_ThenShouldCountAndTimeError() throws SQLException {
+        InstrumentedConnectionManager manager = new InstrumentedConnectionManager(stubConnections(), null);
+
+        try (Connection connection = manager.getConnection();
+             PreparedStatement statement = connection.prepareStatement("UPDATE fail SET a = 1")
+        ) {
+            assertThrows(SQLException.class, statement::executeUpdate);
+        }
+
+        StatementStatistics statistics = statisticsOf(manager, "UPDATE fail SET a = ?");
+        assertEquals(1, statistics.getErrors());
+        assertEquals(1, statistics.getExecutions());
+        assertTrue(statistics.getTotalNanos() > 0);
+    }
+
+    @Test
+    public void executeUpdate_WhenSlow_ThenShouldLogParameterTypesWithoutValues() throws SQLException {
+        List<String> messages = slowLog(manager -> {
+            try (Connection connection = manager.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("UPDATE bookings.tickets SET passenger_name = ? WHERE ticket_no = ?")
+            ) {
+                statement.setString(1, "SECRET NAME");
+                statement.setObject(2, 42L);
+                statement.executeUpdate();
+            }
+        });
+
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("1 rows"));
+        assertTrue(messages.get(0).contains("[$1=String, $2=Long]"));
+        assertFalse(messages.get(0).contains("SECRET"));
+    }
+
+    @Test
+    public void executeQuery_WhenSlowStatementFails_ThenShouldLogItWithSqlState() throws SQLException {
+        List<String> messages = slowLog(manager -> {
+            try (Connection connection = manager.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT * FROM fail WHERE passenger_name = ?")
+            ) {
+                statement.setString(1, "SECRET NAME");
+                assertThrows(SQLException.class, statement::executeQuery);
+            }
+        });
+
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("failed with SQL state 57014"));
+        assertTrue(messages.get(0).contains("[$1=String]"));
+        assertFalse(messages.get(0).contains("SECRET"));
+        assertFalse(messages.get(0).contains("canceling"));
+    }
+
+    @Test
+    public void getTopStatements_WhenLimitGiven_ThenShouldReturnFirstStatementsInOrder() throws SQLException {
+        InstrumentedConnectionManager manager = new InstrumentedConnectionManager(stubConnections(), null);
+        try (Connection connection = manager.getConnection()) {
+            for (String sql : List.of("SELECT a", "SELECT b", "SELECT b", "SELECT c", "SELECT c", "SELECT c")) {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.executeUpdate();
+                }
+            }
+        }
+
+        List<StatementStatistics> top = manager.getTopStatements(2, StatementStatistics.BY_EXECUTIONS);
+
+        assertEquals(List.of("SELECT c", "SELECT b"), top.stream().map(StatementStatistics::getFingerprint).toList());
+        assertTrue(manager.report(3).contains("SELECT c"));
+        manager.reset();
+        assertTrue(manager.getStatistics().isEmpty());
+    }
+
+}
@@ -0,0 +1,38 @@
+import com.vr61v.utils.metrics.LatencyHistogram;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void snapshot_WhenNothingRecorded_ThenShouldReturnZeros() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99());
+        assertEquals(0, snapshot.getMean(), 0);
+    }
+
+    @Test
+    public void getPercentile_WhenValuesRecorded_ThenShouldBeWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; ++value) {
+            histogram.record(value * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(5_000_500, snapshot.getMean(), 1);
+        assertEquals(5_000_000, snapshot.getP50(), 5_000_000 * 0.125);
+        assertEquals(9_900_000, snapshot.getP99(), 9_900_000 * 0.125);
+        assertEquals(10_000_000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void getPercentile_WhenPercentileOutOfRange_ThenShouldThrowIllegalArgumentException() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(101));
+    }
+
+}
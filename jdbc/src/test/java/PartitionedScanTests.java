@@ -0,0 +1,158 @@
+import com.vr61v.mappers.RowMapper;
+import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.jdbc.PartitionedScan;
+import com.vr61v.utils.transaction.Transaction;
+import com.vr61v.utils.transaction.TransactionManager;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class PartitionedScanTests {
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    /**
+     * Connections whose queries return the rows "from".."to" - 1 of the first two parameters.
+     */
+    private ConnectionManager rangeConnections() {
+        return () -> {
+            openConnections.incrementAndGet();
+            boolean[] autoCommit = {true};
+            return (Connection) Proxy.newProxyInstance(
+                    PartitionedScanTests.class.getClassLoader(),
+                    new Class[] {Connection.class},
+                    (connection, method, args) -> switch (method.getName()) {
+                        case "getAutoCommit" -> autoCommit[0];
+                        case "setAutoCommit" -> {
+                            autoCommit[0] = (boolean) args[0];
+                            yield null;
+                        }
+                        case "prepareStatement" -> rangeStatement();
+                        case "close" -> {
+                            openConnections.decrementAndGet();
+                            yield null;
+                        }
+                        default -> null;
+                    }
+            );
+        };
+    }
+
+    private PreparedStatement rangeStatement() {
+        int[] range = new int[2];
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PartitionedScanTests.class.getClassLoader(),
+                new Class[] {PreparedStatement.class},
+                (statement, method, args) -> switch (method.getName()) {
+                    case "setObject" -> {
+                        range[(int) args[0] - 1] = (int) args[1];
+                        yield null;
+                    }
+                    case "executeQuery" -> rows(range[0], range[1]);
+                    default -> null;
+                }
+        );
+    }
+
+    private ResultSet rows(int from, int to) {
+        int[] current = {from - 1};
+        return (ResultSet) Proxy.newProxyInstance(
+                PartitionedScanTests.class.getClassLoader(),
+                new Class[] {ResultSet.class},
+                (result, method, args) -> switch (method.getName()) {
+                    case "next" -> ++current[0] < to;
+                    case "getInt" -> current[0];
+                    default -> null;
+                }
+        );
+    }
+
+    private RowMapper<Integer> mapper() {
+        return rs -> rs.getInt(1);
+    }
+
+    private static List<PartitionedScan.Partition> partitions(int count, int size) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new PartitionedScan.Partition("SELECT", List.of(i * size, (i + 1) * size)))
+                .toList();
+    }
+
+
+    @Test
+    public void stream_WhenReadInParallel_ThenShouldReturnEveryRowOnceAndReleaseConnections() {
+        List<Integer> rows;
+        try (Stream<Integer> scan = PartitionedScan.stream(rangeConnections(), partitions(8, 1000), 100, this::mapper, 8000)) {
+            rows = scan.parallel().sorted().toList();
+        }
+
+        assertEquals(IntStream.range(0, 8000).boxed().toList(), rows);
+        assertEquals(0, openConnections.get());
+    }
+
+    @Test
+    public void trySplit_WhenSeveralPartitionsLeft_ThenShouldHandOverFirstHalf() {
+        Spliterator<Integer> scan = PartitionedScan.stream(rangeConnections(), partitions(4, 10), 100, this::mapper, 40)
+                .spliterator();
+
+        Spliterator<Integer> prefix = scan.trySplit();
+
+        assertEquals(20, prefix.estimateSize());
+        List<Integer> first = new ArrayList<>();
+        prefix.forEachRemaining(first::add);
+        assertEquals(IntStream.range(0, 20).boxed().toList(), first);
+        assertNotNull(scan.trySplit());
+        assertNull(scan.trySplit());
+    }
+
+    @Test
+    public void close_WhenStreamAbandoned_ThenShouldReleaseOpenCursors() {
+        Stream<Integer> scan = PartitionedScan.stream(rangeConnections(), partitions(2, 10), 100, this::mapper, -1);
+        Iterator<Integer> rows = scan.iterator();
+        rows.next();
+        assertEquals(1, openConnections.get());
+
+        scan.close();
+
+        assertEquals(0, openConnections.get());
+    }
+
+    @Test
+    public void scanAll_WhenInsideTransaction_ThenShouldThrowIllegalStateException() {
+        TransactionManager transactionManager = new TransactionManager(rangeConnections());
+        TicketsRepository repository = new TicketsRepository(transactionManager);
+
+        try (Transaction transaction = transactionManager.begin()) {
+            assertThrows(IllegalStateException.class, () -> repository.scanAll(4));
+            transaction.rollback();
+        }
+        assertEquals(0, openConnections.get());
+    }
+
+    @Test
+    public void splitPoints_WhenHistogramGiven_ThenShouldSplitIntoEqualBuckets() {
+        List<String> histogram = IntStream.rangeClosed(0, 100)
+                .mapToObj(i -> String.format("%013d", i * 1000))
+                .collect(Collectors.toList());
+
+        assertEquals(List.of("0000000025000", "0000000050000", "0000000075000"), PartitionedScan.splitPoints(histogram, 4));
+        assertEquals(List.of(), PartitionedScan.splitPoints(histogram, 1));
+        assertEquals(List.of(), PartitionedScan.splitPoints(List.of(), 4));
+    }
+
+    @Test
+    public void splitPoints_WhenMorePartitionsThanBuckets_ThenShouldSkipRepeatedPoints() {
+        assertEquals(List.of("b"), PartitionedScan.splitPoints(List.of("a", "b", "c"), 3));
+    }
+
+}
@@ -0,0 +1,60 @@
+import com.vr61v.entities.ContactData;
+import com.vr61v.filters.TicketColumns;
+import com.vr61v.repositories.Projection;
+import com.vr61v.repositories.Row;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+import static org.junit.Assert.*;
+
+public class ProjectionTests {
+
+    record TicketRef(String ticketNo, String bookRef) {}
+
+    /**
+     * Result set positioned on one row with the given column texts.
+     */
+    private static ResultSet row(String... values) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ProjectionTests.class.getClassLoader(),
+                new Class[] {ResultSet.class},
+                (proxy, method, args) -> method.getName().equals("getString") ? values[(int) args[0] - 1] : null
+        );
+    }
+
+
+    @Test
+    public void of_WhenRecordGiven_ThenShouldSelectOnlyProjectedColumns() throws Exception {
+        Projection<TicketRef> projection = Projection.of(TicketRef.class, TicketColumns.TICKET_NO, TicketColumns.BOOK_REF);
+
+        assertEquals("ticket_no, book_ref", projection.getSelectList());
+        assertEquals(new TicketRef("0000000000001", "000000"), projection.getMapper().mapRow(row("0000000000001", "000000")));
+    }
+
+    @Test
+    public void of_WhenColumnCountDiffersFromRecord_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> Projection.of(TicketRef.class, TicketColumns.TICKET_NO));
+    }
+
+    @Test
+    public void rows_WhenJsonColumnIsNotRead_ThenShouldNotParseIt() throws Exception {
+        Projection<Row> projection = Projection.rows(TicketColumns.TICKET_NO, TicketColumns.CONTACT_DATA);
+        Row row = projection.getMapper().mapRow(row("0000000000001", "not json"));
+
+        assertEquals("0000000000001", row.get(TicketColumns.TICKET_NO));
+        assertEquals("not json", row.getString(TicketColumns.CONTACT_DATA));
+        assertThrows(RuntimeException.class, () -> row.get(TicketColumns.CONTACT_DATA));
+        assertThrows(IllegalArgumentException.class, () -> row.get(TicketColumns.BOOK_REF));
+    }
+
+    @Test
+    public void rows_WhenJsonColumnIsRead_ThenShouldDecodeIt() throws Exception {
+        Projection<Row> projection = Projection.rows(TicketColumns.CONTACT_DATA);
+        Row row = projection.getMapper().mapRow(row("{\"phone\":\"+70000000000\",\"email\":\"mail@mail.com\"}"));
+
+        assertEquals(new ContactData("+70000000000", "mail@mail.com"), row.get(TicketColumns.CONTACT_DATA));
+    }
+
+}
@@ -0,0 +1,170 @@
+import com.vr61v.entities.ContactData;
+import com.vr61v.entities.Ticket;
+import com.vr61v.filters.TicketFilter;
+import com.vr61v.repositories.InsertMode;
+import com.vr61v.repositories.QueryResultCache;
+import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.transaction.Transaction;
+import com.vr61v.utils.transaction.TransactionManager;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QueryResultCacheTests {
+
+    private static final String QUERY = "SELECT * FROM bookings.tickets WHERE book_ref = ?;";
+
+    private final QueryResultCache cache = new QueryResultCache(5, Duration.ofMinutes(1));
+
+    /**
+     * Connections of a table of identical tickets: an update inserts one row, visible to other
+     * connections only after commit (or right away in autocommit), a query returns all committed rows
+     * and the connection's own uncommitted ones.
+     */
+    private static ConnectionManager ticketsTable(AtomicInteger committed) {
+        return () -> {
+            boolean[] autoCommit = {true};
+            int[] pending = {0};
+            return proxy(Connection.class, (method, args) -> switch (method) {
+                case "getAutoCommit" -> autoCommit[0];
+                case "setAutoCommit" -> autoCommit[0] = (boolean) args[0];
+                case "commit" -> {
+                    committed.addAndGet(pending[0]);
+                    yield pending[0] = 0;
+                }
+                case "rollback" -> pending[0] = 0;
+                case "prepareStatement" -> proxy(PreparedStatement.class, (statementMethod, statementArgs) -> switch (statementMethod) {
+                    case "executeUpdate" -> {
+                        if (autoCommit[0]) {
+                            committed.incrementAndGet();
+                        } else {
+                            pending[0]++;
+                        }
+                        yield 1;
+                    }
+                    case "executeQuery" -> ticketRows(committed.get() + pending[0]);
+                    default -> null;
+                });
+                default -> null;
+            });
+        };
+    }
+
+    private static ResultSet ticketRows(int rows) {
+        List<String> columns = List.of("ticket_no", "book_ref", "passenger_id", "passenger_name", "contact_data");
+        int[] position = {0};
+        return proxy(ResultSet.class, (method, args) -> switch (method) {
+            case "next" -> ++position[0] <= rows;
+            case "findColumn" -> columns.indexOf((String) args[0]) + 1;
+            case "getString" -> (int) args[0] == 5 ? null : String.format("%013d", position[0]);
+            default -> null;
+        });
+    }
+
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                QueryResultCacheTests.class.getClassLoader(),
+                new Class[] {type},
+                (proxy, method, args) -> {
+                    Object result = handler.handle(method.getName(), args);
+                    if (result == null && method.getReturnType() == boolean.class) {
+                        return false;
+                    }
+                    return method.getReturnType() == void.class ? null : result;
+                }
+        ));
+    }
+
+
+    @Test
+    public void get_WhenSameQueryAndValues_ThenShouldReturnCachedRows() {
+        cache.put(cache.getVersion(), QUERY, List.of("000000"), List.of("a", "b"));
+
+        assertEquals(List.of("a", "b"), cache.get(QUERY, List.of("000000")));
+        assertNull(cache.get(QUERY, List.of("000001")));
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void get_WhenArrayValuesHaveSameElements_ThenShouldReturnCachedRows() {
+        cache.put(cache.getVersion(), QUERY, List.of((Object) new String[] {"1", "2"}), List.of("a"));
+        assertEquals(List.of("a"), cache.get(QUERY, List.of((Object) new String[] {"1", "2"})));
+    }
+
+    @Test
+    public void put_WhenRowsExceedMaximum_ThenShouldEvictLeastRecentlyUsedEntries() {
+        cache.put(cache.getVersion(), QUERY, List.of("1"), List.of("a", "b"));
+        cache.put(cache.getVersion(), QUERY, List.of("2"), List.of());
+        cache.get(QUERY, List.of("1"));
+        cache.put(cache.getVersion(), QUERY, List.of("3"), List.of("c", "d", "e"));
+
+        assertNull(cache.get(QUERY, List.of("2")));
+        assertNotNull(cache.get(QUERY, List.of("1")));
+        assertEquals(5, cache.getWeight());
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void put_WhenRowsHeavierThanMaximum_ThenShouldNotCache() {
+        cache.put(cache.getVersion(), QUERY, List.of("1"), List.of("a", "b", "c", "d", "e", "f"));
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void put_WhenVersionChangedSinceRead_ThenShouldNotCache() {
+        long version = cache.getVersion();
+        cache.invalidateAll();
+        cache.put(version, QUERY, List.of("1"), List.of("a"));
+
+        assertNull(cache.get(QUERY, List.of("1")));
+    }
+
+    @Test
+    public void get_WhenTtlExpired_ThenShouldReturnNull() throws InterruptedException {
+        QueryResultCache expiring = new QueryResultCache(5, Duration.ofMillis(20));
+        expiring.put(expiring.getVersion(), QUERY, List.of("1"), List.of("a"));
+        Thread.sleep(50);
+
+        assertNull(expiring.get(QUERY, List.of("1")));
+        assertEquals(0, expiring.getWeight());
+    }
+
+    @Test
+    public void findAll_WhenOtherThreadReadsBeforeTransactionCommits_ThenShouldNotServeStaleResult() throws Exception {
+        AtomicInteger committed = new AtomicInteger(3);
+        TransactionManager transactionManager = new TransactionManager(ticketsTable(committed));
+        QueryResultCache queryCache = new QueryResultCache(100, Duration.ofMinutes(1));
+        TicketsRepository repository = new TicketsRepository(transactionManager, InsertMode.UNNEST, 10, queryCache);
+        TicketFilter filter = new TicketFilter("000000", null, null, null);
+        Ticket ticket = new Ticket("0000000000004", "000000", "1234 567890", "USER", new ContactData());
+
+        try (Transaction transaction = transactionManager.begin()) {
+            repository.add(ticket);
+            // another connection doesn't see the uncommitted row yet and caches the old result
+            Thread reader = new Thread(() -> repository.findAll(filter));
+            reader.start();
+            reader.join();
+            assertEquals(3, queryCache.getWeight());
+            assertEquals(4, repository.findAll(filter).size());
+            transaction.commit();
+        }
+
+        assertEquals(0, queryCache.getWeight());
+        assertEquals(4, repository.findAll(filter).size());
+    }
+
+}
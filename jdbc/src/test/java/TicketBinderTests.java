@@ -0,0 +1,78 @@
+import com.vr61v.changes.TicketChanges;
+import com.vr61v.entities.ContactData;
+import com.vr61v.entities.Ticket;
+import com.vr61v.mappers.TicketMapper;
+import org.junit.Test;
+import org.postgresql.util.PGobject;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TicketBinderTests {
+
+    private final TicketMapper mapper = new TicketMapper();
+
+    /**
+     * Statement which records the bound parameters by index.
+     */
+    private static PreparedStatement recordingStatement(Map<Integer, Object> parameters) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                TicketBinderTests.class.getClassLoader(),
+                new Class[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("set")) {
+                        parameters.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                }
+        );
+    }
+
+
+    @Test
+    public void bind_WhenTicketGiven_ThenShouldBindContactDataAsJsonb() throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+        Ticket ticket = new Ticket("0000000000001", "000000", "1234 567890", "MIGRATED USER",
+                new ContactData("+70000000000", "mail@mail.com"));
+
+        int next = mapper.bind(recordingStatement(parameters), 1, ticket);
+
+        assertEquals(6, next);
+        assertEquals("0000000000001", parameters.get(1));
+        assertEquals("MIGRATED USER", parameters.get(4));
+        PGobject contactData = (PGobject) parameters.get(5);
+        assertEquals("jsonb", contactData.getType());
+        assertEquals("{\"phone\":\"+70000000000\",\"email\":\"mail@mail.com\"}", contactData.getValue());
+    }
+
+    @Test
+    public void bind_WhenStartIndexGiven_ThenShouldBindAfterIt() throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+        Ticket ticket = new Ticket("0000000000001", "000000", "1234 567890", "MIGRATED USER", null);
+
+        int next = mapper.bind(recordingStatement(parameters), 6, ticket);
+
+        assertEquals(11, next);
+        assertEquals("0000000000001", parameters.get(6));
+        assertNull(((PGobject) parameters.get(10)).getValue());
+    }
+
+    @Test
+    public void toSetParameters_WhenChangesGiven_ThenShouldListAssignmentsInColumnOrderAndBindJsonb() {
+        TicketChanges changes = new TicketChanges("000000", null, "RENAMED USER",
+                new ContactData("+70000000000", "mail@mail.com"));
+
+        Map<String, Object> parameters = changes.toSetParameters();
+
+        assertEquals(List.of("book_ref = ?", "passenger_name = ?", "contact_data = ?"), List.copyOf(parameters.keySet()));
+        PGobject contactData = (PGobject) parameters.get("contact_data = ?");
+        assertEquals("jsonb", contactData.getType());
+        assertEquals("{\"phone\":\"+70000000000\",\"email\":\"mail@mail.com\"}", contactData.getValue());
+    }
+
+}
@@ -1,8 +1,21 @@
+import com.vr61v.changes.TicketChanges;
 import com.vr61v.entities.ContactData;
 import com.vr61v.entities.Ticket;
 import com.vr61v.exceptions.RepositoryException;
+import com.vr61v.filters.Criteria;
+import com.vr61v.filters.TicketColumns;
 import com.vr61v.filters.TicketFilter;
+import com.vr61v.repositories.BulkLoadResult;
+import com.vr61v.repositories.ChunkResult;
+import com.vr61v.repositories.InsertMode;
+import com.vr61v.repositories.Page;
+import com.vr61v.repositories.Projection;
+import com.vr61v.repositories.QueryResultCache;
+import com.vr61v.repositories.Row;
+import com.vr61v.repositories.TicketsBulkLoader;
 import com.vr61v.repositories.TicketsRepository;
+import com.vr61v.repositories.UpsertResult;
+import com.vr61v.utils.jdbc.CopyFormat;
 import com.vr61v.utils.ConnectionManager;
 import com.vr61v.utils.RepositoryTestsConnectionManager;
 import org.flywaydb.core.Flyway;
@@ -12,9 +25,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -175,6 +190,67 @@ public class TicketRepositoryTests {
         assertThrows(IllegalArgumentException.class, () -> repository.addAll(tickets));
     }
 
+    @Test
+    public void addAll_WhenEveryInsertMode_ThenShouldAddAllTicketsInChunks() {
+        for (InsertMode mode : InsertMode.values()) {
+            List<Ticket> tickets = generateTickets(7);
+            assertTrue(new TicketsRepository(manager, mode, 3).addAll(tickets));
+            Assert.assertEquals(tickets.get(6), repository.findById(tickets.get(6).getTicketNo()).orElse(null));
+        }
+    }
+
+    @Test
+    public void addAll_WhenLastChunkFails_ThenShouldRollbackAllChunks() {
+        List<Ticket> tickets = generateTickets(7);
+        tickets.get(tickets.size() - 1).setBookRef(INVALID_BOOK_REF);
+        assertThrows(RepositoryException.class, () -> new TicketsRepository(manager, InsertMode.UNNEST, 3).addAll(tickets));
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.findAll().size());
+    }
+
+    @Test
+    public void addAllInChunks_WhenOneChunkFails_ThenShouldKeepOtherChunks() {
+        List<Ticket> tickets = generateTickets(7);
+        tickets.get(4).setBookRef(INVALID_BOOK_REF);
+        List<ChunkResult> results = new TicketsRepository(manager, InsertMode.UNNEST, 3).addAllInChunks(tickets);
+
+        Assert.assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertTrue(results.get(2).isSuccessful());
+        Assert.assertEquals(TICKETS_DATA_SIZE + 4, repository.findAll().size());
+    }
+
+    @Test
+    public void constructor_WhenValuesChunkExceedsParameterLimit_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new TicketsRepository(manager, InsertMode.MULTI_ROW_VALUES, 10_000));
+    }
+
+
+    // Tests for TicketsBulkLoader
+    @Test
+    public void load_WhenBinaryFormat_ThenShouldLoadAllTickets() {
+        List<Ticket> tickets = generateTickets(100);
+        BulkLoadResult result = new TicketsBulkLoader(manager, 2, CopyFormat.BINARY).load(tickets);
+        Assert.assertEquals(tickets.size(), result.getRows());
+        Assert.assertEquals(TICKETS_DATA_SIZE + tickets.size(), repository.findAll().size());
+        Assert.assertEquals(tickets.get(0), repository.findById(tickets.get(0).getTicketNo()).orElse(null));
+    }
+
+    @Test
+    public void load_WhenTextFormat_ThenShouldLoadAllTickets() {
+        List<Ticket> tickets = generateTickets(100);
+        BulkLoadResult result = new TicketsBulkLoader(manager, 3, CopyFormat.TEXT).load(tickets);
+        Assert.assertEquals(tickets.size(), result.getRows());
+        Assert.assertTrue(result.getRowsPerSecond() > 0);
+    }
+
+    @Test
+    public void load_WhenTicketHasInvalidBookRef_ThenShouldThrowRepositoryException() {
+        List<Ticket> tickets = generateTickets(10);
+        tickets.get(tickets.size() - 1).setBookRef(INVALID_BOOK_REF);
+        assertThrows(RepositoryException.class, () -> new TicketsBulkLoader(manager).load(tickets));
+    }
+
 
     // Tests for findById method
     @Test
@@ -297,9 +373,9 @@ public class TicketRepositoryTests {
     }
 
     @Test
-    public void findAll_WhenEmptyFilter_ThenShouldThrowRepositoryException() {
+    public void findAll_WhenEmptyFilter_ThenShouldThrowIllegalArgumentException() {
         TicketFilter filter = new TicketFilter(null, null, null, null);
-        assertThrows(RepositoryException.class, () -> repository.findAll(filter));
+        assertThrows(IllegalArgumentException.class, () -> repository.findAll(filter));
     }
 
     @Test
@@ -307,6 +383,119 @@ public class TicketRepositoryTests {
         assertThrows(IllegalArgumentException.class, () -> repository.findAll(null));
     }
 
+    @Test
+    public void findAll_WhenCriteriaHasOrderAndLimit_ThenShouldReturnOrderedPrefix() {
+        Criteria criteria = Criteria.where()
+                .startsWith(TicketColumns.PASSENGER_NAME, "MIGRATED")
+                .orderByDesc(TicketColumns.TICKET_NO)
+                .limit(3);
+        List<Ticket> tickets = repository.findAll(criteria);
+
+        Assert.assertEquals(3, tickets.size());
+        Assert.assertEquals("9000000000000", tickets.get(0).getTicketNo());
+        Assert.assertEquals("7000000000000", tickets.get(2).getTicketNo());
+    }
+
+    @Test
+    public void findAll_WhenCriteriaHasOnlyOrderAndLimit_ThenShouldReturnOrderedPrefixOfAllTickets() {
+        Criteria criteria = Criteria.where()
+                .orderByAsc(TicketColumns.TICKET_NO)
+                .limit(2);
+        List<Ticket> tickets = repository.findAll(criteria);
+
+        Assert.assertEquals(2, tickets.size());
+        Assert.assertEquals("0000000000000", tickets.get(0).getTicketNo());
+        Assert.assertEquals("1000000000000", tickets.get(1).getTicketNo());
+    }
+
+    @Test
+    public void findAll_WhenCriteriaHasInList_ThenShouldReturnListedTickets() {
+        Criteria criteria = Criteria.where()
+                .in(TicketColumns.TICKET_NO, List.of("1000000000000", "2000000000000", NOT_EXISTING_TICKET))
+                .after(TicketColumns.TICKET_NO, "1000000000000");
+        List<Ticket> tickets = repository.findAll(criteria);
+
+        Assert.assertEquals(1, tickets.size());
+        Assert.assertEquals("2000000000000", tickets.get(0).getTicketNo());
+    }
+
+
+    // Tests for projections
+    record TicketRef(String ticketNo, String bookRef) {}
+
+    @Test
+    public void findAllAs_WhenRecordProjection_ThenShouldReturnProjectedColumns() {
+        Projection<TicketRef> projection = Projection.of(TicketRef.class, TicketColumns.TICKET_NO, TicketColumns.BOOK_REF);
+        List<TicketRef> refs = repository.findAllAs(projection, Criteria.where().eq(TicketColumns.TICKET_NO, "1000000000000"));
+        Assert.assertEquals(List.of(new TicketRef("1000000000000", "000000")), refs);
+    }
+
+    @Test
+    public void streamAllAs_WhenRowProjection_ThenShouldStreamAllMatchingRows() {
+        Projection<Row> projection = Projection.rows(TicketColumns.TICKET_NO);
+        try (Stream<Row> rows = repository.streamAllAs(projection, new TicketFilter("000000", null, null, null))) {
+            Assert.assertEquals(TICKETS_DATA_SIZE, rows.count());
+        }
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.findAllAs(projection).size());
+    }
+
+
+    // Tests for streamAll method
+    @Test
+    public void streamAll_WhenNoFilter_ThenShouldStreamAllTickets() {
+        try (Stream<Ticket> tickets = repository.streamAll(3)) {
+            Assert.assertEquals(TICKETS_DATA_SIZE, tickets.count());
+        }
+    }
+
+    @Test
+    public void streamAll_WhenStreamClosedEarly_ThenShouldReleaseConnection() {
+        for (int i = 0; i < 20; ++i) {
+            try (Stream<Ticket> tickets = repository.streamAll(2)) {
+                Assert.assertEquals(1, tickets.limit(1).count());
+            }
+        }
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.findAll().size());
+    }
+
+    @Test
+    public void streamAll_WithValidFilterWithBookRef_ThenShouldStreamFilteredTickets() {
+        TicketFilter filter = new TicketFilter("000000", null, null, null);
+        try (Stream<Ticket> tickets = repository.streamAll(filter)) {
+            Assert.assertEquals(TICKETS_DATA_SIZE, tickets.count());
+        }
+    }
+
+    @Test
+    public void streamAll_WhenFetchSizeIsNotPositive_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.streamAll(0));
+    }
+
+
+    // Tests for scanAll method
+    @Test
+    public void scanAll_WhenReadInParallel_ThenShouldReturnEveryTicketOnce() {
+        try (Stream<Ticket> tickets = repository.scanAll(4, 3).parallel()) {
+            Assert.assertEquals(TICKETS_DATA_SIZE, tickets.map(Ticket::getTicketNo).distinct().count());
+        }
+    }
+
+    @Test
+    public void scanAll_WhenPartitionsIsNotPositive_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.scanAll(0));
+    }
+
+    @Test
+    public void streamAll_WhenFilterIsNull_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.streamAll(null));
+    }
+
+    @Test
+    public void streamAll_WhenFilterIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        TicketFilter filter = new TicketFilter(null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> repository.streamAll(filter));
+    }
+
 
     // Tests for findAllById method
     @Test
@@ -354,6 +543,63 @@ public class TicketRepositoryTests {
     }
 
 
+    // Tests for the query result cache
+    @Test
+    public void findAll_WhenQueryCacheEnabled_ThenShouldServeRepeatedFilterFromCacheUntilWrite() {
+        QueryResultCache cache = new QueryResultCache(1000, Duration.ofMinutes(1));
+        TicketsRepository cached = new TicketsRepository(manager, InsertMode.UNNEST, TicketsRepository.DEFAULT_CHUNK_SIZE, cache);
+        TicketFilter filter = new TicketFilter("000000", null, null, null);
+
+        Assert.assertEquals(TICKETS_DATA_SIZE, cached.findAll(filter).size());
+        Assert.assertEquals(TICKETS_DATA_SIZE, cached.findAll(filter).size());
+        Assert.assertEquals(1, cache.getStats().getHits());
+        Assert.assertEquals(TICKETS_DATA_SIZE, cache.getWeight());
+
+        assertTrue(cached.add(generateTicket()));
+        Assert.assertEquals(0, cache.getWeight());
+        Assert.assertEquals(TICKETS_DATA_SIZE + 1, cached.findAll(filter).size());
+    }
+
+
+    // Tests for count and exists methods
+    @Test
+    public void count_WhenCalled_ThenShouldReturnNumberOfTickets() {
+        Assert.assertEquals(repository.findAll().size(), repository.count());
+    }
+
+    @Test
+    public void count_WhenFilterGiven_ThenShouldReturnNumberOfMatchingTickets() {
+        TicketFilter filter = new TicketFilter("000000", null, null, null);
+        Assert.assertEquals(repository.findAll(filter).size(), repository.count(filter));
+    }
+
+    @Test
+    public void count_WhenFilterIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.count(new TicketFilter(null, null, null, null)));
+    }
+
+    @Test
+    public void existsById_WhenTicketExists_ThenShouldReturnTrue() {
+        Assert.assertTrue(repository.existsById("1000000000000"));
+        Assert.assertFalse(repository.existsById(NOT_EXISTING_TICKET));
+    }
+
+    @Test
+    public void existsAll_WhenAllIdsExist_ThenShouldReturnTrue() {
+        Assert.assertTrue(repository.existsAll(List.of("1000000000000", "2000000000000", "1000000000000")));
+    }
+
+    @Test
+    public void existsAll_WhenSomeIdDoesNotExist_ThenShouldReturnFalse() {
+        Assert.assertFalse(repository.existsAll(List.of("1000000000000", NOT_EXISTING_TICKET)));
+    }
+
+    @Test
+    public void existsAll_WhenIdsIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.existsAll(List.of()));
+    }
+
+
     // Tests for findPage method
     @Test
     public void findPage_WhenRequestFirstPage_ThenShouldReturnFirstPageResults() {
@@ -404,6 +650,51 @@ public class TicketRepositoryTests {
     }
 
 
+    // Tests for findPageAfter method
+    @Test
+    public void findPageAfter_WhenWalkingAllPages_ThenShouldReturnEveryTicketOnce() {
+        List<String> ticketNumbers = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            Page<Ticket> page = repository.findPageAfter(token, 3);
+            page.getContent().forEach(ticket -> ticketNumbers.add(ticket.getTicketNo()));
+            token = page.getNextToken();
+            pages++;
+        } while (token != null);
+
+        Assert.assertEquals(4, pages);
+        Assert.assertEquals(TICKETS_DATA_SIZE, ticketNumbers.size());
+        Assert.assertEquals(ticketNumbers.stream().sorted().toList(), ticketNumbers);
+    }
+
+    @Test
+    public void findPageAfter_WhenPageSizeEqualsTotalCount_ThenShouldReturnNoNextToken() {
+        Page<Ticket> page = repository.findPageAfter(null, TICKETS_DATA_SIZE);
+        Assert.assertEquals(TICKETS_DATA_SIZE, page.getContent().size());
+        Assert.assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void findPageAfter_WithValidFilterWithBookRef_ThenShouldReturnFilteredPage() {
+        TicketFilter filter = new TicketFilter("000000", null, null, null);
+        Page<Ticket> first = repository.findPageAfter(filter, null, 4);
+        Page<Ticket> second = repository.findPageAfter(filter, first.getNextToken(), 4);
+        Assert.assertEquals(4, first.getContent().size());
+        Assert.assertEquals("4000000000000", second.getContent().get(0).getTicketNo());
+    }
+
+    @Test
+    public void findPageAfter_WhenTokenIsMalformed_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.findPageAfter("not a token", 1));
+    }
+
+    @Test
+    public void findPageAfter_WhenPageSizeIsNotPositive_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.findPageAfter(null, 0));
+    }
+
+
     // Tests for update method
     @Test
     public void update_WhenTicketExists_ThenShouldReturnTrue() {
@@ -484,6 +775,51 @@ public class TicketRepositoryTests {
     }
 
 
+    // Tests for upsert methods
+    @Test
+    public void upsert_WhenTicketExists_ThenShouldUpdateIt() {
+        Ticket ticket = generateTicket();
+        ticket.setTicketNo("1000000000000");
+        UpsertResult result = repository.upsert(ticket);
+        Assert.assertEquals(new UpsertResult(0, 1), result);
+        Assert.assertEquals(ticket, repository.findById(ticket.getTicketNo()).orElse(null));
+    }
+
+    @Test
+    public void upsert_WhenTicketDoesNotExist_ThenShouldInsertIt() {
+        Ticket ticket = generateTicket();
+        Assert.assertEquals(new UpsertResult(1, 0), repository.upsert(ticket));
+    }
+
+    @Test
+    public void upsertAll_WhenSomeTicketsExist_ThenShouldCountInsertedAndUpdated() {
+        List<Ticket> tickets = generateTickets(5);
+        tickets.get(0).setTicketNo("1000000000000");
+        tickets.get(1).setTicketNo("2000000000000");
+        Ticket duplicate = generateTicket();
+        duplicate.setTicketNo(tickets.get(4).getTicketNo());
+        tickets.add(duplicate);
+
+        UpsertResult result = repository.upsertAll(tickets);
+        Assert.assertEquals(new UpsertResult(3, 2), result);
+        Assert.assertEquals(TICKETS_DATA_SIZE + 3, repository.findAll().size());
+        Assert.assertEquals(duplicate, repository.findById(duplicate.getTicketNo()).orElse(null));
+    }
+
+    @Test
+    public void upsertAll_WhenListContainsTicketWithInvalidBookRef_ThenShouldThrowRepositoryException() {
+        List<Ticket> tickets = generateTickets(5);
+        tickets.get(tickets.size() - 1).setBookRef(INVALID_BOOK_REF);
+        assertThrows(RepositoryException.class, () -> repository.upsertAll(tickets));
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.findAll().size());
+    }
+
+    @Test
+    public void upsertAll_WhenListIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.upsertAll(List.of()));
+    }
+
+
     // Tests for delete method
     @Test
     public void delete_WhenTicketExists_ThenShouldReturnTrue() {
@@ -523,7 +859,7 @@ public class TicketRepositoryTests {
 
     @Test
     public void deleteAll_WhenIdsIsNull_ThenShouldThrowIllegalArgumentException() {
-        assertThrows(IllegalArgumentException.class, () -> repository.deleteAll(null));
+        assertThrows(IllegalArgumentException.class, () -> repository.deleteAll((List<String>) null));
     }
 
     @Test
@@ -548,4 +884,51 @@ public class TicketRepositoryTests {
         ids.add("");
         assertThrows(IllegalArgumentException.class, () -> repository.deleteAll(ids));
     }
+
+
+    // Tests for set-based methods by filter
+    @Test
+    public void deleteAll_WhenFilterMatchesTickets_ThenShouldDeleteThem() {
+        repository.add(generateTicket());
+        TicketFilter filter = new TicketFilter(null, null, "MIGRATED USER", null);
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.deleteAll(filter));
+        Assert.assertEquals(1, repository.findAll().size());
+    }
+
+    @Test
+    public void deleteAll_WhenFilterIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        TicketFilter filter = new TicketFilter(null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> repository.deleteAll(filter));
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.findAll().size());
+    }
+
+    @Test
+    public void updateAll_WhenFilterMatchesTickets_ThenShouldApplyChanges() {
+        TicketFilter filter = new TicketFilter(null, null, "MIGRATED USER", null);
+        TicketChanges changes = new TicketChanges(null, null, "RENAMED USER", null);
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.updateAll(filter, changes));
+        Assert.assertEquals(TICKETS_DATA_SIZE, repository.findAll(new TicketFilter(null, null, "RENAMED USER", null)).size());
+    }
+
+    @Test
+    public void updateAll_WhenFilterIsEmpty_ThenShouldThrowIllegalArgumentException() {
+        TicketFilter filter = new TicketFilter(null, null, null, null);
+        TicketChanges changes = new TicketChanges(null, null, "RENAMED USER", null);
+        assertThrows(IllegalArgumentException.class, () -> repository.updateAll(filter, changes));
+        Assert.assertTrue(repository.findAll(new TicketFilter(null, null, "RENAMED USER", null)).isEmpty());
+    }
+
+    @Test
+    public void updateAll_WhenChangesAreEmpty_ThenShouldThrowIllegalArgumentException() {
+        TicketFilter filter = new TicketFilter(null, null, "MIGRATED USER", null);
+        TicketChanges changes = new TicketChanges(null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> repository.updateAll(filter, changes));
+    }
+
+    @Test
+    public void deleteAll_WhenIdsExceedChunkSize_ThenShouldDeleteAllChunks() {
+        List<String> ids = List.of("1000000000000", "2000000000000", "3000000000000", "4000000000000", "4000000000000");
+        assertTrue(new TicketsRepository(manager, InsertMode.UNNEST, 2).deleteAll(ids));
+        Assert.assertEquals(TICKETS_DATA_SIZE - 4, repository.findAll().size());
+    }
 }
@@ -0,0 +1,88 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.vr61v.entities.ContactData;
+import com.vr61v.entities.Ticket;
+import com.vr61v.mappers.RowMapper;
+import com.vr61v.mappers.TicketMapper;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TicketRowDecoderTests {
+
+    private static final List<String> COLUMNS = List.of("ticket_no", "book_ref", "passenger_id", "passenger_name", "contact_data");
+
+    private final TicketMapper mapper = new TicketMapper();
+
+    /**
+     * Result set positioned on one ticket row, counts the lookups of columns by name.
+     */
+    private static ResultSet ticketRow(AtomicInteger lookups, String contactData) {
+        String[] values = {"0000000000001", "000000", "1234 567890", "MIGRATED USER", contactData};
+        return (ResultSet) Proxy.newProxyInstance(
+                TicketRowDecoderTests.class.getClassLoader(),
+                new Class[] {ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findColumn" -> {
+                        lookups.incrementAndGet();
+                        yield COLUMNS.indexOf((String) args[0]) + 1;
+                    }
+                    case "getString" -> args[0] instanceof String name ? values[COLUMNS.indexOf(name)] : values[(int) args[0] - 1];
+                    default -> null;
+                }
+        );
+    }
+
+
+    @Test
+    public void mapRow_WhenRowsComeFromSameResultSet_ThenShouldResolveColumnsOnce() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        ResultSet result = ticketRow(lookups, "{\"phone\":\"+70000000000\",\"email\":\"mail@mail.com\"}");
+        RowMapper<Ticket> decoder = mapper.rowDecoder();
+
+        Ticket first = decoder.mapRow(result);
+        decoder.mapRow(result);
+
+        assertEquals(COLUMNS.size(), lookups.get());
+        assertEquals(mapper.mapToEntity(result), first);
+    }
+
+    @Test
+    public void mapRow_WhenContactDataHasNulls_ThenShouldKeepThem() throws Exception {
+        ResultSet result = ticketRow(new AtomicInteger(), "{\"phone\":null,\"email\":\"mail@mail.com\"}");
+
+        assertEquals(new ContactData(null, "mail@mail.com"), mapper.rowDecoder().mapRow(result).getContactData());
+    }
+
+    @Test
+    public void mapRow_WhenContactDataHasUnknownField_ThenShouldFailLikeObjectMapper() {
+        ResultSet result = ticketRow(new AtomicInteger(), "{\"phone\":null,\"extra\":{\"a\":[1,2]},\"email\":\"mail@mail.com\"}");
+
+        assertThrows(UnrecognizedPropertyException.class, () -> mapper.rowDecoder().mapRow(result));
+        assertThrows(UnrecognizedPropertyException.class, () -> mapper.mapToEntity(result));
+    }
+
+    @Test
+    public void mapRow_WhenContactDataFieldIsObject_ThenShouldThrowJsonProcessingException() {
+        ResultSet result = ticketRow(new AtomicInteger(), "{\"phone\":{\"number\":\"+70000000000\"}}");
+
+        assertThrows(JsonProcessingException.class, () -> mapper.rowDecoder().mapRow(result));
+        assertThrows(JsonProcessingException.class, () -> mapper.mapToEntity(result));
+    }
+
+    @Test
+    public void mapRow_WhenContactDataIsNull_ThenShouldReturnTicketWithoutContactData() throws Exception {
+        assertNull(mapper.rowDecoder().mapRow(ticketRow(new AtomicInteger(), null)).getContactData());
+    }
+
+    @Test
+    public void mapRow_WhenContactDataIsNotObject_ThenShouldThrowJsonProcessingException() {
+        assertThrows(JsonProcessingException.class, () -> mapper.rowDecoder().mapRow(ticketRow(new AtomicInteger(), "[1]")));
+    }
+
+}
@@ -0,0 +1,150 @@
+import com.vr61v.exceptions.TransactionException;
+import com.vr61v.utils.ConnectionManager;
+import com.vr61v.utils.transaction.Transaction;
+import com.vr61v.utils.transaction.TransactionManager;
+import com.vr61v.utils.transaction.TransactionOptions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransactionManagerTests {
+
+    private final List<List<String>> calls = new ArrayList<>();
+    private TransactionManager transactionManager;
+
+    /**
+     * Connection manager handing out connections which only record the calls made on them.
+     */
+    private ConnectionManager recordingManager() {
+        return () -> {
+            List<String> log = new ArrayList<>();
+            calls.add(log);
+            return (Connection) Proxy.newProxyInstance(
+                    TransactionManagerTests.class.getClassLoader(),
+                    new Class[] {Connection.class},
+                    (proxy, method, args) -> {
+                        log.add(args == null ? method.getName() : method.getName() + "(" + args[0] + ")");
+                        return method.getReturnType() == boolean.class ? false : null;
+                    }
+            );
+        };
+    }
+
+    @Before
+    public void setUp() {
+        transactionManager = new TransactionManager(recordingManager());
+    }
+
+    @Test
+    public void getConnection_WhenInsideTransaction_ThenShouldReturnTransactionConnection() throws SQLException {
+        try (Transaction transaction = transactionManager.begin()) {
+            Connection first = transactionManager.getConnection();
+            first.close();
+            Connection second = transactionManager.getConnection();
+
+            assertSame(first, second);
+            assertTrue(transactionManager.isTransactionActive());
+            transaction.commit();
+        }
+
+        assertEquals(1, calls.size());
+        assertEquals(List.of("setAutoCommit(false)", "commit", "close"), calls.get(0));
+        assertFalse(transactionManager.isTransactionActive());
+    }
+
+    @Test
+    public void getConnection_WhenOutsideTransaction_ThenShouldBorrowNewConnection() {
+        transactionManager.getConnection();
+        transactionManager.getConnection();
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void execute_WhenCallbackThrows_ThenShouldRollback() {
+        assertThrows(IllegalStateException.class, () -> transactionManager.execute(connection -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(List.of("setAutoCommit(false)", "rollback", "close"), calls.get(0));
+    }
+
+    @Test
+    public void execute_WhenOptionsGiven_ThenShouldApplyIsolationAndReadOnly() {
+        TransactionOptions options = TransactionOptions.builder()
+                .isolation(Connection.TRANSACTION_REPEATABLE_READ)
+                .readOnly(true)
+                .build();
+        int result = transactionManager.execute(options, connection -> 42);
+
+        assertEquals(42, result);
+        assertEquals(
+                List.of("setReadOnly(true)", "setTransactionIsolation(4)", "setAutoCommit(false)", "commit", "close"),
+                calls.get(0)
+        );
+    }
+
+    @Test
+    public void begin_WhenNestedScopeRolledBack_ThenShouldRollbackWholeTransaction() {
+        try (Transaction outer = transactionManager.begin()) {
+            try (Transaction ignored = transactionManager.begin()) {
+                assertEquals(1, calls.size());
+            }
+            assertTrue(outer.isRollbackOnly());
+            assertThrows(TransactionException.class, outer::commit);
+        }
+        assertEquals(List.of("setAutoCommit(false)", "rollback", "close"), calls.get(0));
+    }
+
+    @Test
+    public void begin_WhenReadWriteScopeJoinsReadOnlyTransaction_ThenShouldThrowTransactionException() {
+        try (Transaction ignored = transactionManager.begin(TransactionOptions.READ_ONLY)) {
+            assertThrows(TransactionException.class, () -> transactionManager.begin());
+        }
+    }
+
+    @Test
+    public void commit_WhenCalledOnTransactionConnection_ThenShouldThrowSQLException() {
+        transactionManager.execute(connection -> {
+            assertThrows(SQLException.class, connection::commit);
+            assertThrows(SQLException.class, () -> connection.setAutoCommit(true));
+            return null;
+        });
+        assertEquals(List.of("setAutoCommit(false)", "commit", "close"), calls.get(0));
+    }
+
+    @Test
+    public void afterCompletion_WhenTransactionCommits_ThenShouldRunActionAfterCommit() {
+        List<String> events = new ArrayList<>();
+        try (Transaction transaction = transactionManager.begin()) {
+            assertTrue(transactionManager.afterCompletion(() -> events.add("first " + calls.get(0))));
+            assertTrue(TransactionManager.afterCompletion(transactionManager.getConnection(), () -> events.add("second")));
+            assertTrue(events.isEmpty());
+            transaction.commit();
+        }
+        assertEquals(List.of("first [setAutoCommit(false), commit, close]", "second"), events);
+    }
+
+    @Test
+    public void afterCompletion_WhenTransactionRollsBack_ThenShouldRunAction() {
+        List<String> events = new ArrayList<>();
+        try (Transaction ignored = transactionManager.begin()) {
+            transactionManager.afterCompletion(() -> events.add("completed"));
+        }
+        assertEquals(List.of("completed"), events);
+    }
+
+    @Test
+    public void afterCompletion_WhenNoTransactionIsActive_ThenShouldNotRegisterAction() {
+        List<String> events = new ArrayList<>();
+        assertFalse(transactionManager.afterCompletion(() -> events.add("completed")));
+        assertFalse(TransactionManager.afterCompletion(transactionManager.getConnection(), () -> events.add("completed")));
+        assertTrue(events.isEmpty());
+    }
+
+}